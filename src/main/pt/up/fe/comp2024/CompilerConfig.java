@@ -1,5 +1,7 @@
 package pt.up.fe.comp2024;
 
+import pt.up.fe.comp2024.analysis.AnalysisMode;
+
 import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
@@ -10,6 +12,9 @@ public class CompilerConfig {
     private static final String INPUT_FILE = "inputFile";
     private static final String OPTIMIZE = "optimize";
     private static final String REGISTER = "registerAllocation";
+    private static final String ANALYSIS_MODE = "analysisMode";
+    private static final String MAX_ERRORS = "maxErrors";
+    private static final String THREADS = "threads";
 
 
     static Map<String, String> shortToLong = new HashMap<>();
@@ -18,6 +23,9 @@ public class CompilerConfig {
         shortToLong.put("i", CompilerConfig.INPUT_FILE);
         shortToLong.put("o", CompilerConfig.OPTIMIZE);
         shortToLong.put("r", CompilerConfig.REGISTER);
+        shortToLong.put("a", CompilerConfig.ANALYSIS_MODE);
+        shortToLong.put("e", CompilerConfig.MAX_ERRORS);
+        shortToLong.put("t", CompilerConfig.THREADS);
     }
 
 
@@ -37,7 +45,29 @@ public class CompilerConfig {
     }
 
     public static int getRegisterAllocation(Map<String, String> config) {
-        return Integer.parseInt(config.getOrDefault(REGISTER, "-1"));
+        int registers = Integer.parseInt(config.getOrDefault(REGISTER, "-1"));
+        if (registers < -1) {
+            throw new RuntimeException("Expected -1, 0 or a maximum number of registers, got " + registers);
+        }
+
+        return registers;
+    }
+
+    public static AnalysisMode getAnalysisMode(Map<String, String> config) {
+        return AnalysisMode.fromString(config.getOrDefault(ANALYSIS_MODE, "pass"));
+    }
+
+    public static int getMaxErrors(Map<String, String> config) {
+        return Integer.parseInt(config.getOrDefault(MAX_ERRORS, "100"));
+    }
+
+    public static int getThreads(Map<String, String> config) {
+        int threads = Integer.parseInt(config.getOrDefault(THREADS, "1"));
+        if (threads < 1) {
+            throw new RuntimeException("Expected at least one thread, got " + threads);
+        }
+
+        return threads;
     }
 
 
@@ -47,6 +77,9 @@ public class CompilerConfig {
 
         config.put(CompilerConfig.OPTIMIZE, "false");
         config.put(CompilerConfig.REGISTER, "-1");
+        config.put(CompilerConfig.ANALYSIS_MODE, "pass");
+        config.put(CompilerConfig.MAX_ERRORS, "100");
+        config.put(CompilerConfig.THREADS, "1");
 
         return config;
     }
@@ -106,6 +139,9 @@ public class CompilerConfig {
         // Verify if values are valid
         getOptimize(config);
         getRegisterAllocation(config);
+        getAnalysisMode(config);
+        getMaxErrors(config);
+        getThreads(config);
 
         return config;
     }
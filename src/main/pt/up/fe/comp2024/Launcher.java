@@ -50,7 +50,8 @@ public class Launcher {
 
         OllirResult ollirResult = ollirGen.toOllir(semanticsResult);
         TestUtils.noErrors(ollirResult.getReports());
-        ollirGen.optimize(ollirResult);
+        ollirResult = ollirGen.optimize(ollirResult);
+        TestUtils.noErrors(ollirResult.getReports());
 
         // Print OLLIR code
         System.out.println(ollirResult.getOllirCode());
@@ -59,6 +60,8 @@ public class Launcher {
         JasminBackendImpl jasminGen = new JasminBackendImpl();
         JasminResult jasminResult = jasminGen.toJasmin(ollirResult);
         TestUtils.noErrors(jasminResult.getReports());
+        // Print the register and stack log to stderr, apart from the dumps and the output of the program
+        jasminResult.getReports().forEach(System.err::println);
 
         // Print Jasmin code
         System.out.println(jasminResult.getJasminCode());
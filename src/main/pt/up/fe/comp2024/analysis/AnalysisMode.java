@@ -0,0 +1,28 @@
+package pt.up.fe.comp2024.analysis;
+
+/**
+ * How much of the program the semantic analysis checks before returning its reports.
+ */
+public enum AnalysisMode {
+    /**
+     * Runs the passes in order and stops after the first one that reports anything.
+     */
+    PASS,
+    /**
+     * Runs every pass, reporting at most one error per statement, up to the maximum number of errors.
+     */
+    FULL,
+    /**
+     * Stops as soon as the first error is found, without finishing the current pass.
+     */
+    FIRST;
+
+    public static AnalysisMode fromString(String mode) {
+        for (AnalysisMode m : AnalysisMode.values()) {
+            if (m.name().equalsIgnoreCase(mode)) {
+                return m;
+            }
+        }
+        throw new RuntimeException("Could not convert string '" + mode + "' to an analysis mode");
+    }
+}
@@ -20,4 +20,23 @@ public interface AnalysisPass {
      */
     List<Report> analyze(JmmNode root, SymbolTable table);
 
+    /**
+     * Analyses the given node, stopping as soon as the budget is exhausted.
+     *
+     * @param root   the root node that will be visited for analysis
+     * @param table  the symbol table
+     * @param budget the errors that can still be reported, shared with the other passes
+     * @return a list of reports with the results of the analysis, up to the point where it stopped
+     */
+    List<Report> analyze(JmmNode root, SymbolTable table, ErrorBudget budget);
+
+    /**
+     * Analyses the given node without descending into method declarations.
+     *
+     * @param root  the root node that will be visited for analysis
+     * @param table the symbol table
+     * @return a list of reports with the results of the analysis of the class-level declarations
+     */
+    List<Report> analyzeDeclarations(JmmNode root, SymbolTable table);
+
 }
\ No newline at end of file
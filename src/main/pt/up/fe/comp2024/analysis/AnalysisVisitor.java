@@ -5,7 +5,9 @@ import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.symboltable.MethodSignature;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -16,9 +18,12 @@ import java.util.List;
 public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Void> implements AnalysisPass {
 
     private List<Report> reports;
+    private boolean skipMethods;
+    private ErrorBudget budget;
 
     public AnalysisVisitor() {
         reports = new ArrayList<>();
+        budget = ErrorBudget.unlimited();
         setDefaultValue(() -> null);
     }
 
@@ -31,6 +36,10 @@ public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Vo
     }
 
     protected void reportError(String message, JmmNode node) {
+        if (!budget.accept(node)) {
+            return;
+        }
+
         addReport(Report.newError(
                 Stage.SEMANTIC,
                 NodeUtils.getLine(node),
@@ -38,10 +47,14 @@ public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Vo
                 message,
                 null)
         );
+
+        if (budget.isExhausted()) {
+            throw new ErrorBudget.ExhaustedException();
+        }
     }
 
     protected boolean isValidAccess(String name, SymbolTable table, String currentMethod) {
-        if (!currentMethod.equals("main")) {
+        if (!MethodSignature.getName(currentMethod).equals("main")) {
             return true;
         }
 
@@ -56,12 +69,56 @@ public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Vo
         return table.getFields().stream().noneMatch(field -> field.getName().equals(name));
     }
 
+    @Override
+    public Void visit(JmmNode node, SymbolTable table) {
+        if (skipMethods && Kind.METHOD_DECL.check(node)) {
+            return null;
+        }
+
+        return super.visit(node, table);
+    }
+
     @Override
     public List<Report> analyze(JmmNode root, SymbolTable table) {
+        // Each analysis starts with no reports, so that passes can be reused
+        reports = new ArrayList<>();
+
         // Visit the node
         visit(root, table);
 
         // Return reports
         return getReports();
     }
+
+    @Override
+    public List<Report> analyze(JmmNode root, SymbolTable table, ErrorBudget budget) {
+        this.budget = budget;
+
+        try {
+            return analyze(root, table);
+        } catch (ErrorBudget.ExhaustedException e) {
+            // Stopped in the middle of the traversal, the reports found so far are kept
+            return getReports();
+        } catch (RuntimeException e) {
+            // A pass that fails after finding errors most likely fails because of them, so they are reported instead
+            if (getReports().isEmpty()) {
+                throw e;
+            }
+
+            return getReports();
+        } finally {
+            this.budget = ErrorBudget.unlimited();
+        }
+    }
+
+    @Override
+    public List<Report> analyzeDeclarations(JmmNode root, SymbolTable table) {
+        skipMethods = true;
+
+        try {
+            return analyze(root, table);
+        } finally {
+            skipMethods = false;
+        }
+    }
 }
@@ -0,0 +1,99 @@
+package pt.up.fe.comp2024.analysis;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Errors that the analysis passes may still report, shared by all of them during one analysis.
+ * <p>
+ * When cascading errors are suppressed, only the first error found in each statement or declaration is accepted,
+ * since the next ones are usually consequences of it.
+ */
+public class ErrorBudget {
+
+    private final int maxErrors;
+    private final boolean suppressCascades;
+    private final Set<JmmNode> erroneousNodes;
+    private int errors;
+
+    private ErrorBudget(int maxErrors, boolean suppressCascades) {
+        this.maxErrors = maxErrors;
+        this.suppressCascades = suppressCascades;
+        this.erroneousNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.errors = 0;
+    }
+
+    /**
+     * @return a budget that accepts every error
+     */
+    public static ErrorBudget unlimited() {
+        return new ErrorBudget(0, false);
+    }
+
+    /**
+     * @return a budget that accepts only the first error
+     */
+    public static ErrorBudget firstError() {
+        return new ErrorBudget(1, false);
+    }
+
+    /**
+     * @param maxErrors the maximum number of errors, or 0 for no limit
+     * @return a budget that accepts one error per statement, up to the given maximum
+     */
+    public static ErrorBudget limited(int maxErrors) {
+        return new ErrorBudget(maxErrors, true);
+    }
+
+    /**
+     * Counts an error found at the given node.
+     *
+     * @return false if the error is a cascade of one already accepted, and must not be reported
+     */
+    public boolean accept(JmmNode node) {
+        if (suppressCascades && !erroneousNodes.add(getEnclosingNode(node))) {
+            return false;
+        }
+
+        errors++;
+        return true;
+    }
+
+    /**
+     * @return true if no more errors can be reported
+     */
+    public boolean isExhausted() {
+        return maxErrors > 0 && errors >= maxErrors;
+    }
+
+    public int getErrors() {
+        return errors;
+    }
+
+    private static JmmNode getEnclosingNode(JmmNode node) {
+        for (JmmNode current = node; current != null; current = current.getParent()) {
+            Kind kind = Kind.fromString(current.getKind());
+            if (kind.isStmt() || Kind.check(current, Kind.VAR_DECL, Kind.PARAM, Kind.METHOD_DECL, Kind.CLASS_DECL, Kind.IMPORT_DECL)) {
+                return current;
+            }
+        }
+
+        return node;
+    }
+
+    /**
+     * Thrown by a pass when the budget is exhausted, to stop the traversal.
+     */
+    static class ExhaustedException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        ExhaustedException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package pt.up.fe.comp2024.analysis;
+
+import pt.up.fe.comp.jmm.analysis.JmmAnalysis;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+
+import java.util.*;
+
+import static pt.up.fe.comp2024.ast.Kind.*;
+
+/**
+ * Semantic analysis that reuses the results of the previous call.
+ * <p>
+ * Every method is analysed on its own and its reports are kept, together with a fingerprint of its body and the
+ * names of the methods and variables it references. On the next call, only the methods whose body changed, or that
+ * reference a method signature or a field that changed, are analysed again. The reports of the other methods are
+ * reused, moved to their new lines. The class-level declarations are always analysed again, since they are cheap,
+ * and a change to the imports or to the class header triggers a full analysis.
+ * <p>
+ * As in {@link JmmAnalysisImpl}, the result holds the reports of the first pass that produced any.
+ */
+public class IncrementalJmmAnalysis implements JmmAnalysis {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final String LINE_START = "lineStart";
+    private static final String LINE_END = "lineEnd";
+
+    private final List<AnalysisPass> analysisPasses;
+    private final Set<String> reanalyzedMethods;
+
+    private ClassState previous;
+
+    public IncrementalJmmAnalysis() {
+        this.analysisPasses = JmmAnalysisImpl.buildAnalysisPasses();
+        this.reanalyzedMethods = new LinkedHashSet<>();
+        this.previous = null;
+    }
+
+    /**
+     * @return the names of the methods analysed by the last call to {@link #semanticAnalysis(JmmParserResult)}
+     */
+    public Set<String> getReanalyzedMethods() {
+        return Collections.unmodifiableSet(reanalyzedMethods);
+    }
+
+    /**
+     * Forgets the previous analysis, so that the next call analyses every method.
+     */
+    public void reset() {
+        previous = null;
+    }
+
+    @Override
+    public JmmSemanticsResult semanticAnalysis(JmmParserResult parserResult) {
+
+        JmmNode rootNode = parserResult.getRootNode();
+
+        JmmSymbolTableBuilder jmmSymbolTableBuilder = new JmmSymbolTableBuilder();
+
+        SymbolTable table = jmmSymbolTableBuilder.build(rootNode);
+
+        JmmNode classDecl = rootNode.getChild(rootNode.getNumChildren() - 1);
+
+        ClassState current = new ClassState(table, classDecl);
+
+        boolean full = previous == null || !current.uniqueMethods || !previous.uniqueMethods
+                || previous.header != current.header;
+
+        Set<String> changedSignatures = full ? Set.of() : changedKeys(previous.signatures, current.signatures);
+        Set<String> changedFields = full ? Set.of() : changedKeys(previous.fields, current.fields);
+
+        List<MethodState> pending = new ArrayList<>();
+        reanalyzedMethods.clear();
+
+        for (MethodState method : current.methods.values()) {
+            MethodState old = full ? null : previous.methods.get(method.name);
+
+            if (old != null && old.fingerprint == method.fingerprint
+                    && Collections.disjoint(old.calls, changedSignatures)
+                    && Collections.disjoint(old.names, changedFields)) {
+                method.reuse(old);
+            } else {
+                pending.add(method);
+                reanalyzedMethods.add(method.name);
+            }
+        }
+
+        // Passes keep state between visits, so each one analyses the declarations before the methods, as in a full run
+        for (AnalysisPass analysisPass : analysisPasses) {
+            current.reports.add(runPass(analysisPass, rootNode, table, true));
+
+            for (MethodState method : pending) {
+                method.reports.add(runPass(analysisPass, method.node, table, false));
+            }
+        }
+
+        previous = current;
+
+        List<Report> reports = new ArrayList<>();
+
+        for (int i = 0; i < analysisPasses.size(); i++) {
+            reports.addAll(current.reports.get(i));
+
+            for (MethodState method : current.methods.values()) {
+                reports.addAll(method.reports.get(i));
+            }
+
+            if (!reports.isEmpty())
+                return new JmmSemanticsResult(parserResult, table, reports);
+        }
+
+        return new JmmSemanticsResult(parserResult, table, reports);
+    }
+
+    private List<Report> runPass(AnalysisPass analysisPass, JmmNode node, SymbolTable table, boolean declarations) {
+        try {
+            return declarations ? analysisPass.analyzeDeclarations(node, table) : analysisPass.analyze(node, table);
+        } catch (Exception e) {
+            return List.of(Report.newError(Stage.SEMANTIC,
+                    -1,
+                    -1,
+                    "Problem while executing analysis pass '" + analysisPass.getClass() + "'",
+                    e)
+            );
+        }
+    }
+
+    private static Set<String> changedKeys(Map<String, String> before, Map<String, String> after) {
+        Set<String> changed = new HashSet<>();
+
+        before.forEach((key, value) -> {
+            if (!value.equals(after.get(key))) {
+                changed.add(key);
+            }
+        });
+
+        after.forEach((key, value) -> {
+            if (!before.containsKey(key)) {
+                changed.add(key);
+            }
+        });
+
+        return changed;
+    }
+
+    private static String describe(Type type) {
+        String description = type.getName() + (type.isArray() ? "[]" : "");
+
+        if (type.hasAttribute("isEllipsis") && type.getObject("isEllipsis", Boolean.class)) {
+            description += "...";
+        }
+
+        return description;
+    }
+
+    private static long hash(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+
+        // Separator, so that consecutive values cannot be confused
+        hash ^= 0xff;
+        hash *= FNV_PRIME;
+
+        return hash;
+    }
+
+    /**
+     * State of the analysis of a class, kept until the next call.
+     */
+    private static class ClassState {
+
+        private final long header;
+        private final Map<String, String> signatures;
+        private final Map<String, String> fields;
+        private final Map<String, MethodState> methods;
+        private final boolean uniqueMethods;
+
+        private final List<List<Report>> reports;
+
+        ClassState(SymbolTable table, JmmNode classDecl) {
+            long header = hash(FNV_OFFSET_BASIS, table.getClassName());
+            header = hash(header, table.getSuper());
+            for (String importName : table.getImports()) {
+                header = hash(header, importName);
+            }
+            this.header = header;
+
+            this.signatures = new HashMap<>();
+            for (String method : table.getMethods()) {
+                StringBuilder signature = new StringBuilder(describe(table.getReturnType(method))).append("(");
+                for (Symbol param : table.getParameters(method)) {
+                    signature.append(describe(param.getType())).append(",");
+                }
+                signatures.put(method, signature.append(")").toString());
+            }
+
+            this.fields = new HashMap<>();
+            for (Symbol field : table.getFields()) {
+                fields.merge(field.getName(), describe(field.getType()), (first, second) -> first + "|" + second);
+            }
+
+            this.methods = new LinkedHashMap<>();
+            boolean unique = true;
+            for (JmmNode method : classDecl.getChildren(METHOD_DECL)) {
+                unique &= methods.putIfAbsent(method.get("name"), new MethodState(method)) == null;
+            }
+            this.uniqueMethods = unique;
+
+            this.reports = new ArrayList<>();
+        }
+    }
+
+    /**
+     * State of the analysis of a method, kept until the next call.
+     */
+    private static class MethodState {
+
+        private final JmmNode node;
+        private final String name;
+        private final int line;
+        private final long fingerprint;
+        private final Set<String> calls;
+        private final Set<String> names;
+
+        private final List<List<Report>> reports;
+
+        MethodState(JmmNode node) {
+            this.node = node;
+            this.name = node.get("name");
+            this.line = Integer.parseInt(node.get(LINE_START));
+            this.calls = new HashSet<>();
+            this.names = new HashSet<>();
+            this.fingerprint = visit(node, FNV_OFFSET_BASIS);
+            this.reports = new ArrayList<>();
+        }
+
+        /**
+         * Hashes the node and its descendants, with lines relative to the start of the method, and collects the
+         * names they reference.
+         */
+        private long visit(JmmNode node, long hash) {
+            hash = hash(hash, node.getKind());
+
+            // Combined by addition, since the order of the attributes is not defined
+            long attributes = 0;
+            for (String attribute : node.getAttributes()) {
+                String value = node.get(attribute);
+                if (attribute.equals(LINE_START) || attribute.equals(LINE_END)) {
+                    value = String.valueOf(Integer.parseInt(value) - line);
+                }
+                attributes += hash(hash(FNV_OFFSET_BASIS, attribute), value);
+            }
+            hash = hash(hash, Long.toHexString(attributes));
+
+            if (FUNCTION_CALL.check(node)) {
+                calls.add(node.get("name"));
+            } else if (VAR_REF_EXPR.check(node) || ASSIGN_STMT.check(node) || ARRAY_ASSIGN_STMT.check(node)) {
+                names.add(node.get("name"));
+            }
+
+            for (JmmNode child : node.getChildren()) {
+                hash = visit(child, hash);
+            }
+
+            return hash(hash, "#" + node.getNumChildren());
+        }
+
+        /**
+         * Takes the reports of an identical method analysed before, and the annotations left by the analysis.
+         */
+        void reuse(MethodState old) {
+            int offset = line - old.line;
+
+            for (List<Report> passReports : old.reports) {
+                List<Report> moved = new ArrayList<>();
+                for (Report report : passReports) {
+                    moved.add(move(report, offset));
+                }
+                reports.add(moved);
+            }
+
+            copyAnnotations(old.node, node);
+        }
+
+        private static Report move(Report report, int offset) {
+            if (offset == 0 || report.getLine() < 0) {
+                return report;
+            }
+
+            Report moved = new Report(report.getType(), report.getStage(), report.getLine() + offset,
+                    report.getColumn(), report.getMessage());
+            report.getException().ifPresent(moved::setException);
+
+            return moved;
+        }
+
+        private static void copyAnnotations(JmmNode from, JmmNode to) {
+            for (String attribute : from.getAttributes()) {
+                if (!to.hasAttribute(attribute)) {
+                    to.putObject(attribute, from.getObject(attribute));
+                }
+            }
+
+            List<JmmNode> fromChildren = from.getChildren();
+            List<JmmNode> toChildren = to.getChildren();
+
+            for (int i = 0; i < fromChildren.size(); i++) {
+                copyAnnotations(fromChildren.get(i), toChildren.get(i));
+            }
+        }
+    }
+}
@@ -7,6 +7,7 @@ import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
 import pt.up.fe.comp2024.analysis.passes.*;
 import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
 
@@ -20,10 +21,17 @@ public class JmmAnalysisImpl implements JmmAnalysis {
 
     public JmmAnalysisImpl() {
 
-        this.analysisPasses = List.of(new UndeclaredVariable(), new UndeclaredMethod(), new ClassNotImported(), new InvalidBinaryOperation(),
+        this.analysisPasses = buildAnalysisPasses();
+
+    }
+
+    /**
+     * Creates a fresh instance of every analysis pass, in the order they must run.
+     */
+    static List<AnalysisPass> buildAnalysisPasses() {
+        return List.of(new UndeclaredVariable(), new UndeclaredMethod(), new ClassNotImported(), new InvalidBinaryOperation(),
                 new Arrays(), new IncompatibleAssignment(), new Conditions(), new This(), new Varargs(), new Methods(),
                 new Duplicated(), new Statements());
-
     }
 
     @Override
@@ -35,6 +43,15 @@ public class JmmAnalysisImpl implements JmmAnalysis {
 
         SymbolTable table = jmmSymbolTableBuilder.build(rootNode);
 
+        AnalysisMode mode = CompilerConfig.getAnalysisMode(parserResult.getConfig());
+
+        if (mode != AnalysisMode.PASS) {
+            var budget = mode == AnalysisMode.FIRST
+                    ? ErrorBudget.firstError()
+                    : ErrorBudget.limited(CompilerConfig.getMaxErrors(parserResult.getConfig()));
+            return new JmmSemanticsResult(parserResult, table, analyze(rootNode, table, budget));
+        }
+
         List<Report> reports = new ArrayList<>();
 
         // Visit all nodes in the AST
@@ -56,4 +73,32 @@ public class JmmAnalysisImpl implements JmmAnalysis {
 
         return new JmmSemanticsResult(parserResult, table, reports);
     }
+
+    /**
+     * Runs every pass while the budget allows it.
+     */
+    private List<Report> analyze(JmmNode rootNode, SymbolTable table, ErrorBudget budget) {
+        List<Report> reports = new ArrayList<>();
+
+        for (var analysisPass : analysisPasses) {
+            try {
+                reports.addAll(analysisPass.analyze(rootNode, table, budget));
+            } catch (Exception e) {
+                // A pass that fails after other passes found errors is most likely a consequence of them
+                if (budget.getErrors() == 0) {
+                    budget.accept(rootNode);
+                    reports.add(Report.newError(Stage.SEMANTIC,
+                            -1,
+                            -1,
+                            "Problem while executing analysis pass '" + analysisPass.getClass() + "'",
+                            e)
+                    );
+                }
+            }
+            if (budget.isExhausted())
+                break;
+        }
+
+        return reports;
+    }
 }
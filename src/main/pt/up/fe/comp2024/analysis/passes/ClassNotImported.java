@@ -6,8 +6,6 @@ import pt.up.fe.comp2024.analysis.AnalysisVisitor;
 import pt.up.fe.comp2024.ast.Kind;
 
 public class ClassNotImported extends AnalysisVisitor {
-    private String currentClass;
-
     @Override
     public void buildVisitor() {
         addVisit(Kind.CLASS_DECL, this::visitClassDecl);
@@ -16,8 +14,6 @@ public class ClassNotImported extends AnalysisVisitor {
     }
 
     private Void visitClassDecl(JmmNode class_, SymbolTable table) {
-        currentClass = class_.get("name");
-
         if (!class_.getObject("isSubclass", Boolean.class)) {
             return null;
         }
@@ -37,7 +33,7 @@ public class ClassNotImported extends AnalysisVisitor {
         var nodeType = var_.getChild(0);
         var nodeName = nodeType.get("name");
         if (nodeType.getObject("isArray", Boolean.class) || nodeName.equals("boolean")
-                || nodeName.equals("int") || nodeName.equals(currentClass)) {
+                || nodeName.equals("int") || nodeName.equals(table.getClassName())) {
             return null;
         }
 
@@ -58,7 +54,7 @@ public class ClassNotImported extends AnalysisVisitor {
         var nodeType = method.getChild(0);
         var nodeName = nodeType.get("name");
         if (nodeType.getObject("isArray", Boolean.class) || nodeName.equals("boolean")
-                || nodeName.equals("int") || nodeName.equals(currentClass)) {
+                || nodeName.equals("int") || nodeName.equals(table.getClassName())) {
             return null;
         }
 
@@ -6,6 +6,7 @@ import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp2024.analysis.AnalysisVisitor;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.MethodSignature;
 
 public class IncompatibleAssignment extends AnalysisVisitor {
     private String currentMethod;
@@ -19,7 +20,7 @@ public class IncompatibleAssignment extends AnalysisVisitor {
     }
 
     private Void visitMethodDecl(JmmNode method, SymbolTable table) {
-        currentMethod = method.get("name");
+        currentMethod = MethodSignature.of(method);
         typeUtils = new TypeUtils(currentMethod, table);
         return null;
     }
@@ -6,6 +6,7 @@ import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp2024.analysis.AnalysisVisitor;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.MethodSignature;
 
 public class UndeclaredMethod extends AnalysisVisitor {
     private TypeUtils typeUtils;
@@ -17,7 +18,7 @@ public class UndeclaredMethod extends AnalysisVisitor {
     }
 
     private Void visitMethodDecl(JmmNode method, SymbolTable table) {
-        typeUtils = new TypeUtils(method.get("name"), table);
+        typeUtils = new TypeUtils(MethodSignature.of(method), table);
         return null;
     }
 
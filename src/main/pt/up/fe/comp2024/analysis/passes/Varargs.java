@@ -4,6 +4,7 @@ import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp2024.analysis.AnalysisVisitor;
 import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.symboltable.MethodSignature;
 
 public class Varargs extends AnalysisVisitor {
     @Override
@@ -21,7 +22,7 @@ public class Varargs extends AnalysisVisitor {
             return null;
         }
 
-        var method = param.getParent().get("name");
+        var method = MethodSignature.of(param.getParent());
 
         if (table.getParameters(method).get(table.getParameters(method).size() - 1).getName().equals(param.get("paramName"))) {
             return null;
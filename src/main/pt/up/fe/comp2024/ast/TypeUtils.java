@@ -4,11 +4,16 @@ import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class TypeUtils {
     private final String INT_TYPE_NAME = "int";
     private final String BOOLEAN_TYPE_NAME = "boolean";
     private final String VOID_TYPE_NAME = "void";
+    private static final String SIGNATURE = "signature";
     private String currentMethod;
     private SymbolTable table;
 
@@ -147,7 +152,7 @@ public class TypeUtils {
         String functionName = functionCall.get("name");
 
         if ((expr.getKind().equals(Kind.THIS.toString()) && table.getSuper().isEmpty()) || getExprType(expr).getName().equals(table.getClassName()) && table.getMethods().contains(functionName)) {
-            return table.getReturnType(functionName);
+            return table.getReturnType(getMethodSignature(functionCall));
         }
 
         JmmNode parent = functionCall.getParent();
@@ -173,6 +178,42 @@ public class TypeUtils {
         return getStmtType(parent);
     }
 
+    /**
+     * Resolves the method of this class called by the given function call from the types of its arguments, caching
+     * the signature in the node.
+     *
+     * @return the signature of the called method, or its name if it is not a method of this class
+     */
+    public String getMethodSignature(JmmNode functionCall) {
+        assert functionCall.getKind().equals(Kind.FUNCTION_CALL.toString());
+
+        if (functionCall.hasAttribute(SIGNATURE)) {
+            return functionCall.get(SIGNATURE);
+        }
+
+        String functionName = functionCall.get("name");
+
+        if (!(table instanceof JmmSymbolTable jmmTable)) {
+            return functionName;
+        }
+
+        // The arguments are only typed when they are needed to choose an overload
+        List<Type> argTypes = jmmTable.isOverloaded(functionName) ? new ArrayList<>() : null;
+        for (int i = 1; i < functionCall.getNumChildren() && argTypes != null; i++) {
+            Type argType = getExprType(functionCall.getChild(i));
+            if (argType == null) {
+                argTypes = null;
+            } else {
+                argTypes.add(argType);
+            }
+        }
+
+        String signature = jmmTable.resolveMethod(functionName, argTypes);
+        functionCall.put(SIGNATURE, signature);
+
+        return signature;
+    }
+
     private Type getNewObjectType(JmmNode newObject) {
         annotate(newObject, "isInstance", true);
         return new Type(newObject.get("name"), false);
@@ -4,6 +4,8 @@ import org.specs.comp.ollir.*;
 import org.specs.comp.ollir.tree.TreeNode;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
 import pt.up.fe.specs.util.classmap.FunctionClassMap;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 import pt.up.fe.specs.util.utilities.StringLines;
@@ -60,6 +62,7 @@ public class JasminGenerator {
             entry("invokestatic", 1),
             entry("invokevirtual", 0),
             entry("ior", -1),
+            entry("ishl", -1),
             entry("ireturn", -1),
             entry("istore", -1),
             entry("isub", -1),
@@ -75,6 +78,7 @@ public class JasminGenerator {
 
     private int currentStack = 0;
     private int maxStack = 0;
+    private int labelNumber = 0;
 
     public JasminGenerator(OllirResult ollirResult) {
         this.ollirResult = ollirResult;
@@ -196,11 +200,17 @@ public class JasminGenerator {
         int locals = maxRegister.getVirtualReg() + 1;
         code.append(TAB).append(".limit locals ").append(locals).append(NL);
 
+        if (CompilerConfig.getRegisterAllocation(ollirResult.getConfig()) >= 0) {
+            reports.add(Report.newLog(Stage.GENERATION, -1, -1, "Method '" + methodName + "': .limit locals " + locals
+                    + ", .limit stack " + this.maxStack + ", frame of " + (locals + this.maxStack) + " slots", null));
+        }
+
         code.append(instructionCode);
         code.append(".end method").append(NL);
 
         this.currentMethod = null;
         this.maxStack = 0;
+        this.labelNumber = 0;
 
         return code.toString();
     }
@@ -229,11 +239,13 @@ public class JasminGenerator {
                 // X = Y ? i
                 if (dest.getName().equals(left.getName())) {
                     // X = X ? i
-                    if ((binaryOp.getOperation().getOpType().equals(OperationType.ADD) && Integer.parseInt(right.getLiteral()) <= 127)
-                            || (binaryOp.getOperation().getOpType().equals(OperationType.SUB) && Integer.parseInt(right.getLiteral()) <= 128)) {
-                        String sign = binaryOp.getOperation().getOpType().equals(OperationType.SUB) ? "-" : "";
+                    OperationType opType = binaryOp.getOperation().getOpType();
+                    long literal = Long.parseLong(right.getLiteral());
+                    long increment = opType.equals(OperationType.SUB) ? -literal : literal;
+                    if ((opType.equals(OperationType.ADD) || opType.equals(OperationType.SUB))
+                            && increment <= 127 && increment >= -128) {
                         this.updateStack("iinc");
-                        code.append("iinc ").append(register).append(" ").append(sign).append(right.getLiteral()).append(NL);
+                        code.append("iinc ").append(register).append(" ").append(increment).append(NL);
                         return code.toString();
                     }
                 }
@@ -326,6 +338,28 @@ public class JasminGenerator {
     private String generateBinaryOp(BinaryOpInstruction binaryOp) {
         StringBuilder code = new StringBuilder();
 
+        // with -o, multiplications of a variable by a power of two are shifts, which give the same result even when
+        // they overflow
+        if (binaryOp.getOperation().getOpType() == OperationType.MUL
+                && CompilerConfig.getOptimize(ollirResult.getConfig())) {
+            Element left = binaryOp.getLeftOperand();
+            Element right = binaryOp.getRightOperand();
+
+            // The variable is shifted by the exponent of the literal, which is on either side
+            boolean isLiteralOnRight = !left.isLiteral() && getShift(right) > 0;
+            boolean isLiteralOnLeft = !right.isLiteral() && getShift(left) > 0;
+            if (isLiteralOnRight || isLiteralOnLeft) {
+                Element operand = isLiteralOnRight ? left : right;
+                int shift = isLiteralOnRight ? getShift(right) : getShift(left);
+                code.append(generators.apply(operand));
+                code.append(generateLiteral(new LiteralElement(String.valueOf(shift), new Type(ElementType.INT32))));
+                code.append("ishl").append(NL);
+
+                this.updateStack("ishl");
+                return code.toString();
+            }
+        }
+
         // load values on the left and on the right
         code.append(generators.apply(binaryOp.getLeftOperand()));
         code.append(generators.apply(binaryOp.getRightOperand()));
@@ -348,6 +382,18 @@ public class JasminGenerator {
         return code.toString();
     }
 
+    /**
+     * @return the exponent of the integer literal, if it is a power of two greater than 1, or else 0
+     */
+    private static int getShift(Element element) {
+        if (!(element instanceof LiteralElement literal) || literal.getType().getTypeOfElement() != ElementType.INT32) {
+            return 0;
+        }
+
+        int n = Integer.parseInt(literal.getLiteral());
+        return n > 1 && Integer.bitCount(n) == 1 ? Integer.numberOfTrailingZeros(n) : 0;
+    }
+
     private String generateUnaryOp(UnaryOpInstruction unaryOp) {
         StringBuilder code = new StringBuilder();
 
@@ -520,29 +566,52 @@ public class JasminGenerator {
 
     private String generateCondBranch(CondBranchInstruction condBranchInstruction) {
         StringBuilder code = new StringBuilder();
+        String label = condBranchInstruction.getLabel();
 
         if (condBranchInstruction instanceof SingleOpCondInstruction singleOpCondInstruction) {
             code.append(generators.apply(singleOpCondInstruction.getCondition()));
-            code.append("ifne ").append(condBranchInstruction.getLabel());
-        } else {
-            // TODO: and (&&) operation
-            OpCondInstruction opCondInstruction = (OpCondInstruction) condBranchInstruction;
-            OpInstruction condition = opCondInstruction.getCondition();
-            code.append(generators.apply(condition.toInstruction()));
-
-            String jump = switch (condition.getOperation().getOpType()) {
-                case LTH -> "iflt ";
-                case LTE -> "ifle ";
-                case GTH -> "ifgt ";
-                case GTE -> "ifge ";
-                case EQ -> "ifeq ";
-                case NEQ -> "ifne ";
-                default -> throw new NotImplementedException(condition.getOperation().getOpType());
-            };
-
-            code.append(jump).append(condBranchInstruction.getLabel());
+            code.append("ifne ").append(label);
+            this.updateStack("if");
+            return code.toString();
         }
 
+        OpInstruction condition = ((OpCondInstruction) condBranchInstruction).getCondition();
+
+        if (condition instanceof UnaryOpInstruction unaryOp && unaryOp.getOperation().getOpType() == OperationType.NOTB) {
+            // jump when the operand is false
+            code.append(generators.apply(unaryOp.getOperand()));
+            code.append("ifeq ").append(label);
+            this.updateStack("if");
+            return code.toString();
+        }
+
+        if (condition instanceof BinaryOpInstruction binaryOp && binaryOp.getOperation().getOpType() == OperationType.ANDB) {
+            // jump on the first false operand, without computing the conjunction
+            String skipLabel = "and_skip_" + this.labelNumber++;
+            code.append(generators.apply(binaryOp.getLeftOperand()));
+            code.append("ifeq ").append(skipLabel).append(NL);
+            this.updateStack("if");
+            code.append(generators.apply(binaryOp.getRightOperand()));
+            code.append("ifne ").append(label).append(NL);
+            this.updateStack("if");
+            code.append(skipLabel).append(":");
+            return code.toString();
+        }
+
+        code.append(generators.apply(condition.toInstruction()));
+
+        String jump = switch (condition.getOperation().getOpType()) {
+            case LTH -> "iflt ";
+            case LTE -> "ifle ";
+            case GTH -> "ifgt ";
+            case GTE -> "ifge ";
+            case EQ -> "ifeq ";
+            case NEQ -> "ifne ";
+            default -> throw new NotImplementedException(condition.getOperation().getOpType());
+        };
+
+        code.append(jump).append(label);
+
         this.updateStack("if");
         return code.toString();
     }
@@ -0,0 +1,262 @@
+package pt.up.fe.comp2024.optimization;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.symboltable.MethodSignature;
+
+import java.util.*;
+
+/**
+ * Propagates the constants assigned to local variables and folds the operations on constants, in the AST.
+ * <p>
+ * A use of a variable is replaced by a constant when the only assignment that reaches it, following the structure of
+ * the statements, assigns that constant. One pass links each use to that assignment and another folds every
+ * expression, from the leaves up. Then, a worklist of the assignments whose value became constant replaces their
+ * uses, and only folds the expressions around each replaced use, which may make other assignments constant, so each
+ * node is only visited again when one of its children changes.
+ * <p>
+ * The assignments of constants that reach the next assignment of their variable directly in the body of the method, or
+ * its end, are removed, since all their uses were replaced. Fields are left as they are, since calls may change them.
+ */
+public class ConstantPropagation {
+
+    private final SymbolTable table;
+    private final Map<JmmNode, List<JmmNode>> uses = new IdentityHashMap<>();
+    private final Deque<JmmNode> worklist = new ArrayDeque<>();
+    private Set<String> variables;
+
+    private int numVisits = 0;
+    private int numFolds = 0;
+    private int numPropagations = 0;
+
+    public ConstantPropagation(SymbolTable table) {
+        this.table = table;
+    }
+
+    /**
+     * @return whether the code changed
+     */
+    public boolean run(JmmNode root) {
+        int numChanges = numFolds + numPropagations;
+
+        for (JmmNode methodDecl : root.getDescendants(Kind.METHOD_DECL)) {
+            runMethod(methodDecl);
+        }
+
+        return numFolds + numPropagations > numChanges;
+    }
+
+    private void runMethod(JmmNode methodDecl) {
+        String signature = MethodSignature.of(methodDecl);
+        variables = new HashSet<>();
+        table.getLocalVariables(signature).forEach(local -> variables.add(local.getName()));
+        table.getParameters(signature).forEach(param -> variables.add(param.getName()));
+        uses.clear();
+
+        Map<String, JmmNode> reaching = new HashMap<>();
+        List<JmmNode> stmts = methodDecl.getChildren().stream()
+                .filter(node -> Kind.fromString(node.getKind()).isStmt())
+                .toList();
+
+        // The assignments that still reach the next assignment of their variable in the body, or its end
+        List<JmmNode> lastAssigns = new ArrayList<>();
+        for (JmmNode stmt : stmts) {
+            if (Kind.ASSIGN_STMT.check(stmt) && reaching.containsKey(stmt.get("name"))) {
+                lastAssigns.add(reaching.get(stmt.get("name")));
+            }
+            linkUses(stmt, reaching);
+        }
+        lastAssigns.addAll(reaching.values());
+
+        stmts.forEach(this::foldAll);
+
+        while (!worklist.isEmpty()) {
+            JmmNode assign = worklist.poll();
+
+            for (JmmNode use : uses.getOrDefault(assign, List.of())) {
+                JmmNode parent = use.getParent();
+                int index = use.getIndexOfSelf();
+                use.replace(assign.getChild(0));
+                numPropagations++;
+                foldAround(parent.getChild(index));
+            }
+        }
+
+        for (JmmNode assign : lastAssigns) {
+            if (isLiteral(assign.getChild(0))) {
+                assign.getParent().removeChild(assign);
+            }
+        }
+    }
+
+    /**
+     * Links each use of a variable in the node to the assignment that reaches it, if there is only one.
+     *
+     * @param reaching the only assignment that reaches the node for each variable, which is updated to the ones that
+     *                 reach the end of the node
+     */
+    private void linkUses(JmmNode node, Map<String, JmmNode> reaching) {
+        switch (Kind.fromString(node.getKind())) {
+            case IF_ELSE_STMT -> {
+                linkUses(node.getChild(0), reaching);
+                Map<String, JmmNode> elseReaching = new HashMap<>(reaching);
+                linkUses(node.getChild(1), reaching);
+                linkUses(node.getChild(2), elseReaching);
+                reaching.entrySet().removeIf(entry -> elseReaching.get(entry.getKey()) != entry.getValue());
+            }
+            case WHILE_STMT -> {
+                // The condition and the start of the body are also reached by the assignments of the body
+                node.getChild(1).getDescendantsAndSelfStream()
+                        .filter(Kind.ASSIGN_STMT::check)
+                        .forEach(assign -> reaching.remove(assign.get("name")));
+                linkUses(node.getChild(0), reaching);
+                linkUses(node.getChild(1), new HashMap<>(reaching));
+            }
+            case ASSIGN_STMT -> {
+                linkUses(node.getChild(0), reaching);
+                String name = node.get("name");
+                if (variables.contains(name)) {
+                    reaching.put(name, node);
+                }
+            }
+            case VAR_REF_EXPR -> {
+                JmmNode assign = reaching.get(node.get("name"));
+                if (assign != null) {
+                    uses.computeIfAbsent(assign, key -> new ArrayList<>()).add(node);
+                }
+            }
+            default -> node.getChildren().forEach(child -> linkUses(child, reaching));
+        }
+    }
+
+    /**
+     * Folds every expression in the node, children first.
+     */
+    private void foldAll(JmmNode node) {
+        for (JmmNode child : List.copyOf(node.getChildren())) {
+            foldAll(child);
+        }
+
+        JmmNode folded = fold(node);
+        if (folded != null) {
+            addConstantAssign(folded);
+        } else if (isLiteral(node)) {
+            addConstantAssign(node);
+        }
+    }
+
+    /**
+     * Folds the expressions around a constant, from the closest one, while they fold.
+     */
+    private void foldAround(JmmNode constant) {
+        while (!addConstantAssign(constant)) {
+            JmmNode folded = fold(constant.getParent());
+            if (folded == null) {
+                return;
+            }
+
+            constant = folded;
+        }
+    }
+
+    /**
+     * Adds the assignment of the constant to the worklist, if it assigns a local variable.
+     *
+     * @return whether the parent of the constant is an assignment
+     */
+    private boolean addConstantAssign(JmmNode constant) {
+        JmmNode parent = constant.getParent();
+        if (!Kind.ASSIGN_STMT.check(parent)) {
+            return false;
+        }
+
+        if (variables.contains(parent.get("name"))) {
+            worklist.add(parent);
+        }
+        return true;
+    }
+
+    /**
+     * Replaces the expression by its value, if its operands are constants.
+     *
+     * @return the constant the expression was replaced by, or null if it was not replaced
+     */
+    private JmmNode fold(JmmNode expr) {
+        numVisits++;
+        JmmNode value = switch (Kind.fromString(expr.getKind())) {
+            case PAREN_EXPR -> isLiteral(expr.getChild(0)) ? expr.getChild(0) : null;
+            case UNARY_EXPR -> Kind.BOOLEAN_LITERAL.check(expr.getChild(0))
+                    ? newLiteral(Kind.BOOLEAN_LITERAL, !Boolean.parseBoolean(expr.getChild(0).get("value")))
+                    : null;
+            case BINARY_EXPR -> foldBinaryExpr(expr);
+            default -> null;
+        };
+
+        if (value == null) {
+            return null;
+        }
+
+        JmmNode parent = expr.getParent();
+        int index = expr.getIndexOfSelf();
+        expr.replace(value);
+        numFolds++;
+
+        return parent.getChild(index);
+    }
+
+    private JmmNode foldBinaryExpr(JmmNode binaryExpr) {
+        JmmNode left = binaryExpr.getChild(0);
+        JmmNode right = binaryExpr.getChild(1);
+        if (!isLiteral(left) || !left.getKind().equals(right.getKind())) {
+            return null;
+        }
+
+        String op = binaryExpr.get("op");
+        if (op.equals("&&")) {
+            boolean value = Boolean.parseBoolean(left.get("value")) && Boolean.parseBoolean(right.get("value"));
+            return newLiteral(Kind.BOOLEAN_LITERAL, value);
+        }
+
+        int leftValue = Integer.parseInt(left.get("value"));
+        int rightValue = Integer.parseInt(right.get("value"));
+        return switch (op) {
+            case "*" -> newLiteral(Kind.INTEGER_LITERAL, leftValue * rightValue);
+            // Left for the program to throw
+            case "/" -> rightValue == 0 ? null : newLiteral(Kind.INTEGER_LITERAL, leftValue / rightValue);
+            case "+" -> newLiteral(Kind.INTEGER_LITERAL, leftValue + rightValue);
+            case "-" -> newLiteral(Kind.INTEGER_LITERAL, leftValue - rightValue);
+            case "<" -> newLiteral(Kind.BOOLEAN_LITERAL, leftValue < rightValue);
+            default -> throw new RuntimeException("Unhandled op: " + op);
+        };
+    }
+
+    private static JmmNode newLiteral(Kind kind, Object value) {
+        JmmNode literal = new JmmNodeImpl(kind.toString());
+        literal.put("value", value.toString());
+        return literal;
+    }
+
+    private static boolean isLiteral(JmmNode node) {
+        return Kind.check(node, Kind.INTEGER_LITERAL, Kind.BOOLEAN_LITERAL);
+    }
+
+    /**
+     * @return the number of times an expression was checked for folding
+     */
+    public int getNumVisits() {
+        return numVisits;
+    }
+
+    public int getNumFolds() {
+        return numFolds;
+    }
+
+    /**
+     * @return the number of uses of variables replaced by constants
+     */
+    public int getNumPropagations() {
+        return numPropagations;
+    }
+}
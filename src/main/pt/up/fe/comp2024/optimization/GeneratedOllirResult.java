@@ -0,0 +1,79 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.ClassUnit;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.specs.util.SpecsCollections;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An {@link OllirResult} whose class was built directly from the AST instead of parsed from OLLIR code. The code is
+ * only printed when it is requested.
+ */
+public class GeneratedOllirResult extends OllirResult {
+
+    // OllirResult always parses code when created, so it is given the smallest possible class
+    private static final String EMPTY_CLASS = "Empty {}";
+
+    private final ClassUnit ollirClass;
+    private final SymbolTable symbolTable;
+    private final List<Report> reports;
+    private final Map<String, String> config;
+
+    private String ollirCode;
+
+    public GeneratedOllirResult(JmmSemanticsResult semanticsResult, ClassUnit ollirClass, List<Report> reports) {
+        super(EMPTY_CLASS, semanticsResult.getConfig());
+
+        this.ollirClass = ollirClass;
+        this.symbolTable = semanticsResult.getSymbolTable();
+        this.reports = SpecsCollections.concat(semanticsResult.getReports(), reports);
+        this.config = semanticsResult.getConfig();
+    }
+
+    /**
+     * Creates a result with the given class instead of the one of the given result, such as an optimized version of it,
+     * and with the given reports after the ones of that result.
+     */
+    public GeneratedOllirResult(OllirResult ollirResult, ClassUnit ollirClass, List<Report> reports) {
+        super(EMPTY_CLASS, ollirResult.getConfig());
+
+        this.ollirClass = ollirClass;
+        this.symbolTable = ollirResult.getSymbolTable();
+        this.reports = SpecsCollections.concat(ollirResult.getReports(), reports);
+        this.config = ollirResult.getConfig();
+    }
+
+    @Override
+    public String getOllirCode() {
+        if (ollirCode == null) {
+            ollirCode = OllirPrinter.print(ollirClass);
+        }
+
+        return ollirCode;
+    }
+
+    @Override
+    public ClassUnit getOllirClass() {
+        return ollirClass;
+    }
+
+    @Override
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    @Override
+    public List<Report> getReports() {
+        return reports;
+    }
+
+    @Override
+    public Map<String, String> getConfig() {
+        return config;
+    }
+}
@@ -1,35 +1,33 @@
 package pt.up.fe.comp2024.optimization;
 
+import org.specs.comp.ollir.ClassUnit;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.comp.jmm.ollir.JmmOptimization;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.optimization.ir.*;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 public class JmmOptimizationImpl implements JmmOptimization {
 
     @Override
     public OllirResult toOllir(JmmSemanticsResult semanticsResult) {
-        var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
-        var ollirCode = visitor.visit(semanticsResult.getRootNode());
+        var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable(), new NamingContext());
+        var ollirClass = visitor.buildClassUnit(semanticsResult.getRootNode(),
+                CompilerConfig.getThreads(semanticsResult.getConfig()));
 
-        return new OllirResult(semanticsResult, ollirCode, Collections.emptyList());
+        return new GeneratedOllirResult(semanticsResult, ollirClass, Collections.emptyList());
     }
 
     @Override
     public JmmSemanticsResult optimize(JmmSemanticsResult semanticsResult) {
         if (Boolean.parseBoolean(semanticsResult.getConfig().get("optimize")) || semanticsResult.getConfig().containsKey("registerAllocation")) {
-            var constantPropagationVisitor = new OllirConstantPropagationVisitor();
-            var constantFoldingVisitor = new OllirConstantFoldingVisitor();
-
-            while (true) {
-                boolean constantPropagated = constantPropagationVisitor.visit(semanticsResult.getRootNode());
-                boolean constantFolded = constantFoldingVisitor.visit(semanticsResult.getRootNode());
-
-                if (!constantPropagated && !constantFolded) {
-                    break;
-                }
-            }
+            new ConstantPropagation(semanticsResult.getSymbolTable()).run(semanticsResult.getRootNode());
         }
 
         return semanticsResult;
@@ -37,6 +35,48 @@ public class JmmOptimizationImpl implements JmmOptimization {
 
     @Override
     public OllirResult optimize(OllirResult ollirResult) {
-        return ollirResult;
+        boolean optimize = CompilerConfig.getOptimize(ollirResult.getConfig());
+        int maxRegisters = CompilerConfig.getRegisterAllocation(ollirResult.getConfig());
+        if (!optimize && maxRegisters < 0) {
+            return ollirResult;
+        }
+
+        IrClass irClass = OllirToIr.convert(ollirResult.getOllirClass());
+        if (optimize) {
+            MethodInlining.run(irClass);
+            irClass.getMethods().forEach(ConditionalConstantPropagation::run);
+            irClass.getMethods().forEach(AlgebraicSimplification::run);
+            irClass.getMethods().forEach(CommonSubexpressionElimination::run);
+            irClass.getMethods().forEach(LoopInvariantCodeMotion::run);
+            irClass.getMethods().forEach(CopyPropagation::run);
+            irClass.getMethods().forEach(DeadCodeElimination::run);
+            irClass.getMethods().forEach(BlockLayout::run);
+        }
+
+        ClassUnit ollirClass = IrToOllir.convert(irClass);
+        List<Report> reports = new ArrayList<>();
+        if (maxRegisters >= 0) {
+            allocateRegisters(irClass, ollirClass, maxRegisters, reports);
+        }
+
+        return new GeneratedOllirResult(ollirResult, ollirClass, reports);
+    }
+
+    /**
+     * Gives each method as few registers as possible, reporting an error for each one that needs more than the
+     * maximum, unless it is 0.
+     */
+    private void allocateRegisters(IrClass irClass, ClassUnit ollirClass, int maxRegisters, List<Report> reports) {
+        for (int i = 0; i < irClass.getMethods().size(); i++) {
+            IrMethod method = irClass.getMethods().get(i);
+            RegisterAllocator allocator = RegisterAllocator.of(method);
+            allocator.assignTo(ollirClass.getMethod(i));
+
+            int numRegisters = allocator.getNumRegisters();
+            if (maxRegisters > 0 && numRegisters > maxRegisters) {
+                reports.add(Report.newError(Stage.OPTIMIZATION, -1, -1, "Method '" + method.getName() + "' needs "
+                        + numRegisters + " registers, but at most " + maxRegisters + " were allowed", null));
+            }
+        }
     }
 }
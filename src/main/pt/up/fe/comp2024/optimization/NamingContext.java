@@ -0,0 +1,92 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.ArrayOperand;
+import org.specs.comp.ollir.Element;
+import org.specs.comp.ollir.Operand;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+
+import java.util.*;
+
+/**
+ * The names of the temporaries and labels created while generating the OLLIR code of one compilation.
+ * <p>
+ * Numbering restarts at every method, so the code of a method does not depend on the methods or programs compiled
+ * before it. Each compilation has its own context, which is never shared, so compilations running in parallel do not
+ * race on the counters.
+ * <p>
+ * A temporary holds a value that is used exactly once. Once released after that use, later temporaries of the same
+ * type take its name, so a method needs as many locals for temporaries as the most it keeps alive at the same time.
+ */
+public class NamingContext {
+
+    private static final String TEMP_PREFIX = "tmp";
+
+    private final Set<String> reservedNames = new HashSet<>();
+    private final Map<String, Type> liveTemps = new HashMap<>();
+    private final Map<Type, Deque<String>> freeTemps = new HashMap<>();
+    private int tempNumber;
+    private int ifNumber;
+    private int whileNumber;
+    private int fillNumber;
+
+    /**
+     * Restarts the numbering for a new method.
+     *
+     * @param reservedNames the names of the variables of the method, which temporaries must not take
+     */
+    public void enterMethod(Set<String> reservedNames) {
+        this.reservedNames.clear();
+        this.reservedNames.addAll(reservedNames);
+        liveTemps.clear();
+        freeTemps.clear();
+        tempNumber = 0;
+        ifNumber = 0;
+        whileNumber = 0;
+        fillNumber = 0;
+    }
+
+    public String getTemp(Type type) {
+        Deque<String> free = freeTemps.get(type);
+        String temp = free == null || free.isEmpty() ? newTemp() : free.pop();
+        liveTemps.put(temp, type);
+
+        return temp;
+    }
+
+    private String newTemp() {
+        String temp;
+        do {
+            temp = TEMP_PREFIX + tempNumber++;
+        } while (reservedNames.contains(temp));
+
+        return temp;
+    }
+
+    /**
+     * Releases the temporaries of an operand, once all the operands of the instruction that uses it are computed.
+     */
+    public void release(Element operand) {
+        if (operand instanceof ArrayOperand arrayOperand) {
+            arrayOperand.getIndexOperands().forEach(this::release);
+        }
+
+        if (operand instanceof Operand named) {
+            Type type = liveTemps.remove(named.getName());
+            if (type != null) {
+                freeTemps.computeIfAbsent(type, key -> new ArrayDeque<>()).push(named.getName());
+            }
+        }
+    }
+
+    public String getIfNumber() {
+        return String.valueOf(ifNumber++);
+    }
+
+    public String getWhileNumber() {
+        return String.valueOf(whileNumber++);
+    }
+
+    public String getFillNumber() {
+        return String.valueOf(fillNumber++);
+    }
+}
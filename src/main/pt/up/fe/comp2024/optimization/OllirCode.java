@@ -0,0 +1,36 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.Instruction;
+import org.specs.comp.ollir.Method;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The append-only buffer where the instructions of a method are written while its code is generated.
+ * <p>
+ * Instructions go straight to the method, in the order they are added. A label is attached to the next instruction
+ * added after it, as in OLLIR code.
+ */
+public class OllirCode {
+
+    private final Method method;
+    private final List<String> pendingLabels = new ArrayList<>();
+
+    public OllirCode(Method method) {
+        this.method = method;
+    }
+
+    public void add(Instruction instruction) {
+        for (String label : pendingLabels) {
+            method.addLabel(label, instruction);
+        }
+        pendingLabels.clear();
+
+        method.addInstr(instruction);
+    }
+
+    public void addLabel(String label) {
+        pendingLabels.add(label);
+    }
+}
@@ -1,30 +1,37 @@
 package pt.up.fe.comp2024.optimization;
 
-import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import org.specs.comp.ollir.*;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.TypeUtils;
 
+import java.util.*;
+
 import static pt.up.fe.comp2024.ast.Kind.*;
 
 /**
- * Generates OLLIR code from JmmNodes that are expressions.
+ * Generates OLLIR instructions from JmmNodes that are expressions.
+ * <p>
+ * The instructions that compute an expression are written to the code of the method, given to each visit, and the
+ * visit returns only the operand with the value of the expression.
  */
-public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult> {
+public class OllirExprGeneratorVisitor extends AJmmVisitor<OllirCode, Element> {
+
+    // A loop takes about as much code as storing 5 elements one by one
+    private static final int FILL_LOOP_MIN = 8;
 
-    private static final String ARRAY_INT_TYPE = ".array.i32";
-    private static final String ASSIGN = ":=";
-    private static final String END_STMT = ";\n";
-    private static final String INT_TYPE = ".i32";
-    private static final String SPACE = " ";
     private final SymbolTable table;
     private final TypeUtils typeUtils;
+    private final NamingContext naming;
+
+    private Set<String> readOnlyVarargs = Set.of();
+    private final Map<JmmNode, Operand> hoistedVarargs = new IdentityHashMap<>();
 
-    public OllirExprGeneratorVisitor(SymbolTable table) {
+    public OllirExprGeneratorVisitor(SymbolTable table, NamingContext naming) {
         this.table = table;
+        this.naming = naming;
         this.typeUtils = new TypeUtils("", table);
     }
 
@@ -32,6 +39,14 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         typeUtils.setCurrentMethod(currentMethod);
     }
 
+    /**
+     * @param readOnlyVarargs the signatures of the methods that only read their varargs array, as found by
+     *                        {@link ReadOnlyVarargs}
+     */
+    public void setReadOnlyVarargs(Set<String> readOnlyVarargs) {
+        this.readOnlyVarargs = readOnlyVarargs;
+    }
+
     @Override
     protected void buildVisitor() {
         addVisit(PAREN_EXPR, this::visitParenExpr);
@@ -51,284 +66,527 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         setDefaultVisit(this::defaultVisit);
     }
 
-    private OllirExprResult visitParenExpr(JmmNode parenExpr, Void unused) {
-        JmmNode expr = parenExpr.getChild(0);
-        return visit(expr);
+    /**
+     * Generates the value assigned to a local variable. The last operation of the value is assigned directly, without
+     * a temporary.
+     *
+     * @return the right-hand side of the assignment
+     */
+    public Instruction visitAssignedValue(JmmNode expr, OllirCode code) {
+        if (PAREN_EXPR.check(expr)) {
+            return visitAssignedValue(expr.getJmmChild(0), code);
+        }
+
+        if (BINARY_EXPR.check(expr) && !typeUtils.getExprType(expr).getName().equals(typeUtils.getBooleanTypeName())) {
+            return buildOperation(expr, code);
+        }
+
+        if (FUNCTION_CALL.check(expr)) {
+            return buildCall(expr, code);
+        }
+
+        if (LENGTH.check(expr)) {
+            return buildLength(expr, code);
+        }
+
+        if (NEW_ARRAY.check(expr)) {
+            return buildNewArray(expr, code);
+        }
+
+        if (UNARY_EXPR.check(expr)) {
+            return buildNot(expr, code);
+        }
+
+        Element value = visit(expr, code);
+        naming.release(value);
+
+        return new SingleOpInstruction(value);
+    }
+
+    /**
+     * Generates an expression whose value is a variable or a literal, as needed by the arguments of calls and the
+     * indexes of arrays. Array accesses are only used directly by operations, assignments and returns.
+     */
+    public Element visitSimpleOperand(JmmNode expr, OllirCode code) {
+        return toSimpleOperand(visit(expr, code), code);
+    }
+
+    private Element toSimpleOperand(Element operand, OllirCode code) {
+        if (operand instanceof ArrayOperand) {
+            naming.release(operand);
+            return toTemp(new SingleOpInstruction(operand), typeUtils.getIntType(), code);
+        }
+
+        return operand;
+    }
+
+    /**
+     * Keeps an array access in a temporary when the code evaluated after it, and before its use, calls a method, which
+     * could change the array.
+     */
+    private Element keepBefore(Element operand, JmmNode evaluatedAfter, OllirCode code) {
+        if (operand instanceof ArrayOperand && hasCalls(evaluatedAfter)) {
+            return toSimpleOperand(operand, code);
+        }
+
+        return operand;
+    }
+
+    private boolean hasCalls(JmmNode expr) {
+        if (FUNCTION_CALL.check(expr) || NEW_OBJECT.check(expr)) {
+            return true;
+        }
+
+        for (JmmNode child : expr.getChildren()) {
+            if (hasCalls(child)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Assigns the value of an instruction to a new temporary.
+     *
+     * @return the temporary
+     */
+    private Operand toTemp(Instruction value, Type type, OllirCode code) {
+        String temp = naming.getTemp(type);
+        code.add(new AssignInstruction(OptUtils.toOperand(temp, type), OptUtils.toOllirType(type), value));
+
+        return OptUtils.toOperand(temp, type);
     }
 
-    private OllirExprResult visitArrayAccess(JmmNode arrayAccess, Void unused) {
-        StringBuilder code = new StringBuilder();
-        StringBuilder computation = new StringBuilder();
+    private Element visitParenExpr(JmmNode parenExpr, OllirCode code) {
+        JmmNode expr = parenExpr.getChild(0);
+        return visit(expr, code);
+    }
 
+    private Element visitArrayAccess(JmmNode arrayAccess, OllirCode code) {
         JmmNode array = arrayAccess.getChild(0);
         JmmNode index = arrayAccess.getChild(1);
 
+        Element arrayResult = visit(array, code);
+        Element indexResult = visitSimpleOperand(index, code);
 
-        OllirExprResult arrayResult= visit(array);
-        OllirExprResult indexResult = visit(index);
+        // The access is only done by the instruction that uses it
+        return OptUtils.toArrayOperand(arrayResult, indexResult);
+    }
 
-        code.append(OptUtils.getTemp()).append(INT_TYPE);
+    private Element visitFunctionCall(JmmNode functionCall, OllirCode code) {
+        CallInstruction call = buildCall(functionCall, code);
 
-        computation.append(arrayResult.getComputation());
-        computation.append(indexResult.getComputation());
-        computation.append(code).append(SPACE).append(ASSIGN).append(INT_TYPE).append(SPACE);
-        computation.append(arrayResult.getCode()).append(ARRAY_INT_TYPE);
-        computation.append("[").append(indexResult.getCode()).append("]").append(INT_TYPE).append(END_STMT);
+        if (SIMPLE_STMT.check(functionCall.getParent())) {
+            code.add(call);
+            return null;
+        }
 
-        return new OllirExprResult(code.toString(), computation);
+        return toTemp(call, typeUtils.getExprType(functionCall), code);
     }
 
-    private OllirExprResult visitFunctionCall(JmmNode functionCall, Void unused) {
-        StringBuilder code = new StringBuilder();
-        StringBuilder computation = new StringBuilder();
-
+    private CallInstruction buildCall(JmmNode functionCall, OllirCode code) {
         JmmNode child = functionCall.getChild(0);
-        String type = OptUtils.toOllirType(typeUtils.getExprType(functionCall));
+        Type type = typeUtils.getExprType(functionCall);
 
-        OllirExprResult exprResult = visit(child);
-        computation.append(exprResult.getComputation());
+        Element callerResult = visit(child, code);
 
-        StringBuilder argumentsCode = new StringBuilder();
+        List<Element> arguments = new ArrayList<>();
 
         int argumentsNumber = functionCall.getNumChildren() - 1;
         Type lastArgumentType = typeUtils.getExprType(functionCall.getChildren().get(argumentsNumber));
 
         if (!functionCall.hasAttribute("hasVarargs") || !functionCall.getObject("hasVarargs", Boolean.class) || lastArgumentType.isArray()) {
             for (int i = 1; i < functionCall.getNumChildren(); i++) {
-                OllirExprResult result = visit(functionCall.getJmmChild(i));
-                computation.append(result.getComputation());
-                argumentsCode.append(", ").append(result.getCode());
+                arguments.add(visitSimpleOperand(functionCall.getJmmChild(i), code));
+            }
+        } else if (hoistedVarargs.containsKey(functionCall)) {
+            int paramsNumber = table.getParameters(typeUtils.getMethodSignature(functionCall)).size();
+            for (int i = 1; i < paramsNumber; i++) {
+                arguments.add(visitSimpleOperand(functionCall.getJmmChild(i), code));
             }
         } else {
-            int paramsNumber = table.getParameters(functionCall.get("name")).size();
+            int paramsNumber = table.getParameters(typeUtils.getMethodSignature(functionCall)).size();
             int arraySize = argumentsNumber - paramsNumber + 1;
-            String arrayTemp = OptUtils.getTemp();
+            Type arrayType = typeUtils.getIntArrayType();
 
-            computation.append(arrayTemp).append(ARRAY_INT_TYPE).append(SPACE);
-            computation.append(ASSIGN).append(ARRAY_INT_TYPE).append(SPACE);
-            computation.append("new(array, ").append(arraySize).append(INT_TYPE).append(")").append(ARRAY_INT_TYPE).append(END_STMT);
+            Operand array = toTemp(OptUtils.newArray(OptUtils.toLiteral(arraySize, typeUtils.getIntType())), arrayType, code);
 
             for (int i = 1; i < paramsNumber; i++) {
-                OllirExprResult result = visit(functionCall.getJmmChild(i));
-                computation.append(result.getComputation());
-                argumentsCode.append(", ").append(result.getCode());
+                arguments.add(visitSimpleOperand(functionCall.getJmmChild(i), code));
             }
 
             for (int i = 0; i < arraySize; i++) {
                 JmmNode arrayElement = functionCall.getChild(1 + i + argumentsNumber - arraySize);
-                OllirExprResult arrayElementResult = visit(arrayElement);
-                computation.append(arrayElementResult.getComputation());
-                computation.append(arrayTemp).append("[").append(i).append(INT_TYPE).append("]").append(INT_TYPE).append(SPACE);
-                computation.append(ASSIGN).append(INT_TYPE).append(SPACE).append(arrayElementResult.getCode()).append(END_STMT);
+                Element arrayElementResult = visit(arrayElement, code);
+                naming.release(arrayElementResult);
+                code.add(OptUtils.arrayStore(array.getName(), OptUtils.toLiteral(i, typeUtils.getIntType()), arrayElementResult));
             }
 
-            argumentsCode.append(", ").append(arrayTemp).append(ARRAY_INT_TYPE);
+            arguments.add(array);
         }
 
-        if (!functionCall.getParent().getKind().equals(SIMPLE_STMT.toString())) {
-            code.append(OptUtils.getTemp()).append(type);
-            computation.append(code).append(SPACE).append(ASSIGN).append(type).append(SPACE);
+        naming.release(callerResult);
+        arguments.forEach(naming::release);
+
+        // The hoisted array is only released after its loop
+        if (hoistedVarargs.containsKey(functionCall)) {
+            arguments.add(hoistedVarargs.get(functionCall));
         }
 
+        boolean isStatement = SIMPLE_STMT.check(functionCall.getParent());
+        Element methodName = OptUtils.toMethodName(functionCall.get("name"));
+
         if (child.hasAttribute("isInstance") && child.getObject("isInstance", Boolean.class)) {
-            computation.append("invokevirtual(");
-        } else {
-            computation.append("invokestatic(");
+            return new CallInstruction(CallType.invokevirtual, callerResult, methodName, arguments,
+                    OptUtils.toOllirType(type), isStatement);
         }
 
-        computation.append(exprResult.getCode()).append(", ");
-        computation.append("\"").append(functionCall.get("name")).append("\"");
-        computation.append(argumentsCode).append(")");
-        computation.append(OptUtils.toOllirType(typeUtils.getExprType(functionCall)));
+        // Static calls only name the class, like the OLLIR parser
+        Operand caller = new Operand(((Operand) callerResult).getName(),
+                new ClassType(ElementType.CLASS, table.getClassName()));
+        return new CallInstruction(CallType.invokestatic, caller, methodName, arguments,
+                OptUtils.toOllirType(type), isStatement);
+    }
+
+    /**
+     * Builds, before a loop, the varargs arrays of the calls in it whose packed arguments are integer literals and
+     * whose method only reads the array. Each array is then built once instead of at every iteration, and is shared by
+     * the calls of the loop that pack the same values.
+     *
+     * @return the hoisted arrays, to release once the loop is over
+     */
+    public List<Operand> hoistVarargs(JmmNode loop, OllirCode code) {
+        Map<List<String>, Operand> arrays = new LinkedHashMap<>();
+
+        for (JmmNode functionCall : loop.getDescendants(FUNCTION_CALL)) {
+            List<JmmNode> packed = getConstantVarargs(functionCall);
+            if (packed == null) {
+                continue;
+            }
 
-        if (!functionCall.getParent().getKind().equals(SIMPLE_STMT.toString())) {
-            computation.append(END_STMT);
+            List<String> values = packed.stream().map(argument -> argument.get("value")).toList();
+            Operand array = arrays.get(values);
+            if (array == null) {
+                array = toTemp(OptUtils.newArray(OptUtils.toLiteral(packed.size(), typeUtils.getIntType())),
+                        typeUtils.getIntArrayType(), code);
+                fillArray(array.getName(), packed, code);
+                arrays.put(values, array);
+            }
+            hoistedVarargs.put(functionCall, array);
         }
 
-        return new OllirExprResult(code.toString(), computation);
+        return new ArrayList<>(arrays.values());
     }
 
-    private OllirExprResult visitNewObject(JmmNode newObject, Void unused) {
-        StringBuilder code = new StringBuilder();
-        StringBuilder computation = new StringBuilder();
+    /**
+     * @return the arguments packed in the varargs array of the call, or null if they are not all integer literals or
+     * if its method does not only read the array
+     */
+    private List<JmmNode> getConstantVarargs(JmmNode functionCall) {
+        if (!functionCall.hasAttribute("hasVarargs") || !functionCall.getObject("hasVarargs", Boolean.class)) {
+            return null;
+        }
 
-        String temp = OptUtils.getTemp();
-        Type type = typeUtils.getExprType(newObject);
-        String ollirType = OptUtils.toOllirType(type);
+        String signature = typeUtils.getMethodSignature(functionCall);
+        int argumentsNumber = functionCall.getNumChildren() - 1;
+        if (!readOnlyVarargs.contains(signature)
+                || typeUtils.getExprType(functionCall.getChild(argumentsNumber)).isArray()) {
+            return null;
+        }
 
-        code.append(temp).append(ollirType);
+        int paramsNumber = table.getParameters(signature).size();
+        List<JmmNode> packed = functionCall.getChildren().subList(paramsNumber, argumentsNumber + 1);
+        if (!packed.stream().allMatch(INTEGER_LITERAL::check)) {
+            return null;
+        }
+
+        return packed;
+    }
+
+    private Element visitNewObject(JmmNode newObject, OllirCode code) {
+        Type type = typeUtils.getExprType(newObject);
 
-        computation.append(temp).append(ollirType).append(SPACE).append(ASSIGN).append(ollirType).append(SPACE);
-        computation.append("new(").append(type.getName()).append(")").append(ollirType).append(END_STMT);
-        computation.append("invokespecial(").append(temp).append(ollirType).append(", \"<init>\").V").append(END_STMT);
+        Operand className = new Operand(type.getName(), OptUtils.toOllirType(type));
+        Operand object = toTemp(new CallInstruction(CallType.NEW, className, new ArrayList<>(), OptUtils.toOllirType(type)),
+                type, code);
+        code.add(new CallInstruction(CallType.invokespecial, object,
+                OptUtils.toMethodName("<init>"), new ArrayList<>(), new org.specs.comp.ollir.Type(ElementType.VOID), true));
 
-        return new OllirExprResult(code.toString(), computation);
+        return object;
     }
 
-    private OllirExprResult visitNewArray(JmmNode newArray, Void unused) {
-        StringBuilder code = new StringBuilder();
-        StringBuilder computation = new StringBuilder();
+    private Element visitNewArray(JmmNode newArray, OllirCode code) {
+        return toTemp(buildNewArray(newArray, code), typeUtils.getIntArrayType(), code);
+    }
 
+    private CallInstruction buildNewArray(JmmNode newArray, OllirCode code) {
         JmmNode expr = newArray.getChild(0);
-        OllirExprResult result = visit(expr);
+        Element result = visitSimpleOperand(expr, code);
+        naming.release(result);
+
+        return OptUtils.newArray(result);
+    }
 
-        code.append(OptUtils.getTemp()).append(ARRAY_INT_TYPE);
+    private Element visitArray(JmmNode array, OllirCode code) {
+        Type arrayType = typeUtils.getIntArrayType();
+        Operand arrayTemp = toTemp(OptUtils.newArray(OptUtils.toLiteral(array.getNumChildren(), typeUtils.getIntType())),
+                arrayType, code);
 
-        computation.append(result.getComputation());
-        computation.append(code).append(SPACE).append(ASSIGN).append(ARRAY_INT_TYPE).append(SPACE);
-        computation.append("new(array, ").append(result.getCode()).append(")").append(ARRAY_INT_TYPE).append(END_STMT);
+        fillArray(arrayTemp.getName(), array.getChildren(), code);
 
-        return new OllirExprResult(code.toString(), computation);
+        return arrayTemp;
     }
 
-    private OllirExprResult visitArray(JmmNode array, Void unused) {
-        StringBuilder code = new StringBuilder();
-        StringBuilder computation = new StringBuilder();
-
-        String arrayTemp = OptUtils.getTemp();
-        int arraySize = array.getNumChildren();
+    /**
+     * Stores the elements of an array literal in a new array, which already holds zeros.
+     * <p>
+     * Zeros are not stored, and runs of at least {@link #FILL_LOOP_MIN} integer literals that grow by the same step,
+     * such as {@code 7, 7, 7} or {@code 1, 3, 5}, are stored by a loop instead of one store each.
+     */
+    public void fillArray(String array, List<JmmNode> elements, OllirCode code) {
+        Type intType = typeUtils.getIntType();
 
-        code.append(arrayTemp).append(ARRAY_INT_TYPE);
+        int i = 0;
+        while (i < elements.size()) {
+            Integer value = getIntegerLiteral(elements.get(i));
+            if (value == null) {
+                Element result = visit(elements.get(i), code);
+                naming.release(result);
+                code.add(OptUtils.arrayStore(array, OptUtils.toLiteral(i, intType), result));
+                i++;
+                continue;
+            }
 
-        computation.append(code).append(SPACE).append(ASSIGN).append(ARRAY_INT_TYPE).append(SPACE);
-        computation.append("new(array, ").append(arraySize).append(INT_TYPE).append(")").append(ARRAY_INT_TYPE).append(END_STMT);
+            int end = i + 1;
+            long step = 0;
+            if (end < elements.size() && getIntegerLiteral(elements.get(end)) != null) {
+                step = (long) getIntegerLiteral(elements.get(end)) - value;
+                while (end < elements.size() && getIntegerLiteral(elements.get(end)) != null
+                        && (long) getIntegerLiteral(elements.get(end)) - getIntegerLiteral(elements.get(end - 1)) == step) {
+                    end++;
+                }
+            }
 
-        for (int i = 0; i < array.getChildren().size(); i++) {
-            JmmNode elem = array.getChild(i);
-            OllirExprResult result = visit(elem);
+            if (value == 0 && step == 0) {
+                i = end;
+            } else if (end - i >= FILL_LOOP_MIN) {
+                buildFillLoop(array, i, end, value, (int) step, code);
+                i = end;
+            } else {
+                if (value != 0) {
+                    code.add(OptUtils.arrayStore(array, OptUtils.toLiteral(i, intType),
+                            OptUtils.toLiteral(value, intType)));
+                }
+                i++;
+            }
+        }
+    }
 
-            computation.append(result.getComputation());
-            computation.append(arrayTemp).append("[").append(i).append(INT_TYPE).append("]").append(INT_TYPE).append(SPACE);
-            computation.append(ASSIGN).append(INT_TYPE).append(SPACE);
-            computation.append(result.getCode()).append(END_STMT);
+    /**
+     * @return the value of an integer literal, or null if the node is not one or its value does not fit an int
+     */
+    private static Integer getIntegerLiteral(JmmNode node) {
+        if (!INTEGER_LITERAL.check(node)) {
+            return null;
         }
 
-        return new OllirExprResult(code.toString(), computation);
+        try {
+            return Integer.parseInt(node.get("value"));
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 
-    private OllirExprResult visitLength(JmmNode length, Void unused) {
-        StringBuilder code = new StringBuilder();
-        StringBuilder computation = new StringBuilder();
+    /**
+     * Stores the values {@code first, first + step, ...} in the positions from start to end, exclusive.
+     */
+    private void buildFillLoop(String array, int start, int end, int first, int step, OllirCode code) {
+        Type intType = typeUtils.getIntType();
+        String label = "array_fill_" + naming.getFillNumber();
+
+        Operand index = toTemp(new SingleOpInstruction(OptUtils.toLiteral(start, intType)), intType, code);
+        Element value = step == 0 ? OptUtils.toLiteral(first, intType)
+                : toTemp(new SingleOpInstruction(OptUtils.toLiteral(first, intType)), intType, code);
+
+        code.addLabel(label);
+        code.add(OptUtils.arrayStore(array, index, value));
+        code.add(new AssignInstruction(index, OptUtils.toOllirType(intType), new BinaryOpInstruction(index,
+                new Operation(OperationType.ADD, OptUtils.toOllirType(intType)), OptUtils.toLiteral(1, intType))));
+        if (step != 0) {
+            code.add(new AssignInstruction(value, OptUtils.toOllirType(intType), new BinaryOpInstruction(value,
+                    new Operation(OperationType.ADD, OptUtils.toOllirType(intType)), OptUtils.toLiteral(step, intType))));
+        }
+        code.add(OptUtils.branch(new BinaryOpInstruction(index,
+                new Operation(OperationType.LTH, OptUtils.toOllirType(typeUtils.getBooleanType())),
+                OptUtils.toLiteral(end, intType)), label));
 
-        JmmNode expr = length.getChild(0);
-        OllirExprResult result = visit(expr);
+        naming.release(index);
+        naming.release(value);
+    }
 
-        code.append(OptUtils.getTemp()).append(INT_TYPE);
+    private Element visitLength(JmmNode length, OllirCode code) {
+        return toTemp(buildLength(length, code), typeUtils.getIntType(), code);
+    }
 
-        computation.append(result.getComputation());
-        computation.append(code).append(SPACE).append(ASSIGN).append(INT_TYPE).append(SPACE);
-        computation.append("arraylength(").append(result.getCode()).append(")").append(INT_TYPE).append(END_STMT);
+    private CallInstruction buildLength(JmmNode length, OllirCode code) {
+        JmmNode expr = length.getChild(0);
+        Element result = visit(expr, code);
+        naming.release(result);
 
-        return new OllirExprResult(code.toString(), computation);
+        return new CallInstruction(CallType.arraylength, result, OptUtils.toOllirType(typeUtils.getIntType()));
     }
 
-    private OllirExprResult visitUnaryExpr(JmmNode unaryExpr, Void unused) {
-        StringBuilder code = new StringBuilder();
-        StringBuilder computation = new StringBuilder();
+    private Element visitUnaryExpr(JmmNode unaryExpr, OllirCode code) {
+        return toTemp(buildNot(unaryExpr, code), typeUtils.getBooleanType(), code);
+    }
 
-        String booleanType = OptUtils.toOllirType(typeUtils.getBooleanType());
+    private UnaryOpInstruction buildNot(JmmNode unaryExpr, OllirCode code) {
+        Type booleanType = typeUtils.getBooleanType();
         JmmNode expr = unaryExpr.getChild(0);
-        OllirExprResult result = visit(expr);
+        Element result = visit(expr, code);
+        naming.release(result);
 
-        code.append(OptUtils.getTemp()).append(booleanType);
+        return new UnaryOpInstruction(new Operation(OperationType.NOTB, OptUtils.toOllirType(booleanType)), result);
+    }
+
+    private Element visitBinaryExpr(JmmNode binaryExpr, OllirCode code) {
+        Type resType = typeUtils.getExprType(binaryExpr);
 
-        computation.append(result.getComputation());
-        computation.append(code).append(SPACE).append(ASSIGN).append(booleanType).append(SPACE);
-        computation.append("!").append(booleanType).append(SPACE).append(result.getCode()).append(END_STMT);
+        if (resType.getName().equals(typeUtils.getBooleanTypeName())) {
+            return visitConditionValue(binaryExpr, code);
+        }
 
-        return new OllirExprResult(code.toString(), computation);
+        return toTemp(buildOperation(binaryExpr, code), resType, code);
     }
 
-    private OllirExprResult visitBinaryExpr(JmmNode binaryExpr, Void unused) {
-        OllirExprResult lhs = visit(binaryExpr.getJmmChild(0));
-        OllirExprResult rhs = visit(binaryExpr.getJmmChild(1));
+    /**
+     * Computes the value of a comparison or a conjunction with jumps. The right operand of '&&' is only evaluated
+     * when the left one is true.
+     */
+    private Element visitConditionValue(JmmNode condition, OllirCode code) {
+        Type booleanType = typeUtils.getBooleanType();
+        String ifNumber = naming.getIfNumber();
+        boolean isAnd = condition.get("op").equals("&&");
 
-        StringBuilder computation = new StringBuilder();
+        branchIfTrue(isAnd ? condition.getJmmChild(0) : condition, code, "bool_true_" + ifNumber);
 
-        // code to compute the children
-        computation.append(lhs.getComputation());
-        computation.append(rhs.getComputation());
+        Operand temp = toTemp(new SingleOpInstruction(OptUtils.toLiteral(0, booleanType)), booleanType, code);
+        code.add(new GotoInstruction("bool_end_" + ifNumber));
+        code.addLabel("bool_true_" + ifNumber);
 
-        // code to compute self
-        Type resType = typeUtils.getExprType(binaryExpr);
-        String resOllirType = OptUtils.toOllirType(resType);
+        Element value = isAnd ? visit(condition.getJmmChild(1), code) : OptUtils.toLiteral(1, booleanType);
+        naming.release(value);
+        code.add(new AssignInstruction(OptUtils.toOperand(temp.getName(), booleanType), OptUtils.toOllirType(booleanType),
+                new SingleOpInstruction(value)));
+        code.addLabel("bool_end_" + ifNumber);
 
-        String code = OptUtils.getTemp() + resOllirType;
+        return temp;
+    }
 
+    /**
+     * Generates a condition that jumps to the label when it is false and falls through when it is true.
+     * <p>
+     * Like in Java, the right operand of '&&' is only evaluated when the left one is true, so a condition jumps on its
+     * first false operand.
+     */
+    public void branchIfFalse(JmmNode condition, OllirCode code, String label) {
+        if (PAREN_EXPR.check(condition)) {
+            branchIfFalse(condition.getJmmChild(0), code, label);
+            return;
+        }
 
-        if (resType.getName().equals(typeUtils.getBooleanTypeName())) {
-            String booleanType = OptUtils.toOllirType(typeUtils.getBooleanType());
-            String ifNumber = OptUtils.getIfNumber();
-
-            if (binaryExpr.get("op").equals("&&")) {
-
-                computation.append("if (").append(lhs.getCode()).append(") goto if_then_").append(ifNumber).append(END_STMT);
-                computation.append(code).append(SPACE).append(ASSIGN).append(booleanType).append(SPACE)
-                        .append("0").append(booleanType).append(END_STMT)
-                        .append("goto if_end_").append(ifNumber).append(END_STMT);
-                computation.append("if_then_").append(ifNumber).append(": ").append(code).append(SPACE).append(ASSIGN).append(booleanType).append(SPACE)
-                        .append(rhs.getCode()).append(END_STMT);
-                computation.append("if_end_").append(ifNumber).append(": ");
-            }
-            else {
-                assert binaryExpr.get("op").equals("<");
-
-                String operationCode = lhs.getCode() + SPACE +
-                        binaryExpr.get("op") + booleanType + SPACE +
-                        rhs.getCode();
-
-                computation.append("if (").append(operationCode).append(") goto if_then_").append(ifNumber).append(END_STMT);
-                computation.append(code).append(SPACE).append(ASSIGN).append(booleanType).append(SPACE)
-                        .append("0").append(booleanType).append(END_STMT)
-                        .append("goto if_end_").append(ifNumber).append(END_STMT);
-                computation.append("if_then_").append(ifNumber).append(": ").append(code).append(SPACE).append(ASSIGN).append(booleanType).append(SPACE)
-                        .append("1").append(booleanType).append(END_STMT);
-                computation.append("if_end_").append(ifNumber).append(": ");
-            }
+        if (UNARY_EXPR.check(condition)) {
+            branchIfTrue(condition.getJmmChild(0), code, label);
+            return;
+        }
 
+        if (BINARY_EXPR.check(condition) && condition.get("op").equals("&&")) {
+            branchIfFalse(condition.getJmmChild(0), code, label);
+            branchIfFalse(condition.getJmmChild(1), code, label);
+            return;
         }
-        else {
 
-            if (binaryExpr.getParent().getKind().equals(ASSIGN_STMT.getNodeName())) {  //On assign, assign directly to the variable without temp
-                assert (!binaryExpr.get("type").equals(typeUtils.getBooleanTypeName()));
-                boolean isField = table.getFields().contains(new Symbol(typeUtils.getStmtType(binaryExpr.getParent()) ,binaryExpr.getParent().get("name")));
-                if (!isField) {
-                    code = lhs.getCode() + SPACE +
-                            binaryExpr.get("op") + OptUtils.toOllirType(resType) + SPACE +
-                            rhs.getCode();
+        if (BINARY_EXPR.check(condition) && condition.get("op").equals("<")) {
+            code.add(OptUtils.branch(buildComparison(condition, OperationType.GTE, code), label));
+            return;
+        }
 
-                    return new OllirExprResult(code, computation);
-                }
-            }
+        Element value = visit(condition, code);
+        naming.release(value);
+        code.add(OptUtils.branch(new UnaryOpInstruction(
+                new Operation(OperationType.NOTB, OptUtils.toOllirType(typeUtils.getBooleanType())), value), label));
+    }
 
-            computation.append(code).append(SPACE).append(ASSIGN).append(resOllirType).append(SPACE);
-            computation.append(lhs.getCode()).append(SPACE);
+    /**
+     * Generates a condition that jumps to the label when it is true and falls through when it is false.
+     *
+     * @see #branchIfFalse(JmmNode, OllirCode, String)
+     */
+    public void branchIfTrue(JmmNode condition, OllirCode code, String label) {
+        if (PAREN_EXPR.check(condition)) {
+            branchIfTrue(condition.getJmmChild(0), code, label);
+            return;
+        }
+
+        if (UNARY_EXPR.check(condition)) {
+            branchIfFalse(condition.getJmmChild(0), code, label);
+            return;
+        }
 
-            computation.append(binaryExpr.get("op")).append(OptUtils.toOllirType(resType)).append(SPACE);
-            computation.append(rhs.getCode()).append(END_STMT);
+        if (BINARY_EXPR.check(condition) && condition.get("op").equals("&&")) {
+            String skipLabel = "and_false_" + naming.getIfNumber();
+            branchIfFalse(condition.getJmmChild(0), code, skipLabel);
+            branchIfTrue(condition.getJmmChild(1), code, label);
+            code.addLabel(skipLabel);
+            return;
         }
 
-        return new OllirExprResult(code, computation);
+        if (BINARY_EXPR.check(condition) && condition.get("op").equals("<")) {
+            code.add(OptUtils.branch(buildComparison(condition, OperationType.LTH, code), label));
+            return;
+        }
+
+        Element value = visit(condition, code);
+        naming.release(value);
+        code.add(OptUtils.branch(value, label));
+    }
+
+    private BinaryOpInstruction buildComparison(JmmNode comparison, OperationType opType, OllirCode code) {
+        return buildBinaryOp(comparison, opType, typeUtils.getBooleanType(), code);
     }
 
-    private OllirExprResult visitIntegerLiteral(JmmNode integerLiteral, Void unused) {
+    private BinaryOpInstruction buildOperation(JmmNode binaryExpr, OllirCode code) {
+        OperationType opType = OptUtils.toOperationType(binaryExpr.get("op"));
+
+        return buildBinaryOp(binaryExpr, opType, typeUtils.getExprType(binaryExpr), code);
+    }
+
+    private BinaryOpInstruction buildBinaryOp(JmmNode binaryExpr, OperationType opType, Type type, OllirCode code) {
+        JmmNode right = binaryExpr.getJmmChild(1);
+        Element lhs = keepBefore(visit(binaryExpr.getJmmChild(0), code), right, code);
+        Element rhs = visit(right, code);
+        naming.release(lhs);
+        naming.release(rhs);
+
+        return new BinaryOpInstruction(lhs, new Operation(opType, OptUtils.toOllirType(type)), rhs);
+    }
+
+    private Element visitIntegerLiteral(JmmNode integerLiteral, OllirCode code) {
         Type intType = typeUtils.getIntType();
-        String ollirIntType = OptUtils.toOllirType(intType);
-        String code = integerLiteral.get("value") + ollirIntType;
-        return new OllirExprResult(code);
+        return new LiteralElement(integerLiteral.get("value"), OptUtils.toOllirType(intType));
     }
 
-    private OllirExprResult visitBooleanLiteral(JmmNode booleanLiteral, Void unused) {
+    private Element visitBooleanLiteral(JmmNode booleanLiteral, OllirCode code) {
         Type booleanType = typeUtils.getBooleanType();
-        String ollirBooleanType = OptUtils.toOllirType(booleanType);
         String value = booleanLiteral.get("value");
         if (value.equals("true")) {
-            return new OllirExprResult(1 + ollirBooleanType);
+            return OptUtils.toLiteral(1, booleanType);
         }
-        return new OllirExprResult(0 + ollirBooleanType);
+        return OptUtils.toLiteral(0, booleanType);
     }
 
-    private OllirExprResult visitVarRefExpr(JmmNode varRefExpr, Void unused) {
+    private Element visitVarRefExpr(JmmNode varRefExpr, OllirCode code) {
         String name = varRefExpr.get("name");
         Type type;
         if (varRefExpr.getKind().equals(ARRAY_ASSIGN_STMT.toString())) {
@@ -337,44 +595,35 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         else {
             type = typeUtils.getExprType(varRefExpr);
         }
-        String ollirType = OptUtils.toOllirType(type);
 
         if (typeUtils.isImport(name)) {
-            return new OllirExprResult(name);
+            return new Operand(name, new ClassType(ElementType.CLASS, name));
         }
 
         if (typeUtils.isLocal(name) || typeUtils.isParameter(name)) {
-            String code = name + ollirType;
-            return new OllirExprResult(code);
+            return OptUtils.toOperand(name, type);
         }
 
         assert typeUtils.isField(name);
 
-        StringBuilder code = new StringBuilder();
-        StringBuilder computation = new StringBuilder();
-
-        code.append(OptUtils.getTemp()).append(ollirType);
-
-        computation.append(code).append(SPACE).append(ASSIGN).append(ollirType).append(SPACE);
-        computation.append("getfield(this, ").append(name).append(ollirType).append(")").append(ollirType).append(END_STMT);
-
-        return new OllirExprResult(code.toString(), computation);
+        return toTemp(new GetFieldInstruction(OptUtils.toThis(table.getClassName()), OptUtils.toOperand(name, type),
+                OptUtils.toOllirType(type)), type, code);
     }
 
-    private OllirExprResult visitThis(JmmNode this_, Void unused) {
+    private Element visitThis(JmmNode this_, OllirCode code) {
         String name = this_.get("name"); // this
-        if (this_.getParent().getKind().equals(FUNCTION_CALL.toString()))
-            return new OllirExprResult(name);
-        return new OllirExprResult(name + "." + table.getClassName());
+        if (this_.getParent().getKind().equals(FUNCTION_CALL.toString()) && this_.getIndexOfSelf() == 0)
+            return OptUtils.toThis(table.getClassName());
+        return new Operand(name, new ClassType(ElementType.OBJECTREF, table.getClassName()));
     }
 
     /**
-     * Default visitor. Visits every child node and return an empty result.
+     * Default visitor. Visits every child node and returns no operand.
      */
-    private OllirExprResult defaultVisit(JmmNode node, Void unused) {
+    private Element defaultVisit(JmmNode node, OllirCode code) {
         for (var child : node.getChildren()) {
-            visit(child);
+            visit(child, code);
         }
-        return OllirExprResult.EMPTY;
+        return null;
     }
 }
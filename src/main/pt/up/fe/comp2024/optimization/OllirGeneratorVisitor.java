@@ -1,39 +1,76 @@
 package pt.up.fe.comp2024.optimization;
 
+import org.specs.comp.ollir.*;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
 import pt.up.fe.comp2024.ast.NodeUtils;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.MethodSignature;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static pt.up.fe.comp2024.ast.Kind.*;
 
 /**
- * Generates OLLIR code from JmmNodes that are not expressions.
+ * Builds the OLLIR class of a program from its JmmNodes, visiting the nodes that are not expressions.
+ * <p>
+ * The class, its fields and its methods are added to the {@link ClassUnit} being built, while statements write the
+ * instructions that implement them to the code of their method.
+ * <p>
+ * Methods can be generated in parallel. Each one is then built by its own visitor, with its own naming context, and the
+ * methods are added to the class in declaration order, so the class is the same as when they are built one by one.
  */
-public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
-
-    private static final String ASSIGN = ":=";
-    private static final String END_LABEL = ":\n";
-    private static final String END_STMT = ";\n";
-    private static final String NL = "\n";
-    private static final String SPACE = " ";
-    private static final String L_BRACKET = " {\n";
-    private static final String R_BRACKET = "}\n";
+public class OllirGeneratorVisitor extends AJmmVisitor<OllirCode, Void> {
 
     private final SymbolTable table;
     private final TypeUtils typeUtils;
+    private final NamingContext naming;
 
     private final OllirExprGeneratorVisitor exprVisitor;
 
-    public OllirGeneratorVisitor(SymbolTable table) {
+    private ClassUnit classUnit;
+    private int threads = 1;
+
+    public OllirGeneratorVisitor(SymbolTable table, NamingContext naming) {
         this.table = table;
         this.typeUtils = new TypeUtils("", table);
-        exprVisitor = new OllirExprGeneratorVisitor(table);
+        this.naming = naming;
+        exprVisitor = new OllirExprGeneratorVisitor(table, naming);
+    }
+
+    private OllirGeneratorVisitor(SymbolTable table, ClassUnit classUnit, Set<String> readOnlyVarargs) {
+        this(table, new NamingContext());
+        this.classUnit = classUnit;
+        exprVisitor.setReadOnlyVarargs(readOnlyVarargs);
+    }
+
+    /**
+     * @return the OLLIR class of the given program, with its variable tables already built
+     */
+    public ClassUnit buildClassUnit(JmmNode program) {
+        return buildClassUnit(program, 1);
+    }
+
+    /**
+     * @param threads the number of methods generated at the same time
+     * @return the OLLIR class of the given program, with its variable tables already built
+     */
+    public ClassUnit buildClassUnit(JmmNode program, int threads) {
+        this.threads = threads;
+        classUnit = new ClassUnit();
+        visit(program);
+        classUnit.buildVarTables();
+
+        return classUnit;
     }
 
 
@@ -43,8 +80,6 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         addVisit(IMPORT_DECL, this::visitImportDecl);
         addVisit(CLASS_DECL, this::visitClassDecl);
         addVisit(VAR_DECL, this::visitVarDecl);
-        addVisit(METHOD_DECL, this::visitMethodDecl);
-        addVisit(PARAM, this::visitParam);
         addVisit(STMT_BLOCK, this::visitStmtBlock);
         addVisit(IF_ELSE_STMT, this::visitIfElseStmt);
         addVisit(WHILE_STMT, this::visitWhileStmt);
@@ -55,119 +90,129 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         setDefaultVisit(this::defaultVisit);
     }
 
-    private String visitProgram(JmmNode program, Void unused) {
-        StringBuilder code = new StringBuilder();
+    private Void visitProgram(JmmNode program, OllirCode unused) {
+        program.getChildren().forEach(this::visit);
 
-        program.getChildren().stream().map(this::visit).forEach(code::append);
-
-        return code.toString();
+        return null;
     }
 
-    private String visitImportDecl(JmmNode importDecl, Void unused) {
-        StringBuilder code = new StringBuilder("import ");
-
+    private Void visitImportDecl(JmmNode importDecl, OllirCode unused) {
         List<String> imports = importDecl.getObjectAsList("name", String.class);
 
-        if (imports.size() > 1) {
-            String fullName = imports.stream().reduce((a, e) -> a + "." + e).orElse("");
-            code.append(fullName);
-        } else {
-            String name = imports.get(0);
-            code.append(name);
-        }
+        classUnit.addImport(String.join(".", imports));
 
-        code.append(END_STMT);
-
-        return code.toString();
+        return null;
     }
 
-    private String visitClassDecl(JmmNode classDecl, Void unused) {
-        StringBuilder code = new StringBuilder();
-
-        code.append(table.getClassName()).append(" extends ");
+    private Void visitClassDecl(JmmNode classDecl, OllirCode unused) {
+        classUnit.setClassName(table.getClassName());
 
         if (NodeUtils.getBooleanAttribute(classDecl, "isSubclass", "false")) {
-            code.append(table.getSuper());
+            classUnit.setSuperClass(table.getSuper());
         } else {
-            code.append("Object");
+            classUnit.setSuperClass("Object");
         }
 
-        code.append(L_BRACKET).append(NL);
+        Set<String> readOnlyVarargs = ReadOnlyVarargs.find(classDecl, table);
+        exprVisitor.setReadOnlyVarargs(readOnlyVarargs);
 
-        boolean needNl = true;
+        List<JmmNode> methodDecls = new ArrayList<>();
         for (JmmNode child : classDecl.getChildren()) {
-            String result = visit(child);
-
-            if (METHOD_DECL.check(child) && needNl) {
-                code.append(NL);
-                needNl = false;
+            if (METHOD_DECL.check(child)) {
+                methodDecls.add(child);
+            } else {
+                visit(child);
             }
-
-            code.append(result);
         }
 
-        code.append(buildConstructor()).append(R_BRACKET).append(NL);
+        List<Method> methods = threads > 1 && methodDecls.size() > 1
+                ? buildMethodsInParallel(methodDecls, readOnlyVarargs)
+                : methodDecls.stream().map(this::buildMethod).toList();
+        methods.forEach(classUnit::addMethod);
+
+        classUnit.addMethod(buildConstructor());
 
-        return code.toString();
+        return null;
     }
 
-    private String visitVarDecl(JmmNode varDecl, Void unused) {
+    private List<Method> buildMethodsInParallel(List<JmmNode> methodDecls, Set<String> readOnlyVarargs) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, methodDecls.size()));
+        try {
+            List<Future<Method>> futures = new ArrayList<>();
+            for (JmmNode methodDecl : methodDecls) {
+                futures.add(executor.submit(() -> new OllirGeneratorVisitor(table, classUnit, readOnlyVarargs)
+                        .buildMethod(methodDecl)));
+            }
+
+            List<Method> methods = new ArrayList<>();
+            for (Future<Method> future : futures) {
+                methods.add(future.get());
+            }
+            return methods;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while generating the methods of " + table.getClassName(), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Void visitVarDecl(JmmNode varDecl, OllirCode unused) {
         if (varDecl.getParent().getKind().equals(CLASS_DECL.toString())) {
-            String name = varDecl.get("name");
-            String type = OptUtils.toOllirType(varDecl.getChild(0));
-            return ".field public " + name + type + END_STMT;
+            Field field = new Field();
+            field.setFieldAccessModifier(AccessModifier.PUBLIC);
+            field.setFieldName(varDecl.get("name"));
+            field.setFieldType(OptUtils.toOllirType(varDecl.getChild(0)));
+            classUnit.addField(field);
         }
-        return "";
+        return null;
     }
 
-    private String visitMethodDecl(JmmNode methodDecl, Void unused) {
-        typeUtils.setCurrentMethod(methodDecl.get("name"));
-        exprVisitor.setCurrentMethod(methodDecl.get("name"));
+    private Method buildMethod(JmmNode methodDecl) {
+        String signature = MethodSignature.of(methodDecl);
+        typeUtils.setCurrentMethod(signature);
+        exprVisitor.setCurrentMethod(signature);
+
+        Set<String> variables = new HashSet<>();
+        table.getLocalVariables(signature).forEach(local -> variables.add(local.getName()));
+        table.getParameters(signature).forEach(param -> variables.add(param.getName()));
+        naming.enterMethod(variables);
 
-        StringBuilder code = new StringBuilder(".method ");
+        Method method = new Method(classUnit);
 
         if (NodeUtils.getBooleanAttribute(methodDecl, "isPublic", "false")) {
-            code.append("public ");
+            method.setMethodAccessModifier(AccessModifier.PUBLIC);
         }
 
         boolean isVoid = NodeUtils.getBooleanAttribute(methodDecl, "isVoid", "false");
 
         if (isVoid) {
-            code.append("static ");
+            method.setStaticMethod();
         }
 
         List<JmmNode> params = methodDecl.getChildren(PARAM);
         int paramsNumber = params.size();
         if (paramsNumber > 0 && params.get(paramsNumber - 1).getChild(0).getObject("isEllipsis", Boolean.class)) {
-            code.append("varargs ");
+            method.setVarargs(true);
         }
 
-        String name = methodDecl.get("name");
-        code.append(name);
-
+        // Parameters are numbered from 0 in static methods and from 1 in the others, after 'this'
+        int paramId = isVoid ? 0 : 1;
         if (isVoid) {
             String paramName = methodDecl.get("paramName");
-            code.append("(").append(paramName).append(".array.String)");
+            method.addParam(buildParam(paramName, OptUtils.toOllirType(typeUtils.getStringArrayType()), paramId));
         } else {
-            code.append("(");
-            for (JmmNode param : methodDecl.getChildren(PARAM)) {
-                String paramCode = visit(param);
-                code.append(paramCode).append(", ");
-            }
-            if (!methodDecl.getChildren(PARAM).isEmpty()) {
-                code.delete(code.length() - 2, code.length());
+            for (JmmNode param : params) {
+                method.addParam(buildParam(param.get("paramName"), OptUtils.toOllirType(param.getJmmChild(0)), paramId++));
             }
-            code.append(")");
         }
 
-        if (isVoid) {
-            code.append(".V");
-        } else {
-            String retType = OptUtils.toOllirType(methodDecl.getJmmChild(0));
-            code.append(retType);
-        }
-
-        code.append(L_BRACKET);
+        OllirCode code = new OllirCode(method);
 
         int afterParam = methodDecl.getChildren(PARAM).size();
         if (!isVoid) {
@@ -175,154 +220,152 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         }
         for (int i = afterParam; i < methodDecl.getNumChildren(); i++) {
             JmmNode child = methodDecl.getJmmChild(i);
-            String childCode = visit(child);
-            code.append(childCode);
+            visit(child, code);
         }
 
         if (isVoid) {
-            code.append("ret.V").append(END_STMT);
+            ReturnInstruction ret = new ReturnInstruction();
+            ret.setReturnType(OptUtils.toOllirType(typeUtils.getVoidType()));
+            code.add(ret);
         }
 
-        code.append(R_BRACKET).append(NL);
+        if (isVoid) {
+            method.setReturnType(OptUtils.toOllirType(typeUtils.getVoidType()));
+        } else {
+            method.setReturnType(OptUtils.toOllirType(methodDecl.getJmmChild(0)));
+        }
 
-        return code.toString();
+        method.setMethodName(methodDecl.get("name"));
+
+        return method;
     }
 
-    private String visitParam(JmmNode param, Void unused) {
-        String type = OptUtils.toOllirType(param.getJmmChild(0));
-        String id = param.get("paramName");
+    private Operand buildParam(String name, org.specs.comp.ollir.Type type, int paramId) {
+        Operand param = new Operand(name, type);
+        param.setParamId(paramId);
 
-        return id + type;
+        return param;
     }
 
-    private String visitStmtBlock(JmmNode stmtBlock, Void unused) {
-        StringBuilder code = new StringBuilder();
+    private Void visitStmtBlock(JmmNode stmtBlock, OllirCode code) {
         for (JmmNode child : stmtBlock.getChildren()) {
-            code.append(visit(child));
+            visit(child, code);
         }
-        return code.toString();
+        return null;
     }
 
-    private String visitIfElseStmt(JmmNode ifElseStmt, Void unused) {
-        StringBuilder code = new StringBuilder();
-        OllirExprResult exprResult = exprVisitor.visit(ifElseStmt.getChild(0));
-        String thenCode = visit(ifElseStmt.getChild(1));
-        String elseCode = visit(ifElseStmt.getChild(2));
-        String ifNumber = OptUtils.getIfNumber();
+    private Void visitIfElseStmt(JmmNode ifElseStmt, OllirCode code) {
+        String ifNumber = naming.getIfNumber();
 
-        code.append(exprResult.getComputation());
-        code.append("if (").append(exprResult.getCode()).append(") goto if_then_").append(ifNumber).append(END_STMT);
+        exprVisitor.branchIfFalse(ifElseStmt.getChild(0), code, "if_else_" + ifNumber);
 
-        code.append(elseCode);
-        code.append("goto if_end_").append(ifNumber).append(END_STMT);
+        visit(ifElseStmt.getChild(1), code);
+        code.add(new GotoInstruction("if_end_" + ifNumber));
 
-        code.append("if_then_").append(ifNumber).append(END_LABEL);
-        code.append(thenCode);
-        code.append("if_end_").append(ifNumber).append(END_LABEL);
+        code.addLabel("if_else_" + ifNumber);
+        visit(ifElseStmt.getChild(2), code);
+        code.addLabel("if_end_" + ifNumber);
 
-        return code.toString();
+        return null;
     }
 
-    private String visitWhileStmt(JmmNode whileStmt, Void unused) {
-        StringBuilder code = new StringBuilder();
-        OllirExprResult exprResult = exprVisitor.visit(whileStmt.getChild(0));
-        String stmtCode = visit(whileStmt.getChild(1));
-        String whileNumber = OptUtils.getWhileNumber();
+    private Void visitWhileStmt(JmmNode whileStmt, OllirCode code) {
+        String whileNumber = naming.getWhileNumber();
+
+        // The arrays of nested loops are built before the outermost one
+        boolean isOutermost = whileStmt.getAncestor(WHILE_STMT).isEmpty();
+        List<Operand> hoisted = isOutermost ? exprVisitor.hoistVarargs(whileStmt, code) : List.of();
 
-        code.append("goto while_cond_").append(whileNumber).append(END_STMT);
-        code.append("while_body_").append(whileNumber).append(END_LABEL);
-        code.append(stmtCode);
+        code.add(new GotoInstruction("while_cond_" + whileNumber));
+        code.addLabel("while_body_" + whileNumber);
+        visit(whileStmt.getChild(1), code);
 
-        code.append("while_cond_").append(whileNumber).append(END_LABEL);
-        code.append(exprResult.getComputation());
-        code.append("if (").append(exprResult.getCode()).append(") goto while_body_").append(whileNumber).append(END_STMT);
+        code.addLabel("while_cond_" + whileNumber);
+        exprVisitor.branchIfTrue(whileStmt.getChild(0), code, "while_body_" + whileNumber);
+        hoisted.forEach(naming::release);
 
-        return code.toString();
+        return null;
     }
 
-    private String visitSimpleStmt(JmmNode simpleStmt, Void unused) {
+    private Void visitSimpleStmt(JmmNode simpleStmt, OllirCode code) {
         JmmNode child = simpleStmt.getChild(0);
-        OllirExprResult result = exprVisitor.visit(child);
-        return result.getComputation() + result.getCode() + END_STMT;
+        Element value = exprVisitor.visit(child, code);
+        if (value != null) {
+            naming.release(value);
+        }
+        return null;
     }
 
-    private String visitAssignStmt(JmmNode assignStmt, Void unused) {
+    private Void visitAssignStmt(JmmNode assignStmt, OllirCode code) {
         String lhs = assignStmt.get("name");
-        String lhsType = OptUtils.toOllirType(typeUtils.getStmtType(assignStmt));
-        OllirExprResult rhs = exprVisitor.visit(assignStmt.getJmmChild(0));
-
-        StringBuilder code = new StringBuilder();
-
-        code.append(rhs.getComputation());
+        Type lhsType = typeUtils.getStmtType(assignStmt);
 
         if (typeUtils.isField(lhs)) {
-            code.append("putfield(this, ");
-            code.append(lhs).append(lhsType).append(", ");
-            code.append(rhs.getCode()).append(").V").append(END_STMT);
+            Element rhs = exprVisitor.visitSimpleOperand(assignStmt.getJmmChild(0), code);
+            naming.release(rhs);
+            code.add(new PutFieldInstruction(OptUtils.toThis(table.getClassName()), OptUtils.toOperand(lhs, lhsType),
+                    rhs, OptUtils.toOllirType(typeUtils.getVoidType())));
         } else {
-            // code to compute the children
-            code.append(lhs).append(lhsType);
+            Instruction rhs = exprVisitor.visitAssignedValue(assignStmt.getJmmChild(0), code);
 
-            // code to compute self
             // statement has type of lhs
             Type thisType = typeUtils.getStmtType(assignStmt);
-            String typeString = OptUtils.toOllirType(thisType);
 
-            code.append(SPACE).append(ASSIGN).append(typeString).append(SPACE);
-            code.append(rhs.getCode()).append(END_STMT);
+            code.add(new AssignInstruction(OptUtils.toOperand(lhs, lhsType), OptUtils.toOllirType(thisType), rhs));
         }
-        return code.toString();
+        return null;
     }
 
-    private String visitArrayAssignStmt(JmmNode arrayAssignStmt, Void unused) {
-        StringBuilder code = new StringBuilder();
-
-        OllirExprResult arrayExprResult = exprVisitor.visit(arrayAssignStmt);
-        OllirExprResult indexExprResult = exprVisitor.visit(arrayAssignStmt.getChild(0));
-        OllirExprResult valueExprResult = exprVisitor.visit(arrayAssignStmt.getChild(1));
+    private Void visitArrayAssignStmt(JmmNode arrayAssignStmt, OllirCode code) {
+        Element array = exprVisitor.visit(arrayAssignStmt, code);
+        Element index = exprVisitor.visitSimpleOperand(arrayAssignStmt.getChild(0), code);
+        Element value = exprVisitor.visit(arrayAssignStmt.getChild(1), code);
+        naming.release(array);
+        naming.release(index);
+        naming.release(value);
 
-        code.append(arrayExprResult.getComputation());
-        code.append(indexExprResult.getComputation());
-        code.append(valueExprResult.getComputation());
-        code.append(arrayExprResult.getCode()).append("[").append(indexExprResult.getCode()).append("].i32 ");
-        code.append(ASSIGN).append(".i32 ").append(valueExprResult.getCode()).append(END_STMT);
+        code.add(OptUtils.arrayStore(((Operand) array).getName(), index, value));
 
-        return code.toString();
+        return null;
     }
 
-    private String visitReturnStmt(JmmNode returnStmt, Void unused) {
-        String methodName = returnStmt.getAncestor(METHOD_DECL).map(method -> method.get("name")).orElseThrow();
-        Type retType = table.getReturnType(methodName);
+    private Void visitReturnStmt(JmmNode returnStmt, OllirCode code) {
+        String signature = returnStmt.getAncestor(METHOD_DECL).map(MethodSignature::of).orElseThrow();
+        Type retType = table.getReturnType(signature);
 
-        StringBuilder code = new StringBuilder();
-
-        OllirExprResult expr = OllirExprResult.EMPTY;
+        ReturnInstruction ret = new ReturnInstruction();
         if (returnStmt.getNumChildren() > 0) {
-            expr = exprVisitor.visit(returnStmt.getJmmChild(0));
-
+            Element value = exprVisitor.visit(returnStmt.getJmmChild(0), code);
+            naming.release(value);
+            ret = new ReturnInstruction(value);
         }
 
+        ret.setReturnType(OptUtils.toOllirType(retType));
+        code.add(ret);
 
-        code.append(expr.getComputation());
-        code.append("ret").append(OptUtils.toOllirType(retType)).append(SPACE);
-        code.append(expr.getCode()).append(END_STMT);
-
-        return code.toString();
+        return null;
     }
 
     /**
-     * Default visitor. Visits every child node and return an empty string.
+     * Default visitor. Visits every child node, writing their code to the given one.
      */
-    private String defaultVisit(JmmNode node, Void unused) {
+    private Void defaultVisit(JmmNode node, OllirCode code) {
         for (var child : node.getChildren()) {
-            visit(child);
+            visit(child, code);
         }
-        return "";
+        return null;
     }
 
-    private String buildConstructor() {
-        return ".construct " + table.getClassName() + "().V {\n" +
-                "invokespecial(this, \"<init>\").V;\n" +
-                "}\n";
+    private Method buildConstructor() {
+        Method constructor = new Method(classUnit);
+        constructor.setConstructMethod();
+
+        constructor.addInstr(new CallInstruction(CallType.invokespecial, OptUtils.toThis(table.getClassName()),
+                OptUtils.toMethodName("<init>"), new ArrayList<>(), OptUtils.toOllirType(typeUtils.getVoidType()), true));
+
+        constructor.setReturnType(OptUtils.toOllirType(typeUtils.getVoidType()));
+        constructor.setMethodName(table.getClassName());
+
+        return constructor;
     }
 }
@@ -0,0 +1,195 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.specs.util.exceptions.NotImplementedException;
+
+import java.util.stream.Collectors;
+
+/**
+ * Prints a {@link ClassUnit} as OLLIR code that the OLLIR parser reads back into an equivalent class.
+ */
+public class OllirPrinter {
+
+    private static final String END_STMT = ";\n";
+    private static final String NL = "\n";
+
+    private OllirPrinter() {
+    }
+
+    public static String print(ClassUnit classUnit) {
+        StringBuilder code = new StringBuilder();
+
+        for (String importName : classUnit.getImports()) {
+            code.append("import ").append(importName).append(END_STMT);
+        }
+
+        code.append(classUnit.getClassName()).append(" extends ").append(classUnit.getSuperClass()).append(" {\n\n");
+
+        for (Field field : classUnit.getFields()) {
+            code.append(".field ").append(printModifier(field.getFieldAccessModifier()));
+            code.append(field.getFieldName()).append(printType(field.getFieldType())).append(END_STMT);
+        }
+
+        if (!classUnit.getMethods().isEmpty()) {
+            code.append(NL);
+        }
+
+        for (Method method : classUnit.getMethods()) {
+            printMethod(method, code);
+        }
+
+        code.append("}\n");
+
+        return code.toString();
+    }
+
+    private static void printMethod(Method method, StringBuilder code) {
+        code.append(method.isConstructMethod() ? ".construct " : ".method ");
+        code.append(printModifier(method.getMethodAccessModifier()));
+
+        if (method.isStaticMethod()) {
+            code.append("static ");
+        }
+
+        if (method.isVarargs()) {
+            code.append("varargs ");
+        }
+
+        code.append(method.getMethodName()).append("(");
+        code.append(method.getParams().stream().map(OllirPrinter::printElement).collect(Collectors.joining(", ")));
+        code.append(")").append(printType(method.getReturnType())).append(" {\n");
+
+        for (Instruction instruction : method.getInstructions()) {
+            for (String label : method.getLabels(instruction)) {
+                code.append(label).append(":\n");
+            }
+            code.append(printInstruction(instruction)).append(END_STMT);
+        }
+
+        code.append("}\n\n");
+    }
+
+    private static String printModifier(AccessModifier modifier) {
+        return modifier == AccessModifier.DEFAULT ? "" : modifier.name().toLowerCase() + " ";
+    }
+
+    public static String printInstruction(Instruction instruction) {
+        return switch (instruction.getInstType()) {
+            case ASSIGN -> {
+                AssignInstruction assign = (AssignInstruction) instruction;
+                yield printElement(assign.getDest()) + " :=" + printType(assign.getTypeOfAssign()) + " "
+                        + printInstruction(assign.getRhs());
+            }
+            case CALL -> printCall((CallInstruction) instruction);
+            case GOTO -> "goto " + ((GotoInstruction) instruction).getLabel();
+            case BRANCH -> {
+                CondBranchInstruction branch = (CondBranchInstruction) instruction;
+                yield "if (" + printInstruction(branch.getCondition()) + ") goto " + branch.getLabel();
+            }
+            case RETURN -> {
+                ReturnInstruction ret = (ReturnInstruction) instruction;
+                String operand = ret.hasReturnValue() ? " " + printElement(ret.getOperand()) : "";
+                yield "ret" + printType(ret.getReturnType()) + operand;
+            }
+            case PUTFIELD -> {
+                PutFieldInstruction putField = (PutFieldInstruction) instruction;
+                yield "putfield(" + printElement(putField.getObject()) + ", " + printElement(putField.getField()) + ", "
+                        + printElement(putField.getValue()) + ").V";
+            }
+            case GETFIELD -> {
+                GetFieldInstruction getField = (GetFieldInstruction) instruction;
+                yield "getfield(" + printElement(getField.getObject()) + ", " + printElement(getField.getField()) + ")"
+                        + printType(getField.getFieldType());
+            }
+            case UNARYOPER -> {
+                UnaryOpInstruction unaryOp = (UnaryOpInstruction) instruction;
+                yield printOperation(unaryOp.getOperation()) + " " + printElement(unaryOp.getOperand());
+            }
+            case BINARYOPER -> {
+                BinaryOpInstruction binaryOp = (BinaryOpInstruction) instruction;
+                yield printElement(binaryOp.getLeftOperand()) + " " + printOperation(binaryOp.getOperation()) + " "
+                        + printElement(binaryOp.getRightOperand());
+            }
+            case NOPER -> printElement(((SingleOpInstruction) instruction).getSingleOperand());
+        };
+    }
+
+    private static String printCall(CallInstruction call) {
+        StringBuilder code = new StringBuilder();
+        Operand caller = (Operand) call.getCaller();
+
+        switch (call.getInvocationType()) {
+            case NEW -> code.append("new(").append(caller.getName());
+            case arraylength -> code.append("arraylength(").append(printElement(caller));
+            default -> {
+                code.append(call.getInvocationType()).append("(").append(printElement(caller));
+                code.append(", ").append(((LiteralElement) call.getMethodName()).getLiteral());
+            }
+        }
+
+        for (Element argument : call.getArguments()) {
+            code.append(", ").append(printElement(argument));
+        }
+
+        code.append(")").append(printType(call.getReturnType()));
+
+        return code.toString();
+    }
+
+    private static String printOperation(Operation operation) {
+        String op = switch (operation.getOpType()) {
+            case ADD -> "+";
+            case SUB -> "-";
+            case MUL -> "*";
+            case DIV -> "/";
+            case AND -> "&";
+            case OR -> "|";
+            case XOR -> "^";
+            case LTH -> "<";
+            case GTH -> ">";
+            case LTE -> "<=";
+            case GTE -> ">=";
+            case EQ -> "==";
+            case NEQ -> "!=";
+            case ANDB -> "&&";
+            case ORB -> "||";
+            case NOTB -> "!";
+            default -> throw new NotImplementedException(operation.getOpType());
+        };
+
+        return op + printType(operation.getTypeInfo());
+    }
+
+    public static String printElement(Element element) {
+        if (element instanceof LiteralElement literal) {
+            return literal.getLiteral() + printType(literal.getType());
+        }
+
+        Operand operand = (Operand) element;
+
+        return switch (operand.getType().getTypeOfElement()) {
+            // 'this' as the object of a call or field instruction, and classes in static calls, have no type
+            case THIS, CLASS -> operand.getName();
+            default -> {
+                if (operand instanceof ArrayOperand arrayOperand) {
+                    String indexes = arrayOperand.getIndexOperands().stream()
+                            .map(index -> "[" + printElement(index) + "]")
+                            .collect(Collectors.joining());
+                    yield operand.getName() + indexes + printType(operand.getType());
+                }
+                yield operand.getName() + printType(operand.getType());
+            }
+        };
+    }
+
+    public static String printType(Type type) {
+        return switch (type.getTypeOfElement()) {
+            case INT32 -> ".i32";
+            case BOOLEAN -> ".bool";
+            case STRING -> ".String";
+            case VOID -> ".V";
+            case OBJECTREF, CLASS, THIS -> "." + ((ClassType) type).getName();
+            case ARRAYREF -> ".array" + printType(((ArrayType) type).getElementType());
+        };
+    }
+}
@@ -1,62 +1,135 @@
 package pt.up.fe.comp2024.optimization;
 
+import org.specs.comp.ollir.*;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static pt.up.fe.comp2024.ast.Kind.TYPE;
 
 public class OptUtils {
-    private static int tempNumber = -1;
-    private static int whileNumber = -1;
-    private static int ifNumber = -1;
+    public static org.specs.comp.ollir.Type toOllirType(JmmNode typeNode) {
+        TYPE.checkOrThrow(typeNode);
+
+        String typeName = typeNode.get("name");
+        boolean isArray = typeNode.getObject("isArray", Boolean.class);
 
-    public static String getWhileNumber() {
-        whileNumber += 1;
-        return String.valueOf(whileNumber);
+        return toOllirType(typeName, isArray);
     }
-    public static String getIfNumber() {
-        ifNumber += 1;
-        return String.valueOf(ifNumber);
+
+    public static org.specs.comp.ollir.Type toOllirType(Type type) {
+        return toOllirType(type.getName(), type.isArray());
     }
 
-    public static String getTemp() {
+    /**
+     * Builds a new type object for each call, as the OLLIR parser does for each type it reads.
+     */
+    private static org.specs.comp.ollir.Type toOllirType(String typeName, boolean isArray) {
+        ElementType elementType = switch (typeName) {
+            case "boolean" -> ElementType.BOOLEAN;
+            case "int" -> ElementType.INT32;
+            case "void" -> ElementType.VOID;
+            case "String" -> ElementType.STRING;
+            default -> ElementType.OBJECTREF;
+        };
 
-        return getTemp("tmp");
+        if (isArray) {
+            ArrayType arrayType = new ArrayType();
+            arrayType.setNumDimensions(1);
+            arrayType.setTypeOfElements(elementType);
+            if (elementType == ElementType.OBJECTREF) {
+                arrayType.setElementClass(typeName);
+            } else if (elementType == ElementType.STRING) {
+                arrayType.setElementClass("String");
+            }
+            return arrayType;
+        }
+
+        if (elementType == ElementType.OBJECTREF) {
+            return new ClassType(ElementType.OBJECTREF, typeName);
+        }
+
+        return new org.specs.comp.ollir.Type(elementType);
     }
 
-    public static String getTemp(String prefix) {
+    public static OperationType toOperationType(String op) {
+        return switch (op) {
+            case "+" -> OperationType.ADD;
+            case "-" -> OperationType.SUB;
+            case "*" -> OperationType.MUL;
+            case "/" -> OperationType.DIV;
+            case "<" -> OperationType.LTH;
+            case "&&" -> OperationType.ANDB;
+            default -> throw new IllegalArgumentException("Unsupported operator: " + op);
+        };
+    }
 
-        return prefix + getNextTempNum();
+    public static Operand toOperand(String name, Type type) {
+        return new Operand(name, toOllirType(type));
     }
 
-    public static int getNextTempNum() {
+    public static LiteralElement toLiteral(int value, Type type) {
+        return new LiteralElement(String.valueOf(value), toOllirType(type));
+    }
 
-        tempNumber += 1;
-        return tempNumber;
+    /**
+     * @return the name of a method, as the second argument of a call
+     */
+    public static LiteralElement toMethodName(String name) {
+        return new LiteralElement("\"" + name + "\"", new org.specs.comp.ollir.Type(ElementType.STRING));
     }
 
-    public static String toOllirType(JmmNode typeNode) {
-        TYPE.checkOrThrow(typeNode);
+    /**
+     * @return 'this', as the object of a call or field instruction
+     */
+    public static Operand toThis(String className) {
+        return new Operand("this", new ClassType(ElementType.THIS, className));
+    }
 
-        String typeName = typeNode.get("name");
-        boolean isArray = typeNode.getObject("isArray", Boolean.class);
+    /**
+     * @return an access to the position of an integer array
+     */
+    public static ArrayOperand toArrayOperand(Element array, Element index) {
+        return new ArrayOperand(((Operand) array).getName(), new org.specs.comp.ollir.Type(ElementType.INT32),
+                List.of(index));
+    }
 
-        return toOllirType(typeName, isArray);
+    /**
+     * @return the allocation of an integer array with the given size
+     */
+    public static CallInstruction newArray(Element size) {
+        List<Element> arguments = new ArrayList<>();
+        arguments.add(size);
+        return new CallInstruction(CallType.NEW, new Operand("array", new ArrayType()), arguments,
+                toOllirType("int", true));
     }
 
-    public static String toOllirType(Type type) {
-        return toOllirType(type.getName(), type.isArray());
+    /**
+     * @return the store of a value in a position of the integer array with the given name
+     */
+    public static AssignInstruction arrayStore(String array, Element index, Element value) {
+        var intType = new org.specs.comp.ollir.Type(ElementType.INT32);
+        var arrayOperand = new ArrayOperand(array, new org.specs.comp.ollir.Type(ElementType.INT32), List.of(index));
+        return new AssignInstruction(arrayOperand, intType, new SingleOpInstruction(value));
     }
 
-    private static String toOllirType(String typeName, boolean isArray) {
-        String ollirType = isArray ? ".array" : "";
+    /**
+     * @return a jump to the label when the boolean operand is true
+     */
+    public static CondBranchInstruction branch(Element condition, String label) {
+        var branch = new SingleOpCondInstruction(new SingleOpInstruction(condition));
+        branch.setLabel(label);
+        return branch;
+    }
 
-        return ollirType + "." + switch (typeName) {
-            case "boolean" -> "bool";
-            case "int" -> "i32";
-            case "void" -> "V";
-            case "String" -> "String";
-            default -> typeName;
-        };
+    /**
+     * @return a jump to the label when the boolean operation is true
+     */
+    public static CondBranchInstruction branch(OpInstruction condition, String label) {
+        var branch = new OpCondInstruction(condition);
+        branch.setLabel(label);
+        return branch;
     }
 }
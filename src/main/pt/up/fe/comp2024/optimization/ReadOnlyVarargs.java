@@ -0,0 +1,81 @@
+package pt.up.fe.comp2024.optimization;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.symboltable.MethodSignature;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static pt.up.fe.comp2024.ast.Kind.*;
+
+/**
+ * Finds the methods of a class whose varargs array does not escape them: the method only reads its elements and its
+ * length, so it neither changes the array nor keeps it after returning.
+ * <p>
+ * Callers of these methods can pass the same array to several calls, as long as its elements do not change between
+ * them. The class is taken as the whole program, so methods are assumed not to be overridden: a subclass compiled
+ * elsewhere could override one of them to change or keep its array, and the calls that share it would then pass
+ * changed elements.
+ * <p>
+ * Only methods too large to be inlined by the JVM are kept. Once a call is inlined, the JIT removes a fresh array
+ * of constants entirely, while a shared one has to be read at every call. Sharing the array of an inlined method made
+ * its calls 2.5 times slower, while a fresh array for a method that is not inlined made them about 15% slower.
+ */
+public class ReadOnlyVarargs {
+
+    /**
+     * The number of AST nodes of a method of about 325 bytes of bytecode, the largest one the JIT inlines. The
+     * methods of the test programs with more than 20 nodes are compiled to 1.0 to 1.8 bytes per node, 1.4 on average,
+     * so methods near the threshold may be on either side of the limit.
+     */
+    static final int MIN_METHOD_NODES = 230;
+
+    private ReadOnlyVarargs() {
+    }
+
+    /**
+     * @return the signatures of the methods of the class that only read their varargs array and are not inlined
+     */
+    public static Set<String> find(JmmNode classDecl, SymbolTable table) {
+        Set<String> signatures = new HashSet<>();
+
+        for (JmmNode methodDecl : classDecl.getChildren(METHOD_DECL)) {
+            String signature = MethodSignature.of(methodDecl);
+            List<Symbol> params = table.getParameters(signature);
+            if (params.isEmpty()) {
+                continue;
+            }
+
+            Symbol varargs = params.get(params.size() - 1);
+            boolean isEllipsis = varargs.getType().hasAttribute("isEllipsis")
+                    && varargs.getType().getObject("isEllipsis", Boolean.class);
+            if (isEllipsis && isOnlyRead(methodDecl, varargs.getName())
+                    && methodDecl.getDescendants().size() >= MIN_METHOD_NODES) {
+                signatures.add(signature);
+            }
+        }
+
+        return signatures;
+    }
+
+    private static boolean isOnlyRead(JmmNode methodDecl, String name) {
+        for (JmmNode node : methodDecl.getDescendants()) {
+            if (ARRAY_ASSIGN_STMT.check(node) && node.get("name").equals(name)) {
+                return false;
+            }
+
+            if (VAR_REF_EXPR.check(node) && node.get("name").equals(name)) {
+                JmmNode parent = node.getParent();
+                boolean isRead = (ARRAY_ACCESS.check(parent) && parent.getChild(0) == node) || LENGTH.check(parent);
+                if (!isRead) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+}
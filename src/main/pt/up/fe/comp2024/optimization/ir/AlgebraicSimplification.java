@@ -0,0 +1,357 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.specs.comp.ollir.ElementType;
+import org.specs.comp.ollir.OperationType;
+import org.specs.comp.ollir.Type;
+
+import java.util.*;
+
+/**
+ * Simplifies the operations of a method with algebraic identities that hold for every value, with the same overflow
+ * as the code it replaces.
+ * <ul>
+ *     <li>Identities: {@code x + 0}, {@code x - 0}, {@code x * 1} and {@code x / 1} are {@code x}, {@code x * 0} is
+ *     0, {@code x - x} is 0, and a variable compared with itself is a constant.</li>
+ *     <li>Reassociation: an addition, subtraction or multiplication by a constant of a variable assigned the same
+ *     operation by a constant earlier in the block, while its operand keeps its value, uses that operand and both
+ *     constants, so {@code (x + 1) + 2} becomes {@code x + 3}. Integers wrap around, so this is exact.</li>
+ *     <li>Booleans: {@code b && true} and {@code b || false} are {@code b}, {@code !!b} is {@code b}, and a branch on
+ *     the negation of a variable assigned a negation branches on the operand of that negation. A branch that only
+ *     chooses between assigning true or false to a variable, which is how the generated code stores the value of a
+ *     condition, assigns the condition instead, when it is a single operand or its negation, and so does the branch
+ *     that stores {@code c && d} or {@code c || d}, with their operation.</li>
+ * </ul>
+ * Operations that may throw, such as divisions, are never removed, and neither are the reads of array elements.
+ * Multiplications by powers of two are turned into shifts by the {@code JasminGenerator}, since OLLIR has no shifts.
+ */
+public class AlgebraicSimplification {
+
+    private static final Set<OperationType> COMMUTATIVE = EnumSet.of(OperationType.ADD, OperationType.MUL,
+            OperationType.AND, OperationType.ANDB, OperationType.OR, OperationType.ORB, OperationType.XOR,
+            OperationType.EQ, OperationType.NEQ);
+
+    private final IrMethod method;
+
+    // The operation that last assigned each variable in the current block, while the variables it reads keep their
+    // values, and the variables assigned by operations that read each variable
+    private final Map<Integer, IrInstruction> defs = new HashMap<>();
+    private final Map<Integer, List<Integer>> readers = new HashMap<>();
+
+    private int numSimplified = 0;
+    private int numSelects = 0;
+
+    private AlgebraicSimplification(IrMethod method) {
+        this.method = method;
+    }
+
+    /**
+     * Simplifies the method, whose CFG must be up to date, and updates it.
+     */
+    public static AlgebraicSimplification run(IrMethod method) {
+        AlgebraicSimplification simplification = new AlgebraicSimplification(method);
+        simplification.simplifySelects();
+        method.getBlocks().forEach(simplification::simplifyBlock);
+
+        return simplification;
+    }
+
+    private void simplifyBlock(BasicBlock block) {
+        defs.clear();
+        readers.clear();
+
+        for (IrInstruction instruction : block.getInstructions()) {
+            switch (instruction.getOpcode()) {
+                case BINARY, UNARY, BRANCH -> {
+                    while (simplify(instruction)) {
+                        numSimplified++;
+                    }
+                }
+                default -> {
+                }
+            }
+
+            int defined = instruction.getDefinedVar();
+            if (defined >= 0) {
+                forget(defined);
+                remember(instruction);
+            }
+        }
+    }
+
+    /**
+     * Forgets the operation that assigned the variable and the ones that read it, which is assigned again.
+     */
+    private void forget(int var) {
+        defs.remove(var);
+
+        List<Integer> varReaders = readers.remove(var);
+        if (varReaders != null) {
+            varReaders.forEach(defs::remove);
+        }
+    }
+
+    private void remember(IrInstruction instruction) {
+        int defined = instruction.getDefinedVar();
+        if (instruction.getOpcode() != IrOpcode.BINARY && instruction.getOpcode() != IrOpcode.UNARY
+                || instruction.reads(defined)
+                || !Arrays.stream(instruction.getArgs()).allMatch(arg -> arg.isVar() || arg.isConstant())) {
+            return;
+        }
+
+        defs.put(defined, instruction);
+        instruction.forEachUse(var -> readers.computeIfAbsent(var, key -> new ArrayList<>()).add(defined));
+    }
+
+    /**
+     * Applies one simplification to the operation of the instruction.
+     *
+     * @return whether the instruction changed
+     */
+    private boolean simplify(IrInstruction instruction) {
+        OperationType operation = instruction.getOperation();
+        if (operation == null) {
+            return false;
+        }
+
+        if (instruction.getNumArgs() == 1) {
+            return operation == OperationType.NOTB && simplifyNot(instruction);
+        }
+
+        IrOperand left = instruction.getArg(0);
+        IrOperand right = instruction.getArg(1);
+
+        // Constants go on the right
+        if (COMMUTATIVE.contains(operation) && left.isConstant() && !right.isConstant()) {
+            instruction.setArg(0, right);
+            instruction.setArg(1, left);
+            return true;
+        }
+
+        boolean isSameVar = left.isVar() && left.equals(right);
+        boolean isPure = !left.isElement();
+        Integer constant = right.isConstant() ? right.getValue() : null;
+        Type type = instruction.getOpcode() == IrOpcode.BRANCH ? new Type(ElementType.BOOLEAN)
+                : instruction.getDest().getType();
+
+        return switch (operation) {
+            case ADD, SUB -> {
+                if (constant != null && constant == 0) {
+                    yield replace(instruction, left);
+                }
+                if (operation == OperationType.SUB && isSameVar) {
+                    yield replace(instruction, IrOperand.constant(0, type));
+                }
+                yield constant != null && reassociate(instruction, left, operation == OperationType.ADD ? constant
+                        : -constant);
+            }
+            case MUL -> {
+                if (constant != null && constant == 1) {
+                    yield replace(instruction, left);
+                }
+                if (constant != null && constant == 0 && isPure) {
+                    yield replace(instruction, right);
+                }
+                yield constant != null && reassociate(instruction, left, constant);
+            }
+            case DIV -> constant != null && constant == 1 && replace(instruction, left);
+            case ANDB, ORB -> {
+                // True is the identity of conjunctions and absorbs disjunctions, and false the opposite
+                int identity = operation == OperationType.ANDB ? 1 : 0;
+                if (constant != null && constant == identity) {
+                    yield replace(instruction, left);
+                }
+                yield constant != null && isPure && replace(instruction, right);
+            }
+            case LTH, GTH, NEQ -> isSameVar && replace(instruction, IrOperand.constant(0, type));
+            case LTE, GTE, EQ -> isSameVar && replace(instruction, IrOperand.constant(1, type));
+            default -> false;
+        };
+    }
+
+    /**
+     * Replaces the negation of a variable assigned a negation by the operand of that negation.
+     */
+    private boolean simplifyNot(IrInstruction instruction) {
+        IrOperand operand = instruction.getArg(0);
+        IrInstruction def = operand.isVar() ? defs.get(operand.getVar()) : null;
+        if (def == null || def.getOperation() != OperationType.NOTB) {
+            return false;
+        }
+
+        return replace(instruction, def.getArg(0));
+    }
+
+    /**
+     * Combines the addition or multiplication of the variable by the constant with the operation that assigned the
+     * variable, if it was the same operation by a constant. Subtractions are additions of the negated constant.
+     */
+    private boolean reassociate(IrInstruction instruction, IrOperand operand, int constant) {
+        IrInstruction def = operand.isVar() ? defs.get(operand.getVar()) : null;
+        if (def == null || def.getNumArgs() != 2 || !def.getArg(1).isConstant()) {
+            return false;
+        }
+
+        OperationType operation = instruction.getOperation();
+        OperationType defOperation = def.getOperation();
+        int defConstant = def.getArg(1).getValue();
+        Type type = instruction.getDest().getType();
+        IrOperand defOperand = def.getArg(0);
+
+        if (operation == OperationType.MUL && defOperation == OperationType.MUL) {
+            instruction.setOperation(OperationType.MUL, instruction.getType(), defOperand,
+                    IrOperand.constant(constant * defConstant, type));
+            return true;
+        }
+
+        boolean isAddition = operation == OperationType.ADD || operation == OperationType.SUB;
+        boolean isDefAddition = defOperation == OperationType.ADD || defOperation == OperationType.SUB;
+        if (!isAddition || !isDefAddition) {
+            return false;
+        }
+
+        int sum = constant + (defOperation == OperationType.ADD ? defConstant : -defConstant);
+        if (sum < 0 && sum != Integer.MIN_VALUE) {
+            instruction.setOperation(OperationType.SUB, instruction.getType(), defOperand,
+                    IrOperand.constant(-sum, type));
+        } else {
+            instruction.setOperation(OperationType.ADD, instruction.getType(), defOperand,
+                    IrOperand.constant(sum, type));
+        }
+        return true;
+    }
+
+    private static boolean replace(IrInstruction instruction, IrOperand value) {
+        instruction.setOperation(null, null, value);
+        return true;
+    }
+
+    /**
+     * Replaces each branch that only chooses between copying two values to the same variable, in two blocks that only
+     * it enters and that go to the same block, by the assignment of its condition, or of its negation, conjunction or
+     * disjunction, when the values make it one.
+     */
+    private void simplifySelects() {
+        method.updateCfg();
+        List<BasicBlock> blocks = method.getBlocks();
+        Set<BasicBlock> removed = new HashSet<>();
+
+        for (int i = 0; i + 2 < blocks.size(); i++) {
+            BasicBlock block = blocks.get(i);
+            BasicBlock falseBlock = blocks.get(i + 1);
+            IrInstruction branch = block.getTerminator();
+            if (branch == null || branch.getOpcode() != IrOpcode.BRANCH || removed.contains(block)) {
+                continue;
+            }
+
+            BasicBlock trueBlock = branch.getTarget();
+            IrOperand condition = getCondition(branch);
+            IrInstruction falseAssign = getOnlyAssign(falseBlock, block);
+            IrInstruction trueAssign = getOnlyAssign(trueBlock, block);
+            if (condition == null || falseAssign == null || trueAssign == null
+                    || !falseAssign.getDest().equals(trueAssign.getDest())
+                    || falseBlock.getSuccessors().size() != 1 || trueBlock.getSuccessors().size() != 1
+                    || falseBlock.getSuccessors().get(0) != trueBlock.getSuccessors().get(0)) {
+                continue;
+            }
+
+            // The values assigned when the condition, without its negation, is true and when it is false
+            boolean isNegated = branch.getOperation() == OperationType.NOTB;
+            IrOperand whenTrue = (isNegated ? falseAssign : trueAssign).getArg(0);
+            IrOperand whenFalse = (isNegated ? trueAssign : falseAssign).getArg(0);
+            IrInstruction select = getSelect(trueAssign.getDest(), condition, whenTrue, whenFalse);
+            if (select == null) {
+                continue;
+            }
+
+            List<IrInstruction> instructions = block.getInstructions();
+            instructions.set(instructions.size() - 1, select);
+            instructions.add(IrInstruction.jump(falseBlock.getSuccessors().get(0)));
+            removed.add(falseBlock);
+            removed.add(trueBlock);
+            numSelects++;
+        }
+
+        blocks.removeAll(removed);
+        method.updateCfg();
+    }
+
+    /**
+     * @return the assignment of the value of {@code condition ? whenTrue : whenFalse} to the destination, or null if it
+     * is not a conjunction, a disjunction or a negation of the condition, which is only the case for booleans
+     */
+    private static IrInstruction getSelect(IrOperand dest, IrOperand condition, IrOperand whenTrue,
+                                           IrOperand whenFalse) {
+        if (!isBoolean(dest) || !isBoolean(whenTrue) || !isBoolean(whenFalse)) {
+            return null;
+        }
+
+        Type type = condition.getType();
+        boolean isTrueConstant = whenTrue.isConstant();
+        boolean isFalseConstant = whenFalse.isConstant();
+
+        if (isTrueConstant && isFalseConstant && whenTrue.getValue() != whenFalse.getValue()) {
+            return whenTrue.getValue() == 1 ? IrInstruction.copy(dest, condition)
+                    : IrInstruction.unary(dest, OperationType.NOTB, type, condition);
+        }
+        if (isFalseConstant && whenFalse.getValue() == 0) {
+            return IrInstruction.binary(dest, OperationType.ANDB, type, condition, whenTrue);
+        }
+        if (isTrueConstant && whenTrue.getValue() == 1) {
+            return IrInstruction.binary(dest, OperationType.ORB, type, condition, whenFalse);
+        }
+
+        return null;
+    }
+
+    /**
+     * @return whether the operand is a boolean, and is 0 or 1 if it is a constant
+     */
+    private static boolean isBoolean(IrOperand operand) {
+        if (operand.getType() == null || operand.getType().getTypeOfElement() != ElementType.BOOLEAN) {
+            return false;
+        }
+
+        return !operand.isConstant() || operand.getValue() == 0 || operand.getValue() == 1;
+    }
+
+    /**
+     * @return the operand the branch tests, or negates, or null if it compares two operands
+     */
+    private static IrOperand getCondition(IrInstruction branch) {
+        boolean isSingle = branch.getOperation() == null || branch.getOperation() == OperationType.NOTB;
+        IrOperand operand = branch.getArg(0);
+
+        return isSingle && (operand.isVar() || operand.isConstant()) ? operand : null;
+    }
+
+    /**
+     * @return the only instruction of the block, or the one before its jump, if it copies a variable or a constant to a
+     * variable, and the block is only entered from the given one
+     */
+    private static IrInstruction getOnlyAssign(BasicBlock block, BasicBlock from) {
+        List<IrInstruction> instructions = block.getInstructions();
+        boolean endsWithJump = block.getTerminator() != null && block.getTerminator().getOpcode() == IrOpcode.GOTO;
+        if (instructions.size() != (endsWithJump ? 2 : 1) || !block.getPredecessors().equals(List.of(from))) {
+            return null;
+        }
+
+        IrInstruction assign = instructions.get(0);
+        boolean isCopy = assign.getOpcode() == IrOpcode.COPY && !assign.getArg(0).isElement()
+                && assign.getDefinedVar() >= 0;
+        return isCopy ? assign : null;
+    }
+
+    /**
+     * @return the number of operations simplified, counting each identity or reassociation applied
+     */
+    public int getNumSimplified() {
+        return numSimplified;
+    }
+
+    /**
+     * @return the number of branches that chose between assigning two values, which now assign their condition
+     */
+    public int getNumSelects() {
+        return numSelects;
+    }
+}
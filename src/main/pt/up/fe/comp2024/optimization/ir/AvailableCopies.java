@@ -0,0 +1,130 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.*;
+
+/**
+ * The copies available at the start and at the end of each block of a method, whose CFG must be up to date.
+ * <p>
+ * The copies are the instructions that copy a variable or a constant to another variable. A copy is available at a
+ * point if every path to it runs the copy without assigning its destination or its source afterwards, so the
+ * destination can be read from the source instead.
+ */
+public class AvailableCopies extends DataflowAnalysis {
+
+    private final List<IrOperand> sources;
+    private final Map<List<IrOperand>, Integer> ids;
+    private final BitVector[] copiesOf;
+    private final List<List<Integer>> copiesTo;
+
+    private AvailableCopies(IrMethod method, List<IrOperand> dests, List<IrOperand> sources,
+                            Map<List<IrOperand>, Integer> ids) {
+        super(method, Direction.FORWARD, Meet.INTERSECTION, ids.size());
+        this.sources = sources;
+        this.ids = ids;
+        this.copiesOf = new BitVector[method.getNumVars()];
+        this.copiesTo = new ArrayList<>(method.getNumVars());
+
+        for (int var = 0; var < method.getNumVars(); var++) {
+            copiesOf[var] = new BitVector(ids.size());
+            copiesTo.add(new ArrayList<>());
+        }
+        for (int id = 0; id < dests.size(); id++) {
+            int dest = dests.get(id).getVar();
+            copiesOf[dest].set(id);
+            copiesTo.get(dest).add(id);
+            if (sources.get(id).isVar()) {
+                copiesOf[sources.get(id).getVar()].set(id);
+            }
+        }
+    }
+
+    public static AvailableCopies of(IrMethod method) {
+        List<IrOperand> dests = new ArrayList<>();
+        List<IrOperand> sources = new ArrayList<>();
+        Map<List<IrOperand>, Integer> ids = new HashMap<>();
+
+        for (IrInstruction instruction : method.getInstructions()) {
+            if (isCopy(instruction) && ids.putIfAbsent(getKey(instruction), ids.size()) == null) {
+                dests.add(instruction.getDest());
+                sources.add(instruction.getArg(0));
+            }
+        }
+
+        AvailableCopies availableCopies = new AvailableCopies(method, dests, sources, ids);
+        availableCopies.solve();
+
+        return availableCopies;
+    }
+
+    /**
+     * @return whether the instruction copies a variable or a constant to another variable
+     */
+    public static boolean isCopy(IrInstruction instruction) {
+        if (instruction.getOpcode() != IrOpcode.COPY || instruction.getDefinedVar() < 0) {
+            return false;
+        }
+
+        IrOperand source = instruction.getArg(0);
+        return source.isConstant() || source.isVar() && source.getVar() != instruction.getDefinedVar();
+    }
+
+    private static List<IrOperand> getKey(IrInstruction instruction) {
+        return List.of(IrOperand.var(instruction.getDefinedVar(), null), instruction.getArg(0));
+    }
+
+    @Override
+    protected void transfer(BasicBlock block, BitVector gen, BitVector kill) {
+        for (IrInstruction instruction : block.getInstructions()) {
+            update(instruction, gen);
+
+            int defined = instruction.getDefinedVar();
+            if (defined >= 0) {
+                kill.or(copiesOf[defined]);
+            }
+            int id = getId(instruction);
+            if (id >= 0) {
+                kill.clear(id);
+            }
+        }
+    }
+
+    /**
+     * Updates the copies available before the instruction to the ones available after it.
+     */
+    public void update(IrInstruction instruction, BitVector available) {
+        int defined = instruction.getDefinedVar();
+        if (defined >= 0) {
+            available.andNot(copiesOf[defined]);
+        }
+
+        int id = getId(instruction);
+        if (id >= 0) {
+            available.set(id);
+        }
+    }
+
+    /**
+     * @return the id of the copy the instruction makes, or -1 if it does not make one
+     */
+    public int getId(IrInstruction instruction) {
+        return isCopy(instruction) ? ids.getOrDefault(getKey(instruction), -1) : -1;
+    }
+
+    /**
+     * @return the variable or constant the variable holds a copy of, according to the available copies, or null if
+     * it holds none
+     */
+    public IrOperand findSource(int var, BitVector available) {
+        for (int id : copiesTo.get(var)) {
+            if (available.get(id)) {
+                return sources.get(id);
+            }
+        }
+
+        return null;
+    }
+
+    public int getNumCopies() {
+        return ids.size();
+    }
+}
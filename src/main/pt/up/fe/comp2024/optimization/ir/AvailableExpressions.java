@@ -0,0 +1,176 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.specs.comp.ollir.CallType;
+import org.specs.comp.ollir.OperationType;
+
+import java.util.*;
+
+/**
+ * The expressions available at the start and at the end of each block of a method, whose CFG must be up to date.
+ * <p>
+ * The expressions are the operations whose operands are all variables or constants, the lengths of arrays and the
+ * loads of array elements and fields into variables. An expression is available at a point if every path to it
+ * computes the expression without assigning its variables afterwards, so its value can be reused instead of computing
+ * it again. Since arrays may be aliased, stores to any array or field and calls to methods, which may store to them,
+ * kill every load.
+ */
+public class AvailableExpressions extends DataflowAnalysis {
+
+    private final Map<Expression, Integer> ids;
+    private final BitVector[] expressionsReading;
+    private final BitVector loads;
+
+    private AvailableExpressions(IrMethod method, Map<Expression, Integer> ids) {
+        super(method, Direction.FORWARD, Meet.INTERSECTION, ids.size());
+        this.ids = ids;
+        this.expressionsReading = new BitVector[method.getNumVars()];
+        this.loads = new BitVector(ids.size());
+
+        for (int var = 0; var < expressionsReading.length; var++) {
+            expressionsReading[var] = new BitVector(ids.size());
+        }
+        ids.forEach((expression, id) -> {
+            for (IrOperand arg : expression.args) {
+                if (arg.isElement()) {
+                    expressionsReading[arg.getVar()].set(id);
+                    arg = arg.getIndex();
+                }
+                if (arg.isVar()) {
+                    expressionsReading[arg.getVar()].set(id);
+                }
+            }
+            if (expression.isLoad()) {
+                loads.set(id);
+            }
+        });
+    }
+
+    public static AvailableExpressions of(IrMethod method) {
+        Map<Expression, Integer> ids = new HashMap<>();
+        for (IrInstruction instruction : method.getInstructions()) {
+            Expression expression = Expression.of(instruction);
+            if (expression != null) {
+                ids.putIfAbsent(expression, ids.size());
+            }
+        }
+
+        AvailableExpressions availableExpressions = new AvailableExpressions(method, ids);
+        availableExpressions.solve();
+
+        return availableExpressions;
+    }
+
+    @Override
+    protected void transfer(BasicBlock block, BitVector gen, BitVector kill) {
+        for (IrInstruction instruction : block.getInstructions()) {
+            update(instruction, gen);
+
+            int defined = instruction.getDefinedVar();
+            if (defined >= 0) {
+                kill.or(expressionsReading[defined]);
+            }
+            if (storesToMemory(instruction)) {
+                kill.or(loads);
+            }
+        }
+    }
+
+    /**
+     * Updates the expressions available before the instruction to the ones available after it.
+     */
+    public void update(IrInstruction instruction, BitVector available) {
+        int id = getId(instruction);
+        if (id >= 0) {
+            available.set(id);
+        }
+
+        // After the expression, since the instruction may assign one of its own operands
+        int defined = instruction.getDefinedVar();
+        if (defined >= 0) {
+            available.andNot(expressionsReading[defined]);
+        }
+        if (storesToMemory(instruction)) {
+            available.andNot(loads);
+        }
+    }
+
+    /**
+     * @return whether the instruction may change an array element or a field
+     */
+    static boolean storesToMemory(IrInstruction instruction) {
+        if (instruction.getDest() != null && instruction.getDest().isElement()) {
+            return true;
+        }
+
+        return switch (instruction.getOpcode()) {
+            case PUTFIELD -> true;
+            case CALL -> instruction.getCallType() != CallType.NEW && instruction.getCallType() != CallType.arraylength;
+            default -> false;
+        };
+    }
+
+    public int getNumExpressions() {
+        return ids.size();
+    }
+
+    /**
+     * @return the id of the expression the instruction computes, or -1 if it does not compute one
+     */
+    public int getId(IrInstruction instruction) {
+        Expression expression = Expression.of(instruction);
+        return expression == null ? -1 : ids.getOrDefault(expression, -1);
+    }
+
+    /**
+     * @return the expressions that read the variable, which must not be changed
+     */
+    public BitVector getExpressionsReading(int var) {
+        return expressionsReading[var];
+    }
+
+    private static class Expression {
+
+        private final IrOpcode opcode;
+        private final OperationType operation;
+        private final List<IrOperand> args;
+
+        private Expression(IrOpcode opcode, OperationType operation, List<IrOperand> args) {
+            this.opcode = opcode;
+            this.operation = operation;
+            this.args = args;
+        }
+
+        private static Expression of(IrInstruction instruction) {
+            IrOpcode opcode = instruction.getOpcode();
+            List<IrOperand> args = List.of(instruction.getArgs());
+            return switch (opcode) {
+                case BINARY, UNARY -> args.stream().allMatch(arg -> arg.isVar() || arg.isConstant())
+                        ? new Expression(opcode, instruction.getOperation(), args)
+                        : null;
+                case COPY -> args.get(0).isElement()
+                        ? new Expression(opcode, null, args)
+                        : null;
+                case CALL -> instruction.getCallType() == CallType.arraylength
+                        ? new Expression(opcode, null, args)
+                        : null;
+                case GETFIELD -> new Expression(opcode, null, args);
+                default -> null;
+            };
+        }
+
+        private boolean isLoad() {
+            return opcode == IrOpcode.COPY || opcode == IrOpcode.GETFIELD;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Expression other && opcode == other.opcode && operation == other.operation
+                    && args.equals(other.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(opcode, operation, args);
+        }
+    }
+}
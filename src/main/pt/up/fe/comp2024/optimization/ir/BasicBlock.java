@@ -0,0 +1,82 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sequence of instructions that is only entered at its start. Only the last instruction can jump or return.
+ * <p>
+ * A block that does not end with a jump or a return, or that ends with a branch, falls through to the next block of
+ * its method. A block can be empty, in which case it falls through to the next one.
+ * <p>
+ * The successors and predecessors are only up to date after {@link IrMethod#updateCfg()}.
+ */
+public class BasicBlock {
+
+    private final int id;
+    private String label;
+    private final List<IrInstruction> instructions = new ArrayList<>();
+    private final List<BasicBlock> successors = new ArrayList<>();
+    private final List<BasicBlock> predecessors = new ArrayList<>();
+
+    BasicBlock(int id, String label) {
+        this.id = id;
+        this.label = label;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return the label of the block, or null if no jump targets it
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    public void setLabel(String label) {
+        this.label = label;
+    }
+
+    public List<IrInstruction> getInstructions() {
+        return instructions;
+    }
+
+    public void add(IrInstruction instruction) {
+        instructions.add(instruction);
+    }
+
+    /**
+     * @return the jump or return that ends the block, or null if it falls through
+     */
+    public IrInstruction getTerminator() {
+        if (instructions.isEmpty()) {
+            return null;
+        }
+
+        IrInstruction last = instructions.get(instructions.size() - 1);
+        return last.getOpcode().isTerminator() ? last : null;
+    }
+
+    /**
+     * @return whether the execution can continue to the next block of the method, after the block
+     */
+    public boolean fallsThrough() {
+        IrInstruction terminator = getTerminator();
+        return terminator == null || terminator.getOpcode() == IrOpcode.BRANCH;
+    }
+
+    public List<BasicBlock> getSuccessors() {
+        return successors;
+    }
+
+    public List<BasicBlock> getPredecessors() {
+        return predecessors;
+    }
+
+    @Override
+    public String toString() {
+        return label == null ? "B" + id : label;
+    }
+}
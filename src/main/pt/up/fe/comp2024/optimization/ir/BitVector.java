@@ -0,0 +1,132 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A set of the integers from 0 to a fixed size, stored in the bits of a {@code long[]}, as the facts of the dataflow
+ * analyses are. Operations between vectors expect them to have the same size.
+ */
+public final class BitVector {
+
+    private final long[] words;
+
+    public BitVector(int size) {
+        this.words = new long[(size + Long.SIZE - 1) / Long.SIZE];
+    }
+
+    private BitVector(long[] words) {
+        this.words = words;
+    }
+
+    /**
+     * @return a vector with every integer from 0 to the size
+     */
+    public static BitVector full(int size) {
+        BitVector vector = new BitVector(size);
+        Arrays.fill(vector.words, -1L);
+
+        int extra = vector.words.length * Long.SIZE - size;
+        if (extra > 0) {
+            vector.words[vector.words.length - 1] >>>= extra;
+        }
+
+        return vector;
+    }
+
+    public BitVector copy() {
+        return new BitVector(words.clone());
+    }
+
+    public boolean get(int index) {
+        return (words[index / Long.SIZE] & (1L << index)) != 0;
+    }
+
+    public void set(int index) {
+        words[index / Long.SIZE] |= 1L << index;
+    }
+
+    public void clear(int index) {
+        words[index / Long.SIZE] &= ~(1L << index);
+    }
+
+    public void or(BitVector other) {
+        for (int i = 0; i < words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    public void and(BitVector other) {
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= other.words[i];
+        }
+    }
+
+    public void andNot(BitVector other) {
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= ~other.words[i];
+        }
+    }
+
+    /**
+     * Makes this vector equal to the given one.
+     *
+     * @return whether this vector changed
+     */
+    public boolean assign(BitVector other) {
+        boolean changed = false;
+        for (int i = 0; i < words.length; i++) {
+            changed |= words[i] != other.words[i];
+            words[i] = other.words[i];
+        }
+
+        return changed;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+        }
+
+        return cardinality;
+    }
+
+    /**
+     * Gives every integer in the vector to the consumer, in increasing order.
+     */
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < words.length; i++) {
+            for (long word = words[i]; word != 0; word &= word - 1) {
+                consumer.accept(i * Long.SIZE + Long.numberOfTrailingZeros(word));
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof BitVector other && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder string = new StringBuilder("{");
+        forEach(index -> string.append(string.length() > 1 ? ", " : "").append(index));
+        return string.append("}").toString();
+    }
+}
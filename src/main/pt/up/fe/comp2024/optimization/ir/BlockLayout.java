@@ -0,0 +1,325 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.*;
+
+/**
+ * Orders the blocks of a method so the likely path falls through, and removes the jumps that are no longer needed.
+ * <p>
+ * Before ordering, jumps to empty blocks and to other jumps go straight to their final target, jumps to a return are
+ * replaced by the return, and a jump to a small block that ends with a branch is replaced by a copy of that block.
+ * The last one rotates loops, whose condition is also checked once before the loop instead of jumping to it.
+ * <p>
+ * The frequency of each block is estimated with static heuristics: loops run {@value #LOOP_SCALE} times, branches
+ * that go back to the start of a loop or stay in it are taken with probability {@value #LIKELY}, and branches to a
+ * return with probability {@value #RETURN_PROBABILITY}. Edges are then chained in decreasing order of frequency, so
+ * the most frequent successor of each block is placed after it. Blocks that are not reachable are removed.
+ */
+public class BlockLayout {
+
+    private static final int MAX_ROTATED_INSTRUCTIONS = 8;
+    private static final double LOOP_SCALE = 10;
+    private static final double LIKELY = 0.9;
+    private static final double RETURN_PROBABILITY = 0.3;
+
+    private final IrMethod method;
+    private final List<BasicBlock> blocks;
+    private final Map<BasicBlock, BasicBlock> fallThroughs = new HashMap<>();
+
+    private BlockLayout(IrMethod method) {
+        this.method = method;
+        this.blocks = method.getBlocks();
+    }
+
+    public static void run(IrMethod method) {
+        new BlockLayout(method).run();
+    }
+
+    private void run() {
+        threadJumps();
+        removeEmptyBlocks();
+        duplicateReturns();
+        rotateLoops();
+
+        for (int i = 0; i + 1 < blocks.size(); i++) {
+            if (blocks.get(i).fallsThrough()) {
+                fallThroughs.put(blocks.get(i), blocks.get(i + 1));
+            }
+        }
+        method.updateCfg();
+
+        List<BasicBlock> order = placeBlocks();
+        blocks.clear();
+        blocks.addAll(fixJumps(order));
+        method.updateCfg();
+    }
+
+    /**
+     * Makes every jump go to the first block with instructions other than a jump that it would reach.
+     */
+    private void threadJumps() {
+        Map<BasicBlock, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < blocks.size(); i++) {
+            indexes.put(blocks.get(i), i);
+        }
+
+        for (BasicBlock block : blocks) {
+            IrInstruction terminator = block.getTerminator();
+            if (terminator == null || terminator.getTarget() == null) {
+                continue;
+            }
+
+            BasicBlock target = terminator.getTarget();
+            Set<BasicBlock> seen = new HashSet<>();
+            while (seen.add(target)) {
+                List<IrInstruction> instructions = target.getInstructions();
+                int index = indexes.get(target);
+
+                if (instructions.isEmpty() && index + 1 < blocks.size()) {
+                    target = blocks.get(index + 1);
+                } else if (instructions.size() == 1 && instructions.get(0).getOpcode() == IrOpcode.GOTO) {
+                    target = instructions.get(0).getTarget();
+                } else {
+                    break;
+                }
+            }
+
+            terminator.setTarget(target);
+        }
+    }
+
+    /**
+     * Removes the empty blocks other than the entry, which no jump targets after {@link #threadJumps()}.
+     */
+    private void removeEmptyBlocks() {
+        for (int i = blocks.size() - 2; i > 0; i--) {
+            if (blocks.get(i).getInstructions().isEmpty()) {
+                blocks.remove(i);
+            }
+        }
+    }
+
+    private void duplicateReturns() {
+        for (BasicBlock block : blocks) {
+            IrInstruction terminator = block.getTerminator();
+            if (terminator == null || terminator.getOpcode() != IrOpcode.GOTO) {
+                continue;
+            }
+
+            List<IrInstruction> targetInstructions = terminator.getTarget().getInstructions();
+            if (targetInstructions.size() == 1 && targetInstructions.get(0).getOpcode() == IrOpcode.RETURN) {
+                List<IrInstruction> instructions = block.getInstructions();
+                instructions.set(instructions.size() - 1, targetInstructions.get(0).duplicate());
+            }
+        }
+    }
+
+    /**
+     * Replaces each jump to a small block that ends with a branch by a copy of that block, when the branch, or its
+     * negation, falls through to the block after the jump.
+     */
+    private void rotateLoops() {
+        for (int i = 0; i + 1 < blocks.size(); i++) {
+            BasicBlock block = blocks.get(i);
+            BasicBlock next = blocks.get(i + 1);
+            IrInstruction terminator = block.getTerminator();
+            if (terminator == null || terminator.getOpcode() != IrOpcode.GOTO) {
+                continue;
+            }
+
+            BasicBlock target = terminator.getTarget();
+            int targetIndex = blocks.indexOf(target);
+            IrInstruction targetTerminator = target.getTerminator();
+            if (target == block || target == next || targetIndex + 1 >= blocks.size() || targetTerminator == null
+                    || targetTerminator.getOpcode() != IrOpcode.BRANCH
+                    || target.getInstructions().size() > MAX_ROTATED_INSTRUCTIONS) {
+                continue;
+            }
+
+            BasicBlock targetFallThrough = blocks.get(targetIndex + 1);
+            IrInstruction branch = targetTerminator.duplicate();
+            if (branch.getTarget() == next) {
+                if (!branch.invertCondition()) {
+                    continue;
+                }
+                branch.setTarget(targetFallThrough);
+            } else if (targetFallThrough != next) {
+                continue;
+            }
+
+            List<IrInstruction> instructions = block.getInstructions();
+            instructions.remove(instructions.size() - 1);
+            List<IrInstruction> targetInstructions = target.getInstructions();
+            for (int j = 0; j + 1 < targetInstructions.size(); j++) {
+                instructions.add(targetInstructions.get(j).duplicate());
+            }
+            instructions.add(branch);
+        }
+    }
+
+    /**
+     * @return the reachable blocks, in the order of the chains of their most frequent edges
+     */
+    private List<BasicBlock> placeBlocks() {
+        LoopInfo loopInfo = LoopInfo.of(method);
+        Map<BasicBlock, Double> frequencies = getFrequencies(loopInfo);
+
+        List<Edge> edges = new ArrayList<>();
+        for (BasicBlock block : blocks) {
+            if (!loopInfo.isReachable(block)) {
+                continue;
+            }
+
+            for (BasicBlock successor : block.getSuccessors()) {
+                double weight = frequencies.get(block) * getProbability(block, successor, loopInfo);
+                edges.add(new Edge(block, successor, weight, fallThroughs.get(block) == successor, edges.size()));
+            }
+        }
+
+        // The most frequent edges first, keeping the current layout on ties
+        edges.sort(Comparator.comparingDouble((Edge edge) -> -edge.weight)
+                .thenComparing(edge -> !edge.isFallThrough)
+                .thenComparingInt(edge -> edge.order));
+
+        Map<BasicBlock, List<BasicBlock>> chains = new HashMap<>();
+        for (BasicBlock block : blocks) {
+            if (loopInfo.isReachable(block)) {
+                chains.put(block, new ArrayList<>(List.of(block)));
+            }
+        }
+
+        BasicBlock entry = blocks.get(0);
+        for (Edge edge : edges) {
+            List<BasicBlock> fromChain = chains.get(edge.from);
+            List<BasicBlock> toChain = chains.get(edge.to);
+
+            if (edge.to == entry || fromChain == toChain || fromChain.get(fromChain.size() - 1) != edge.from
+                    || toChain.get(0) != edge.to) {
+                continue;
+            }
+
+            fromChain.addAll(toChain);
+            toChain.forEach(block -> chains.put(block, fromChain));
+        }
+
+        // The entry first, then the other chains in the order of their first block
+        List<BasicBlock> order = new ArrayList<>(chains.get(entry));
+        for (BasicBlock block : blocks) {
+            List<BasicBlock> chain = chains.get(block);
+            if (block != entry && chain != null && chain.get(0) == block) {
+                order.addAll(chain);
+            }
+        }
+
+        return order;
+    }
+
+    /**
+     * @return the estimated number of times each reachable block runs, for each time the method runs
+     */
+    private Map<BasicBlock, Double> getFrequencies(LoopInfo loopInfo) {
+        Map<BasicBlock, Double> frequencies = new HashMap<>();
+
+        for (BasicBlock block : loopInfo.getReversePostorder()) {
+            double frequency = block == blocks.get(0) ? 1 : 0;
+            for (BasicBlock predecessor : block.getPredecessors()) {
+                if (loopInfo.isReachable(predecessor) && !loopInfo.isBackEdge(predecessor, block)) {
+                    frequency += frequencies.get(predecessor) * getProbability(predecessor, block, loopInfo);
+                }
+            }
+
+            if (loopInfo.getLoops().containsKey(block)) {
+                frequency *= LOOP_SCALE;
+            }
+
+            frequencies.put(block, frequency);
+        }
+
+        return frequencies;
+    }
+
+    /**
+     * @return the estimated probability of the block going to the given successor after it runs
+     */
+    private double getProbability(BasicBlock block, BasicBlock successor, LoopInfo loopInfo) {
+        if (block.getSuccessors().size() < 2) {
+            return 1;
+        }
+
+        IrInstruction branch = block.getTerminator();
+        BasicBlock other = successor == branch.getTarget() ? fallThroughs.get(block) : branch.getTarget();
+
+        boolean isBackEdge = loopInfo.isBackEdge(block, successor);
+        if (isBackEdge != loopInfo.isBackEdge(block, other)) {
+            return isBackEdge ? LIKELY : 1 - LIKELY;
+        }
+
+        int depth = loopInfo.getDepth(successor);
+        int otherDepth = loopInfo.getDepth(other);
+        if (depth != otherDepth) {
+            return depth > otherDepth ? LIKELY : 1 - LIKELY;
+        }
+
+        boolean returns = endsWithReturn(successor);
+        if (returns != endsWithReturn(other)) {
+            return returns ? RETURN_PROBABILITY : 1 - RETURN_PROBABILITY;
+        }
+
+        return 0.5;
+    }
+
+    private static boolean endsWithReturn(BasicBlock block) {
+        IrInstruction terminator = block.getTerminator();
+        return terminator != null && terminator.getOpcode() == IrOpcode.RETURN;
+    }
+
+    /**
+     * @return the blocks in the given order, without jumps to the next block, and with the jumps needed where a block
+     * no longer falls through to the block it used to
+     */
+    private List<BasicBlock> fixJumps(List<BasicBlock> order) {
+        List<BasicBlock> fixed = new ArrayList<>();
+
+        for (int i = 0; i < order.size(); i++) {
+            BasicBlock block = order.get(i);
+            BasicBlock next = i + 1 < order.size() ? order.get(i + 1) : null;
+            BasicBlock fallThrough = fallThroughs.get(block);
+            IrInstruction terminator = block.getTerminator();
+            fixed.add(block);
+
+            if (terminator != null && terminator.getOpcode() == IrOpcode.GOTO) {
+                if (terminator.getTarget() == next) {
+                    block.getInstructions().remove(block.getInstructions().size() - 1);
+                }
+            } else if (fallThrough != null && fallThrough != next) {
+                if (terminator == null) {
+                    block.add(IrInstruction.jump(fallThrough));
+                } else if (terminator.getTarget() == next && terminator.invertCondition()) {
+                    terminator.setTarget(fallThrough);
+                } else {
+                    BasicBlock jump = method.newBlock(null);
+                    jump.add(IrInstruction.jump(fallThrough));
+                    fixed.add(jump);
+                }
+            }
+        }
+
+        return fixed;
+    }
+
+    private static class Edge {
+
+        private final BasicBlock from;
+        private final BasicBlock to;
+        private final double weight;
+        private final boolean isFallThrough;
+        private final int order;
+
+        private Edge(BasicBlock from, BasicBlock to, double weight, boolean isFallThrough, int order) {
+            this.from = from;
+            this.to = to;
+            this.weight = weight;
+            this.isFallThrough = isFallThrough;
+            this.order = order;
+        }
+    }
+}
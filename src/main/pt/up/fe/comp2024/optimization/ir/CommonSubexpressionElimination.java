@@ -0,0 +1,314 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.specs.comp.ollir.CallType;
+import org.specs.comp.ollir.OperationType;
+import org.specs.comp.ollir.Type;
+
+import java.util.*;
+
+/**
+ * Reuses the values a method already computed instead of computing them again.
+ * <p>
+ * First, each block is numbered locally: every value gets a number, from a hash table keyed by the operation and the
+ * numbers of its operands, so copies and commutative operations with swapped operands get the same number. An
+ * instruction that computes a number a variable still holds becomes a copy of that variable, and a copy of a value a
+ * variable already holds is removed. The lengths of arrays never change, but loads of array elements and fields are
+ * also keyed by the number of stores to memory and calls in the block before them, since arrays may be aliased. A
+ * store to an element gives the stored value to the later loads of that element, and an operation that reads the same
+ * element twice loads it once.
+ * <p>
+ * Then, the expressions that are still computed again in other blocks, when {@link AvailableExpressions} finds that
+ * every path computed them before, are kept in a new variable wherever they are computed, and the instructions that
+ * computed them again copy it instead. The copies that are left are removed by the passes that run after this one.
+ */
+public class CommonSubexpressionElimination {
+
+    private static final Set<OperationType> COMMUTATIVE = EnumSet.of(OperationType.ADD, OperationType.MUL,
+            OperationType.AND, OperationType.ANDB, OperationType.OR, OperationType.ORB, OperationType.XOR,
+            OperationType.EQ, OperationType.NEQ);
+
+    private final IrMethod method;
+
+    // The state of the numbering of the current block
+    private final Map<Integer, Integer> varNumbers = new HashMap<>();
+    private final Map<List<Object>, Integer> numbers = new HashMap<>();
+    private final Map<Integer, Integer> holders = new HashMap<>();
+    private final Map<Integer, Integer> constants = new HashMap<>();
+    private final Map<Integer, IrInstruction> computations = new HashMap<>();
+    private final List<IrInstruction> numbered = new ArrayList<>();
+    private int nextNumber;
+    private int numStores;
+
+    private int numLocal = 0;
+    private int numGlobal = 0;
+
+    private CommonSubexpressionElimination(IrMethod method) {
+        this.method = method;
+    }
+
+    /**
+     * Removes the common subexpressions of the method and updates its CFG.
+     */
+    public static CommonSubexpressionElimination run(IrMethod method) {
+        CommonSubexpressionElimination elimination = new CommonSubexpressionElimination(method);
+        method.getBlocks().forEach(elimination::numberBlock);
+
+        method.updateCfg();
+        elimination.eliminateGlobal();
+
+        return elimination;
+    }
+
+    private void numberBlock(BasicBlock block) {
+        varNumbers.clear();
+        numbers.clear();
+        holders.clear();
+        constants.clear();
+        computations.clear();
+        numbered.clear();
+        nextNumber = 0;
+        numStores = 0;
+
+        for (IrInstruction instruction : block.getInstructions()) {
+            IrInstruction load = replaceLoads(instruction);
+            if (load != null) {
+                number(load);
+                numbered.add(load);
+            }
+
+            if (number(instruction)) {
+                numbered.add(instruction);
+            }
+        }
+
+        block.getInstructions().clear();
+        block.getInstructions().addAll(numbered);
+    }
+
+    /**
+     * Replaces the elements the instruction reads by the variables or constants that hold their values.
+     *
+     * @return a load of the element the instruction reads twice, to be placed before it, or null if there is none
+     */
+    private IrInstruction replaceLoads(IrInstruction instruction) {
+        for (int i = 0; i < instruction.getNumArgs(); i++) {
+            IrOperand arg = instruction.getArg(i);
+            if (!arg.isElement()) {
+                continue;
+            }
+
+            IrOperand known = find(getNumber(arg), arg.getType());
+            if (known != null) {
+                instruction.setArg(i, known);
+                numLocal++;
+            }
+        }
+
+        if (instruction.getOpcode() != IrOpcode.BINARY || !instruction.getArg(0).isElement()
+                || !instruction.getArg(1).isElement()
+                || getNumber(instruction.getArg(0)) != getNumber(instruction.getArg(1))) {
+            return null;
+        }
+
+        IrOperand element = instruction.getArg(0);
+        IrOperand temp = IrOperand.var(method.newVar("cse", element.getType()), element.getType());
+        instruction.setArg(0, temp);
+        instruction.setArg(1, temp);
+        numLocal++;
+
+        return IrInstruction.copy(temp, element);
+    }
+
+    /**
+     * Numbers the value the instruction computes, replacing it by a copy if a variable already holds it.
+     *
+     * @return whether the instruction is kept, which is not the case for copies of a value the variable already holds
+     */
+    private boolean number(IrInstruction instruction) {
+        int number = switch (instruction.getOpcode()) {
+            case COPY -> getNumber(instruction.getArg(0));
+            case BINARY, UNARY -> {
+                List<Object> key = new ArrayList<>(List.of(instruction.getOpcode(), instruction.getOperation()));
+                List<Integer> argNumbers = new ArrayList<>();
+                for (IrOperand arg : instruction.getArgs()) {
+                    argNumbers.add(getNumber(arg));
+                }
+                if (COMMUTATIVE.contains(instruction.getOperation())) {
+                    Collections.sort(argNumbers);
+                }
+
+                key.addAll(argNumbers);
+                yield reuse(instruction, key);
+            }
+            case CALL -> instruction.getCallType() == CallType.arraylength
+                    ? reuse(instruction, List.of(CallType.arraylength, getNumber(instruction.getArg(0))))
+                    : nextNumber++;
+            case GETFIELD -> reuse(instruction, List.of(IrOpcode.GETFIELD, getNumber(instruction.getArg(0)),
+                    instruction.getArg(1).getName(), numStores));
+            default -> -1;
+        };
+
+        // After the loads of the instruction, which happen before it stores
+        if (AvailableExpressions.storesToMemory(instruction)) {
+            numStores++;
+        }
+
+        IrOperand dest = instruction.getDest();
+        if (dest == null || number < 0) {
+            return true;
+        }
+
+        // The later loads of the element read the stored value, until something else is stored
+        if (dest.isElement()) {
+            numbers.put(getLoadKey(dest), number);
+            return true;
+        }
+
+        int var = dest.getVar();
+        if (instruction.getOpcode() == IrOpcode.COPY && varNumbers.get(var) != null && varNumbers.get(var) == number) {
+            numLocal++;
+            return false;
+        }
+
+        varNumbers.put(var, number);
+        holders.put(number, var);
+        return true;
+    }
+
+    /**
+     * Replaces the instruction by a copy of the variable that holds the value of the key. When the variable that first
+     * held it was assigned again, the instruction that computed it keeps it in a new variable.
+     *
+     * @return the number of the key
+     */
+    private int reuse(IrInstruction instruction, List<Object> key) {
+        Integer number = numbers.get(key);
+        if (number == null) {
+            number = nextNumber++;
+            numbers.put(key, number);
+            computations.put(number, instruction);
+            return number;
+        }
+
+        if (instruction.getDest() == null) {
+            return number;
+        }
+
+        IrOperand known = find(number, instruction.getDest().getType());
+        IrInstruction computation = computations.get(number);
+        if (known == null && computation != null && computation.getDest() != null
+                && computation.getDest().isVar()) {
+            Type type = computation.getDest().getType();
+            known = IrOperand.var(method.newVar("cse", type), type);
+
+            numbered.add(numbered.indexOf(computation) + 1, IrInstruction.copy(computation.getDest(), known));
+            computation.setDest(known);
+            varNumbers.put(known.getVar(), number);
+            holders.put(number, known.getVar());
+        }
+
+        if (known != null) {
+            instruction.makeCopy(known);
+            numLocal++;
+        }
+
+        return number;
+    }
+
+    private int getNumber(IrOperand operand) {
+        return switch (operand.getKind()) {
+            case VAR -> varNumbers.computeIfAbsent(operand.getVar(), var -> nextNumber++);
+            case CONST -> {
+                int number = numbers.computeIfAbsent(List.of(IrOperand.Kind.CONST, operand.getValue()),
+                        key -> nextNumber++);
+                constants.put(number, operand.getValue());
+                yield number;
+            }
+            case ELEMENT -> numbers.computeIfAbsent(getLoadKey(operand), key -> nextNumber++);
+            case NAME -> -1;
+        };
+    }
+
+    private List<Object> getLoadKey(IrOperand element) {
+        return List.of(IrOperand.Kind.ELEMENT, getNumber(IrOperand.var(element.getVar(), null)),
+                getNumber(element.getIndex()), numStores);
+    }
+
+    /**
+     * @return the constant with the number, or the variable that still holds it, or null if there is none
+     */
+    private IrOperand find(int number, Type type) {
+        if (constants.containsKey(number)) {
+            return IrOperand.constant(constants.get(number), type);
+        }
+
+        Integer holder = holders.get(number);
+        if (holder == null || varNumbers.get(holder) != number) {
+            return null;
+        }
+
+        return IrOperand.var(holder, type);
+    }
+
+    private void eliminateGlobal() {
+        AvailableExpressions availableExpressions = AvailableExpressions.of(method);
+        BitVector redundant = new BitVector(availableExpressions.getNumExpressions());
+        Set<IrInstruction> redundantInstructions = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (BasicBlock block : method.getBlocks()) {
+            BitVector available = availableExpressions.getIn(block).copy();
+            for (IrInstruction instruction : block.getInstructions()) {
+                int id = availableExpressions.getId(instruction);
+                if (id >= 0 && available.get(id)) {
+                    redundant.set(id);
+                    redundantInstructions.add(instruction);
+                }
+
+                availableExpressions.update(instruction, available);
+            }
+        }
+
+        if (redundant.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, IrOperand> temps = new HashMap<>();
+        for (BasicBlock block : method.getBlocks()) {
+            List<IrInstruction> instructions = block.getInstructions();
+
+            for (int i = 0; i < instructions.size(); i++) {
+                IrInstruction instruction = instructions.get(i);
+                int id = availableExpressions.getId(instruction);
+                if (id < 0 || !redundant.get(id)) {
+                    continue;
+                }
+
+                Type type = instruction.getDest().getType();
+                IrOperand temp = temps.computeIfAbsent(id, key -> IrOperand.var(method.newVar("cse", type), type));
+
+                if (redundantInstructions.contains(instruction)) {
+                    numGlobal++;
+                } else {
+                    IrInstruction computation = instruction.duplicate();
+                    computation.setDest(temp);
+                    instructions.add(i++, computation);
+                }
+                instruction.makeCopy(temp);
+            }
+        }
+    }
+
+    /**
+     * @return the number of values reused in the same block, including the copies removed
+     */
+    public int getNumLocal() {
+        return numLocal;
+    }
+
+    /**
+     * @return the number of expressions computed in other blocks that were reused
+     */
+    public int getNumGlobal() {
+        return numGlobal;
+    }
+}
@@ -0,0 +1,423 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.specs.comp.ollir.OperationType;
+
+import java.util.*;
+
+/**
+ * Finds the variables of a method that always hold the same constant with sparse conditional constant propagation, in
+ * SSA form, and replaces their reads by the constant, removing the code that can never run.
+ * <p>
+ * Each variable starts as unknown and can only become a constant and then varying. Only the edges of the CFG that can
+ * be taken are followed: branches whose condition is a constant only take one of them, and phi instructions ignore the
+ * values that come from edges that are not taken. Variables are evaluated again when a variable they read changes,
+ * and each one changes at most twice, so the propagation takes linear time.
+ * <p>
+ * Branches that only take one edge become jumps, or are removed, and the blocks no edge reaches are removed. The
+ * instructions that assign constants are removed, unless a phi instruction that is kept reads their variable.
+ */
+public class ConditionalConstantPropagation {
+
+    private static final int UNKNOWN = 0;
+    private static final int CONSTANT = 1;
+    private static final int VARYING = 2;
+
+    private final IrMethod method;
+    private final SsaForm ssaForm;
+    private final int[] states;
+    private final int[] values;
+    private final List<List<IrInstruction>> uses = new ArrayList<>();
+    private final Map<IrInstruction, BasicBlock> blocks = new IdentityHashMap<>();
+
+    private final BitSet executableBlocks = new BitSet();
+    private final Set<Long> executableEdges = new HashSet<>();
+    private final Deque<BasicBlock[]> edgeWorklist = new ArrayDeque<>();
+    private final Deque<IrInstruction> varWorklist = new ArrayDeque<>();
+
+    private int numConstants = 0;
+    private int numRemovedBlocks = 0;
+
+    private ConditionalConstantPropagation(IrMethod method, SsaForm ssaForm) {
+        this.method = method;
+        this.ssaForm = ssaForm;
+        this.states = new int[method.getNumVars()];
+        this.values = new int[method.getNumVars()];
+
+        for (int var = 0; var < method.getNumVars(); var++) {
+            uses.add(new ArrayList<>());
+
+            // 'this', the parameters and the variables read before being assigned
+            if (ssaForm.isOriginalVar(var)) {
+                states[var] = VARYING;
+            }
+        }
+
+        for (BasicBlock block : method.getBlocks()) {
+            for (IrInstruction instruction : block.getInstructions()) {
+                blocks.put(instruction, block);
+                instruction.forEachUse(var -> {
+                    List<IrInstruction> varUses = uses.get(var);
+                    if (varUses.isEmpty() || varUses.get(varUses.size() - 1) != instruction) {
+                        varUses.add(instruction);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Propagates the constants of the method, whose CFG must be up to date, and updates it.
+     */
+    public static ConditionalConstantPropagation run(IrMethod method) {
+        method.updateCfg();
+        SsaForm ssaForm = SsaForm.construct(method);
+
+        ConditionalConstantPropagation propagation = new ConditionalConstantPropagation(method, ssaForm);
+        propagation.propagate();
+        propagation.rewrite();
+
+        ssaForm.destruct();
+        method.updateCfg();
+
+        return propagation;
+    }
+
+    private void propagate() {
+        BasicBlock entry = method.getBlocks().get(0);
+        executableBlocks.set(entry.getId());
+        visitBlock(entry);
+
+        while (!edgeWorklist.isEmpty() || !varWorklist.isEmpty()) {
+            while (!edgeWorklist.isEmpty()) {
+                BasicBlock[] edge = edgeWorklist.poll();
+                BasicBlock to = edge[1];
+
+                if (executableBlocks.get(to.getId())) {
+                    // Only the phi instructions depend on the edges the block is entered from
+                    for (IrInstruction phi : to.getInstructions()) {
+                        if (phi.getOpcode() != IrOpcode.PHI) {
+                            break;
+                        }
+                        visit(phi, to);
+                    }
+                } else {
+                    executableBlocks.set(to.getId());
+                    visitBlock(to);
+                }
+            }
+
+            while (!varWorklist.isEmpty()) {
+                IrInstruction instruction = varWorklist.poll();
+                BasicBlock block = blocks.get(instruction);
+                if (executableBlocks.get(block.getId())) {
+                    visit(instruction, block);
+                }
+            }
+        }
+    }
+
+    private void visitBlock(BasicBlock block) {
+        for (IrInstruction instruction : block.getInstructions()) {
+            visit(instruction, block);
+        }
+
+        IrInstruction terminator = block.getTerminator();
+        if (terminator == null || terminator.getOpcode() != IrOpcode.BRANCH) {
+            block.getSuccessors().forEach(successor -> addEdge(block, successor));
+        }
+    }
+
+    private void visit(IrInstruction instruction, BasicBlock block) {
+        switch (instruction.getOpcode()) {
+            case COPY -> setValue(instruction, getState(instruction.getArg(0)), getValue(instruction.getArg(0)));
+            case BINARY, UNARY -> evaluate(instruction);
+            case PHI -> visitPhi(instruction, block);
+            case BRANCH -> visitBranch(instruction, block);
+            default -> {
+                if (instruction.getDefinedVar() >= 0) {
+                    setValue(instruction, VARYING, 0);
+                }
+            }
+        }
+    }
+
+    private void visitPhi(IrInstruction phi, BasicBlock block) {
+        int state = UNKNOWN;
+        int value = 0;
+
+        for (int i = 0; i < phi.getNumArgs(); i++) {
+            if (!executableEdges.contains(getEdgeKey(phi.getSource(i), block))) {
+                continue;
+            }
+
+            IrOperand arg = phi.getArg(i);
+            int argState = getState(arg);
+            if (argState == VARYING || argState == CONSTANT && state == CONSTANT && getValue(arg) != value) {
+                state = VARYING;
+                break;
+            }
+            if (argState == CONSTANT) {
+                state = CONSTANT;
+                value = getValue(arg);
+            }
+        }
+
+        setValue(phi, state, value);
+    }
+
+    private void visitBranch(IrInstruction branch, BasicBlock block) {
+        int state;
+        int value;
+        if (branch.getOperation() == null) {
+            state = getState(branch.getArg(0));
+            value = getValue(branch.getArg(0));
+        } else {
+            int[] result = compute(branch);
+            state = result == null ? VARYING : result[0];
+            value = result == null ? 0 : result[1];
+        }
+
+        BasicBlock fallThrough = getFallThrough(block);
+        if (state == VARYING) {
+            addEdge(block, branch.getTarget());
+            addEdge(block, fallThrough);
+        } else if (state == CONSTANT) {
+            addEdge(block, value != 0 ? branch.getTarget() : fallThrough);
+        }
+    }
+
+    private void evaluate(IrInstruction instruction) {
+        int[] result = compute(instruction);
+        if (result == null) {
+            setValue(instruction, VARYING, 0);
+        } else {
+            setValue(instruction, result[0], result[1]);
+        }
+    }
+
+    /**
+     * @return the state and the value of the operation of the instruction, or null if it cannot be computed
+     */
+    private int[] compute(IrInstruction instruction) {
+        int state = UNKNOWN;
+        for (IrOperand arg : instruction.getArgs()) {
+            state = Math.max(state, getState(arg));
+        }
+        if (state != CONSTANT) {
+            return new int[]{state, 0};
+        }
+
+        Integer value = apply(instruction.getOperation(), instruction.getArgs());
+        return value == null ? null : new int[]{CONSTANT, value};
+    }
+
+    /**
+     * @return the value of the operation on the constant arguments, or null if it is not known or would throw
+     */
+    private Integer apply(OperationType operation, IrOperand[] args) {
+        int left = getValue(args[0]);
+        if (args.length == 1) {
+            return operation == OperationType.NOTB ? 1 - left : null;
+        }
+
+        int right = getValue(args[1]);
+        return switch (operation) {
+            case ADD -> left + right;
+            case SUB -> left - right;
+            case MUL -> left * right;
+            case DIV -> right == 0 ? null : left / right;
+            case SHL -> left << right;
+            case SHR -> left >> right;
+            case SHRR -> left >>> right;
+            case AND, ANDB -> left & right;
+            case OR, ORB -> left | right;
+            case XOR -> left ^ right;
+            case LTH -> left < right ? 1 : 0;
+            case GTH -> left > right ? 1 : 0;
+            case LTE -> left <= right ? 1 : 0;
+            case GTE -> left >= right ? 1 : 0;
+            case EQ -> left == right ? 1 : 0;
+            case NEQ -> left != right ? 1 : 0;
+            default -> null;
+        };
+    }
+
+    /**
+     * Lowers the state of the variable the instruction assigns, if it changed, and adds its reads to the worklist.
+     */
+    private void setValue(IrInstruction instruction, int state, int value) {
+        int var = instruction.getDefinedVar();
+        if (var < 0) {
+            return;
+        }
+
+        if (state == CONSTANT && states[var] == CONSTANT && value != values[var]) {
+            state = VARYING;
+        }
+        if (state <= states[var]) {
+            return;
+        }
+
+        states[var] = state;
+        values[var] = value;
+        varWorklist.addAll(uses.get(var));
+    }
+
+    private int getState(IrOperand operand) {
+        return switch (operand.getKind()) {
+            case CONST -> CONSTANT;
+            case VAR -> states[operand.getVar()];
+            default -> VARYING;
+        };
+    }
+
+    private int getValue(IrOperand operand) {
+        return operand.isConstant() ? operand.getValue() : values[operand.getVar()];
+    }
+
+    private void addEdge(BasicBlock from, BasicBlock to) {
+        if (executableEdges.add(getEdgeKey(from, to))) {
+            edgeWorklist.add(new BasicBlock[]{from, to});
+        }
+    }
+
+    private long getEdgeKey(BasicBlock from, BasicBlock to) {
+        return (long) from.getId() * method.getNumBlockIds() + to.getId();
+    }
+
+    /**
+     * @return the successor of the block ending with a branch that is not its target
+     */
+    private static BasicBlock getFallThrough(BasicBlock block) {
+        BasicBlock target = block.getTerminator().getTarget();
+        for (BasicBlock successor : block.getSuccessors()) {
+            if (successor != target) {
+                return successor;
+            }
+        }
+
+        return target;
+    }
+
+    private void rewrite() {
+        // The constants read by phi instructions that are kept are still assigned, for when they are taken out
+        BitSet neededVars = new BitSet();
+        for (BasicBlock block : method.getBlocks()) {
+            if (!executableBlocks.get(block.getId())) {
+                continue;
+            }
+
+            for (IrInstruction phi : block.getInstructions()) {
+                if (phi.getOpcode() != IrOpcode.PHI) {
+                    break;
+                }
+                if (states[phi.getDefinedVar()] == CONSTANT) {
+                    continue;
+                }
+
+                for (int i = 0; i < phi.getNumArgs(); i++) {
+                    if (phi.getArg(i).isVar() && executableEdges.contains(getEdgeKey(phi.getSource(i), block))) {
+                        neededVars.set(phi.getArg(i).getVar());
+                    }
+                }
+            }
+        }
+
+        for (BasicBlock block : method.getBlocks()) {
+            if (executableBlocks.get(block.getId())) {
+                rewriteBlock(block, neededVars);
+            }
+        }
+
+        numRemovedBlocks = method.getBlocks().size() - executableBlocks.cardinality();
+        method.getBlocks().removeIf(block -> !executableBlocks.get(block.getId()));
+    }
+
+    private void rewriteBlock(BasicBlock block, BitSet neededVars) {
+        List<IrInstruction> instructions = block.getInstructions();
+        List<IrInstruction> constantPhis = new ArrayList<>();
+
+        for (Iterator<IrInstruction> iterator = instructions.iterator(); iterator.hasNext(); ) {
+            IrInstruction instruction = iterator.next();
+            int defined = instruction.getDefinedVar();
+
+            if (defined >= 0 && states[defined] == CONSTANT && isPure(instruction)) {
+                numConstants++;
+                IrOperand constant = IrOperand.constant(values[defined], instruction.getDest().getType());
+
+                if (instruction.getOpcode() == IrOpcode.PHI) {
+                    iterator.remove();
+                    if (neededVars.get(defined)) {
+                        constantPhis.add(IrInstruction.copy(instruction.getDest(), constant));
+                    }
+                } else if (neededVars.get(defined)) {
+                    instruction.makeCopy(constant);
+                } else {
+                    iterator.remove();
+                }
+                continue;
+            }
+
+            if (instruction.getOpcode() != IrOpcode.PHI) {
+                replaceConstantUses(instruction);
+            }
+        }
+
+        // After the phi instructions that are left
+        int numPhis = 0;
+        while (numPhis < instructions.size() && instructions.get(numPhis).getOpcode() == IrOpcode.PHI) {
+            numPhis++;
+        }
+        instructions.addAll(numPhis, constantPhis);
+
+        IrInstruction terminator = block.getTerminator();
+        if (terminator != null && terminator.getOpcode() == IrOpcode.BRANCH) {
+            boolean takesTarget = executableEdges.contains(getEdgeKey(block, terminator.getTarget()));
+            boolean fallsThrough = executableEdges.contains(getEdgeKey(block, getFallThrough(block)));
+
+            if (!takesTarget) {
+                instructions.remove(instructions.size() - 1);
+            } else if (!fallsThrough) {
+                instructions.set(instructions.size() - 1, IrInstruction.jump(terminator.getTarget()));
+            }
+        }
+    }
+
+    private void replaceConstantUses(IrInstruction instruction) {
+        Set<Integer> constantVars = new HashSet<>();
+        instruction.forEachUse(var -> {
+            if (states[var] == CONSTANT) {
+                constantVars.add(var);
+            }
+        });
+
+        for (int var : constantVars) {
+            instruction.replaceUses(var, IrOperand.constant(values[var], method.getVarType(var)));
+        }
+    }
+
+    private static boolean isPure(IrInstruction instruction) {
+        return switch (instruction.getOpcode()) {
+            case COPY, BINARY, UNARY, PHI -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * @return the number of instructions that assigned a constant, which were removed or now copy the constant
+     */
+    public int getNumConstants() {
+        return numConstants;
+    }
+
+    /**
+     * @return the number of blocks removed because no edge that can be taken reaches them
+     */
+    public int getNumRemovedBlocks() {
+        return numRemovedBlocks;
+    }
+
+    public SsaForm getSsaForm() {
+        return ssaForm;
+    }
+}
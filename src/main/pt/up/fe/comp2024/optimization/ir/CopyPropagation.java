@@ -0,0 +1,156 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Removes the copies between variables of a method, which the generated code makes after most computations and the
+ * other passes leave in place of the computations they remove.
+ * <p>
+ * First, moves are coalesced in each block: when an instruction assigns a variable that is only read by a later copy
+ * to another variable, and is not live after it, the instruction assigns that variable directly and the copy is
+ * removed, as long as nothing in between reads or assigns it. So {@code tmp0 := i + 1; i := tmp0} becomes
+ * {@code i := i + 1}.
+ * <p>
+ * Then, copies are propagated: each read of a variable that holds a copy of another variable or a constant, on every
+ * path to it, as {@link AvailableCopies} finds, reads that variable or constant instead. The copies that are no longer
+ * read are removed by the elimination of dead code.
+ */
+public class CopyPropagation {
+
+    private final IrMethod method;
+    private int numCoalesced = 0;
+    private int numPropagated = 0;
+
+    private CopyPropagation(IrMethod method) {
+        this.method = method;
+    }
+
+    /**
+     * Removes the copies of the method and updates its CFG.
+     */
+    public static CopyPropagation run(IrMethod method) {
+        CopyPropagation propagation = new CopyPropagation(method);
+        method.updateCfg();
+
+        // Coalescing does not change which variables are live between blocks
+        Liveness liveness = Liveness.of(method);
+        method.getBlocks().forEach(block -> propagation.coalesce(block, liveness.getLiveOut(block).copy()));
+        propagation.propagate();
+
+        return propagation;
+    }
+
+    /**
+     * Coalesces the moves of the block, walking it backwards from the variables live at its end.
+     */
+    private void coalesce(BasicBlock block, BitVector live) {
+        List<IrInstruction> instructions = block.getInstructions();
+
+        for (int i = instructions.size() - 1; i >= 0; i--) {
+            IrInstruction instruction = instructions.get(i);
+            int def = findCoalescedDef(instructions, i, live);
+
+            if (def >= 0) {
+                // The variables live before the copy are the ones live after it, until the new assignment
+                instructions.get(def).setDest(instruction.getDest());
+                instructions.remove(i);
+                numCoalesced++;
+                continue;
+            }
+
+            int defined = instruction.getDefinedVar();
+            if (defined >= 0) {
+                live.clear(defined);
+            }
+            instruction.forEachUse(live::set);
+        }
+    }
+
+    /**
+     * @return the index of the instruction that assigns the source of the copy at the given index, if it can assign
+     * the destination of the copy instead, or else -1
+     */
+    private static int findCoalescedDef(List<IrInstruction> instructions, int index, BitVector live) {
+        IrInstruction copy = instructions.get(index);
+        if (!AvailableCopies.isCopy(copy) || !copy.getArg(0).isVar() || live.get(copy.getArg(0).getVar())) {
+            return -1;
+        }
+
+        int source = copy.getArg(0).getVar();
+        int dest = copy.getDefinedVar();
+        for (int i = index - 1; i >= 0; i--) {
+            IrInstruction instruction = instructions.get(i);
+            if (instruction.getDefinedVar() == source) {
+                return instruction.getDest().isVar() ? i : -1;
+            }
+
+            if (instruction.reads(source) || instruction.reads(dest) || instruction.getDefinedVar() == dest) {
+                return -1;
+            }
+        }
+
+        return -1;
+    }
+
+    private void propagate() {
+        AvailableCopies availableCopies = AvailableCopies.of(method);
+
+        for (BasicBlock block : method.getBlocks()) {
+            BitVector available = availableCopies.getIn(block).copy();
+
+            for (IrInstruction instruction : block.getInstructions()) {
+                Set<Integer> read = new HashSet<>();
+                instruction.forEachUse(read::add);
+
+                for (int var : read) {
+                    IrOperand source = availableCopies.findSource(var, available);
+                    if (source != null && (source.isVar() || !isArray(instruction, var))) {
+                        instruction.replaceUses(var, source);
+                        numPropagated++;
+                    }
+                }
+
+                availableCopies.update(instruction, available);
+            }
+
+            // A copy of a variable to itself is left when the variable already held the copied one
+            block.getInstructions().removeIf(instruction -> instruction.getOpcode() == IrOpcode.COPY
+                    && instruction.getDest().isVar() && instruction.getArg(0).equals(instruction.getDest()));
+        }
+    }
+
+    /**
+     * @return whether the instruction reads the variable as the array of an element, which a constant cannot replace
+     */
+    private static boolean isArray(IrInstruction instruction, int var) {
+        IrOperand dest = instruction.getDest();
+        if (dest != null && dest.isElement() && dest.getVar() == var) {
+            return true;
+        }
+
+        for (IrOperand arg : instruction.getArgs()) {
+            if (arg.isElement() && arg.getVar() == var) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the number of copies removed by assigning their destination directly
+     */
+    public int getNumCoalesced() {
+        return numCoalesced;
+    }
+
+    /**
+     * @return the number of variables replaced by the variable or constant they held a copy of, counted once for each
+     * instruction that reads them
+     */
+    public int getNumPropagated() {
+        return numPropagated;
+    }
+}
@@ -0,0 +1,180 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.*;
+
+/**
+ * A dataflow problem over the blocks of a method, whose CFG must be up to date, with facts stored as bit vectors.
+ * <p>
+ * Subclasses give the number of facts, the direction the facts flow in, how they meet where paths join and the facts
+ * each block generates and kills, and then call {@link #solve()}. The value at the other end of a block is the facts it
+ * generates and the ones at its start, in the direction of the flow, that it does not kill.
+ * <p>
+ * Blocks are solved with a worklist that starts in reverse postorder for forward problems and in postorder for
+ * backward ones, so outside loops most blocks are only visited once.
+ */
+public abstract class DataflowAnalysis {
+
+    public enum Direction {
+        FORWARD,
+        BACKWARD
+    }
+
+    public enum Meet {
+        UNION,
+        INTERSECTION
+    }
+
+    protected final IrMethod method;
+    private final Direction direction;
+    private final Meet meet;
+    private final int size;
+
+    private final BitVector[] in;
+    private final BitVector[] out;
+    private int numVisits;
+
+    protected DataflowAnalysis(IrMethod method, Direction direction, Meet meet, int size) {
+        this.method = method;
+        this.direction = direction;
+        this.meet = meet;
+        this.size = size;
+        this.in = new BitVector[method.getNumBlockIds()];
+        this.out = new BitVector[method.getNumBlockIds()];
+    }
+
+    /**
+     * Adds the facts the block generates to {@code gen} and the ones it kills to {@code kill}, which start empty.
+     */
+    protected abstract void transfer(BasicBlock block, BitVector gen, BitVector kill);
+
+    /**
+     * @return the facts at the start of the entry, for forward problems, or at the end of the blocks that return, for
+     * backward ones, which are met with the ones of the loops that go back to the entry
+     */
+    protected BitVector getBoundary() {
+        return new BitVector(size);
+    }
+
+    protected final void solve() {
+        List<BasicBlock> order = getOrder();
+        int numIds = method.getNumBlockIds();
+        BitVector[] gen = new BitVector[numIds];
+        BitVector[] kill = new BitVector[numIds];
+        BitVector[] before = direction == Direction.FORWARD ? in : out;
+        BitVector[] after = direction == Direction.FORWARD ? out : in;
+
+        BitVector boundary = getBoundary();
+        for (BasicBlock block : order) {
+            int id = block.getId();
+            gen[id] = new BitVector(size);
+            kill[id] = new BitVector(size);
+            transfer(block, gen[id], kill[id]);
+
+            before[id] = isBoundary(block) ? boundary.copy() : getTop();
+            after[id] = meet == Meet.UNION ? gen[id].copy() : BitVector.full(size);
+        }
+
+        Deque<BasicBlock> worklist = new ArrayDeque<>(order);
+        BitSet queued = new BitSet();
+        order.forEach(block -> queued.set(block.getId()));
+
+        BitVector value = new BitVector(size);
+        while (!worklist.isEmpty()) {
+            BasicBlock block = worklist.poll();
+            int id = block.getId();
+            queued.clear(id);
+            numVisits++;
+
+            List<BasicBlock> sources = getSources(block);
+            BitVector joined = before[id];
+            if (isBoundary(block)) {
+                joined.assign(boundary);
+            } else if (!sources.isEmpty()) {
+                joined.assign(after[sources.get(0).getId()]);
+            }
+            for (int i = isBoundary(block) ? 0 : 1; i < sources.size(); i++) {
+                if (meet == Meet.UNION) {
+                    joined.or(after[sources.get(i).getId()]);
+                } else {
+                    joined.and(after[sources.get(i).getId()]);
+                }
+            }
+
+            value.assign(before[id]);
+            value.andNot(kill[id]);
+            value.or(gen[id]);
+
+            if (after[id].assign(value)) {
+                for (BasicBlock target : getTargets(block)) {
+                    if (!queued.get(target.getId())) {
+                        queued.set(target.getId());
+                        worklist.add(target);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the reachable blocks in the order the facts flow, then the unreachable ones
+     */
+    private List<BasicBlock> getOrder() {
+        LoopInfo loopInfo = LoopInfo.of(method);
+        List<BasicBlock> order = new ArrayList<>(loopInfo.getReversePostorder());
+        if (direction == Direction.BACKWARD) {
+            Collections.reverse(order);
+        }
+
+        for (BasicBlock block : method.getBlocks()) {
+            if (!loopInfo.isReachable(block)) {
+                order.add(block);
+            }
+        }
+
+        return order;
+    }
+
+    private boolean isBoundary(BasicBlock block) {
+        return direction == Direction.FORWARD ? block == method.getBlocks().get(0) : block.getSuccessors().isEmpty();
+    }
+
+    /**
+     * @return the value that does not change the result of a meet, which blocks without sources keep
+     */
+    private BitVector getTop() {
+        return meet == Meet.UNION ? new BitVector(size) : BitVector.full(size);
+    }
+
+    private List<BasicBlock> getSources(BasicBlock block) {
+        return direction == Direction.FORWARD ? block.getPredecessors() : block.getSuccessors();
+    }
+
+    private List<BasicBlock> getTargets(BasicBlock block) {
+        return direction == Direction.FORWARD ? block.getSuccessors() : block.getPredecessors();
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the facts at the start of the block, which must not be changed
+     */
+    public BitVector getIn(BasicBlock block) {
+        return in[block.getId()];
+    }
+
+    /**
+     * @return the facts at the end of the block, which must not be changed
+     */
+    public BitVector getOut(BasicBlock block) {
+        return out[block.getId()];
+    }
+
+    /**
+     * @return the number of times a block was solved, which is at least the number of blocks
+     */
+    public int getNumVisits() {
+        return numVisits;
+    }
+}
@@ -0,0 +1,139 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.specs.comp.ollir.CallType;
+import org.specs.comp.ollir.OperationType;
+
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * Removes the blocks of a method that cannot be reached from its entry and the instructions whose only effect is to
+ * assign a variable that is not live after them.
+ * <p>
+ * Instructions are removed walking each block backwards from the variables live at its end, so a chain of
+ * assignments that only feed each other in the same block is removed at once. The liveness is solved again while
+ * something is removed, since removing the reads of a variable may make the assignments that reach them dead in other
+ * blocks.
+ * <p>
+ * Only copies, operations and field reads are removed. Calls that assign a dead variable are kept without the
+ * assignment, and stores to arrays and fields are always kept, as are the instructions that may throw: reads of array
+ * elements, divisions by something that is not a constant other than 0, {@code new} and {@code arraylength}.
+ */
+public class DeadCodeElimination {
+
+    private final IrMethod method;
+    private int numRemovedInstructions = 0;
+    private int numRemovedBlocks = 0;
+
+    private DeadCodeElimination(IrMethod method) {
+        this.method = method;
+    }
+
+    /**
+     * Removes the dead code of the method and updates its CFG.
+     */
+    public static DeadCodeElimination run(IrMethod method) {
+        DeadCodeElimination elimination = new DeadCodeElimination(method);
+        method.updateCfg();
+        elimination.removeUnreachableBlocks();
+
+        while (elimination.removeDeadStores()) {
+            // Until no instruction is removed
+        }
+        method.updateCfg();
+
+        return elimination;
+    }
+
+    private void removeUnreachableBlocks() {
+        LoopInfo loopInfo = LoopInfo.of(method);
+        List<BasicBlock> blocks = method.getBlocks();
+
+        int numBlocks = blocks.size();
+        blocks.removeIf(block -> !loopInfo.isReachable(block));
+        numRemovedBlocks = numBlocks - blocks.size();
+
+        if (numRemovedBlocks > 0) {
+            method.updateCfg();
+        }
+    }
+
+    /**
+     * @return whether an instruction was removed
+     */
+    private boolean removeDeadStores() {
+        Liveness liveness = Liveness.of(method);
+        int numRemoved = numRemovedInstructions;
+
+        for (BasicBlock block : method.getBlocks()) {
+            BitVector live = liveness.getLiveOut(block).copy();
+            List<IrInstruction> instructions = block.getInstructions();
+
+            for (ListIterator<IrInstruction> iterator = instructions.listIterator(instructions.size());
+                 iterator.hasPrevious(); ) {
+                IrInstruction instruction = iterator.previous();
+                int defined = instruction.getDefinedVar();
+
+                if (defined >= 0 && !live.get(defined)) {
+                    if (isRemovable(instruction)) {
+                        iterator.remove();
+                        numRemovedInstructions++;
+                        continue;
+                    }
+
+                    if (isInvoke(instruction)) {
+                        instruction.setDest(null);
+                        numRemovedInstructions++;
+                    }
+                }
+
+                if (defined >= 0) {
+                    live.clear(defined);
+                }
+                instruction.forEachUse(live::set);
+            }
+        }
+
+        return numRemovedInstructions > numRemoved;
+    }
+
+    private static boolean isRemovable(IrInstruction instruction) {
+        return switch (instruction.getOpcode()) {
+            case COPY -> !instruction.getArg(0).isElement();
+            case UNARY, GETFIELD -> true;
+            case BINARY -> instruction.getOperation() != OperationType.DIV || isNonZeroConstant(instruction.getArg(1));
+            default -> false;
+        };
+    }
+
+    private static boolean isNonZeroConstant(IrOperand operand) {
+        return operand.isConstant() && operand.getValue() != 0;
+    }
+
+    /**
+     * @return whether the instruction calls a method, whose result can be dropped
+     */
+    private static boolean isInvoke(IrInstruction instruction) {
+        if (instruction.getOpcode() != IrOpcode.CALL) {
+            return false;
+        }
+
+        CallType callType = instruction.getCallType();
+        return callType == CallType.invokevirtual || callType == CallType.invokestatic
+                || callType == CallType.invokespecial;
+    }
+
+    /**
+     * @return the number of instructions removed, and of calls whose result was dropped
+     */
+    public int getNumRemovedInstructions() {
+        return numRemovedInstructions;
+    }
+
+    /**
+     * @return the number of blocks removed because they cannot be reached from the entry
+     */
+    public int getNumRemovedBlocks() {
+        return numRemovedBlocks;
+    }
+}
@@ -0,0 +1,62 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The def-use chains of a method: for each variable, the instructions that assign it and the instructions that read
+ * it, in layout order. An instruction is listed once even when it reads the variable several times.
+ * <p>
+ * Parameters and 'this' are assigned on entry, without an instruction. The chains are computed once and are not
+ * updated when the method changes.
+ */
+public class DefUse {
+
+    private final List<List<IrInstruction>> defs;
+    private final List<List<IrInstruction>> uses;
+
+    private DefUse(int numVars) {
+        this.defs = new ArrayList<>(numVars);
+        this.uses = new ArrayList<>(numVars);
+
+        for (int i = 0; i < numVars; i++) {
+            defs.add(new ArrayList<>());
+            uses.add(new ArrayList<>());
+        }
+    }
+
+    public static DefUse of(IrMethod method) {
+        DefUse defUse = new DefUse(method.getNumVars());
+
+        for (IrInstruction instruction : method.getInstructions()) {
+            int defined = instruction.getDefinedVar();
+            if (defined >= 0) {
+                defUse.defs.get(defined).add(instruction);
+            }
+
+            instruction.forEachUse(var -> {
+                List<IrInstruction> varUses = defUse.uses.get(var);
+                if (varUses.isEmpty() || varUses.get(varUses.size() - 1) != instruction) {
+                    varUses.add(instruction);
+                }
+            });
+        }
+
+        return defUse;
+    }
+
+    /**
+     * @return the instructions that assign the variable
+     */
+    public List<IrInstruction> getDefs(int var) {
+        return Collections.unmodifiableList(defs.get(var));
+    }
+
+    /**
+     * @return the instructions that read the variable
+     */
+    public List<IrInstruction> getUses(int var) {
+        return Collections.unmodifiableList(uses.get(var));
+    }
+}
@@ -0,0 +1,160 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The dominator tree and the dominance frontiers of the blocks of a method reachable from its entry, whose CFG must be
+ * up to date, and whose entry must not be the target of a jump.
+ * <p>
+ * A block dominates another if every path from the entry to the other goes through it. The immediate dominators are
+ * found with the iterative algorithm of Cooper, Harvey and Kennedy, which intersects the dominators of the
+ * predecessors of each block in reverse postorder until nothing changes, and only takes a few passes for the CFGs of
+ * structured code.
+ */
+public class Dominators {
+
+    private final List<BasicBlock> reversePostorder;
+    private final int[] orders;
+    private final BasicBlock[] idoms;
+    private final List<List<BasicBlock>> children = new ArrayList<>();
+    private final List<List<BasicBlock>> frontiers = new ArrayList<>();
+
+    private Dominators(IrMethod method) {
+        this.reversePostorder = LoopInfo.of(method).getReversePostorder();
+        this.orders = new int[method.getNumBlockIds()];
+        this.idoms = new BasicBlock[method.getNumBlockIds()];
+
+        for (int id = 0; id < method.getNumBlockIds(); id++) {
+            orders[id] = -1;
+            children.add(new ArrayList<>());
+            frontiers.add(new ArrayList<>());
+        }
+        for (int i = 0; i < reversePostorder.size(); i++) {
+            orders[reversePostorder.get(i).getId()] = i;
+        }
+    }
+
+    public static Dominators of(IrMethod method) {
+        Dominators dominators = new Dominators(method);
+        dominators.findIdoms();
+        dominators.findFrontiers();
+
+        return dominators;
+    }
+
+    private void findIdoms() {
+        BasicBlock entry = reversePostorder.get(0);
+        idoms[entry.getId()] = entry;
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            for (BasicBlock block : reversePostorder.subList(1, reversePostorder.size())) {
+                BasicBlock idom = null;
+                for (BasicBlock predecessor : block.getPredecessors()) {
+                    if (idoms[predecessor.getId()] != null) {
+                        idom = idom == null ? predecessor : intersect(predecessor, idom);
+                    }
+                }
+
+                if (idoms[block.getId()] != idom) {
+                    idoms[block.getId()] = idom;
+                    changed = true;
+                }
+            }
+        }
+
+        for (BasicBlock block : reversePostorder.subList(1, reversePostorder.size())) {
+            children.get(idoms[block.getId()].getId()).add(block);
+        }
+    }
+
+    /**
+     * @return the closest block that dominates both blocks
+     */
+    private BasicBlock intersect(BasicBlock first, BasicBlock second) {
+        while (first != second) {
+            while (orders[first.getId()] > orders[second.getId()]) {
+                first = idoms[first.getId()];
+            }
+            while (orders[second.getId()] > orders[first.getId()]) {
+                second = idoms[second.getId()];
+            }
+        }
+
+        return first;
+    }
+
+    /**
+     * Adds each join block to the frontiers of the blocks between its predecessors and its immediate dominator.
+     */
+    private void findFrontiers() {
+        for (BasicBlock block : reversePostorder) {
+            if (block.getPredecessors().size() < 2) {
+                continue;
+            }
+
+            BasicBlock idom = idoms[block.getId()];
+            for (BasicBlock predecessor : block.getPredecessors()) {
+                if (!isReachable(predecessor)) {
+                    continue;
+                }
+
+                for (BasicBlock runner = predecessor; runner != idom; runner = idoms[runner.getId()]) {
+                    List<BasicBlock> frontier = frontiers.get(runner.getId());
+                    if (frontier.isEmpty() || frontier.get(frontier.size() - 1) != block) {
+                        frontier.add(block);
+                    }
+                }
+            }
+        }
+    }
+
+    public boolean isReachable(BasicBlock block) {
+        return orders[block.getId()] >= 0;
+    }
+
+    /**
+     * @return the reachable blocks, each one before its successors except along back edges, and so before the blocks
+     * it dominates
+     */
+    public List<BasicBlock> getReversePostorder() {
+        return reversePostorder;
+    }
+
+    /**
+     * @return the immediate dominator of the reachable block, which is the entry itself for the entry
+     */
+    public BasicBlock getIdom(BasicBlock block) {
+        return idoms[block.getId()];
+    }
+
+    /**
+     * @return the blocks the reachable block is the immediate dominator of
+     */
+    public List<BasicBlock> getChildren(BasicBlock block) {
+        return children.get(block.getId());
+    }
+
+    /**
+     * @return the blocks where the dominance of the reachable block ends: the ones it does not strictly dominate with a
+     * predecessor it dominates
+     */
+    public List<BasicBlock> getFrontier(BasicBlock block) {
+        return frontiers.get(block.getId());
+    }
+
+    public boolean dominates(BasicBlock dominator, BasicBlock block) {
+        if (!isReachable(dominator) || !isReachable(block)) {
+            return false;
+        }
+
+        while (orders[block.getId()] > orders[dominator.getId()]) {
+            block = idoms[block.getId()];
+        }
+
+        return block == dominator;
+    }
+}
@@ -0,0 +1,39 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.specs.comp.ollir.ClassUnit;
+
+import java.util.List;
+
+/**
+ * A class in the IR: the OLLIR class it was converted from, which gives its header, imports and fields, and its
+ * methods, in declaration order.
+ */
+public class IrClass {
+
+    private final ClassUnit source;
+    private final List<IrMethod> methods;
+
+    public IrClass(ClassUnit source, List<IrMethod> methods) {
+        this.source = source;
+        this.methods = methods;
+    }
+
+    public ClassUnit getSource() {
+        return source;
+    }
+
+    public List<IrMethod> getMethods() {
+        return methods;
+    }
+
+    /**
+     * @return the first method of the class with the given name
+     * @throws java.util.NoSuchElementException if the class has no method with that name
+     */
+    public IrMethod getMethod(String name) {
+        return methods.stream()
+                .filter(method -> method.getName().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,351 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.specs.comp.ollir.CallType;
+import org.specs.comp.ollir.OperationType;
+import org.specs.comp.ollir.Type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A three-address instruction of an {@link IrMethod}.
+ * <p>
+ * Every instruction has an opcode, an optional destination, which is a variable or an array element, and the operands
+ * it reads, in an array. The other fields are only used by some opcodes, as described in {@link IrOpcode}:
+ * <ul>
+ *     <li>operation: the operator of {@code BINARY}, {@code UNARY} and {@code BRANCH}</li>
+ *     <li>type: the type of the operation, the return type of {@code CALL} and {@code RETURN}, or the type of the
+ *     field of {@code GETFIELD} and {@code PUTFIELD}</li>
+ *     <li>callType and methodName: the kind of {@code CALL} and the name of the method it calls</li>
+ *     <li>target: the block {@code GOTO} and {@code BRANCH} jump to</li>
+ *     <li>sources: the predecessors each argument of {@code PHI} comes from</li>
+ * </ul>
+ * Instructions are mutable, so passes change them in place.
+ */
+public class IrInstruction {
+
+    private IrOpcode opcode;
+    private IrOperand dest;
+    private IrOperand[] args;
+    private OperationType operation;
+    private Type type;
+    private CallType callType;
+    private String methodName;
+    private BasicBlock target;
+    private List<BasicBlock> sources;
+
+    private IrInstruction(IrOpcode opcode, IrOperand dest, IrOperand... args) {
+        this.opcode = opcode;
+        this.dest = dest;
+        this.args = args;
+    }
+
+    public static IrInstruction copy(IrOperand dest, IrOperand value) {
+        return new IrInstruction(IrOpcode.COPY, dest, value);
+    }
+
+    public static IrInstruction binary(IrOperand dest, OperationType operation, Type type, IrOperand left,
+                                       IrOperand right) {
+        IrInstruction instruction = new IrInstruction(IrOpcode.BINARY, dest, left, right);
+        instruction.operation = operation;
+        instruction.type = type;
+        return instruction;
+    }
+
+    public static IrInstruction unary(IrOperand dest, OperationType operation, Type type, IrOperand operand) {
+        IrInstruction instruction = new IrInstruction(IrOpcode.UNARY, dest, operand);
+        instruction.operation = operation;
+        instruction.type = type;
+        return instruction;
+    }
+
+    /**
+     * @param dest       the destination of the result, or null when it is not used
+     * @param methodName the name of the method, or null for {@code new} and {@code arraylength}
+     * @param args       the caller, followed by the arguments
+     */
+    public static IrInstruction call(IrOperand dest, CallType callType, String methodName, Type returnType,
+                                     IrOperand... args) {
+        IrInstruction instruction = new IrInstruction(IrOpcode.CALL, dest, args);
+        instruction.callType = callType;
+        instruction.methodName = methodName;
+        instruction.type = returnType;
+        return instruction;
+    }
+
+    public static IrInstruction getField(IrOperand dest, IrOperand object, IrOperand field, Type fieldType) {
+        IrInstruction instruction = new IrInstruction(IrOpcode.GETFIELD, dest, object, field);
+        instruction.type = fieldType;
+        return instruction;
+    }
+
+    public static IrInstruction putField(IrOperand object, IrOperand field, IrOperand value, Type type) {
+        IrInstruction instruction = new IrInstruction(IrOpcode.PUTFIELD, null, object, field, value);
+        instruction.type = type;
+        return instruction;
+    }
+
+    public static IrInstruction jump(BasicBlock target) {
+        IrInstruction instruction = new IrInstruction(IrOpcode.GOTO, null);
+        instruction.target = target;
+        return instruction;
+    }
+
+    /**
+     * @param operation the operator of the condition, or null when it is a single operand
+     */
+    public static IrInstruction branch(BasicBlock target, OperationType operation, Type type, IrOperand... args) {
+        IrInstruction instruction = new IrInstruction(IrOpcode.BRANCH, null, args);
+        instruction.operation = operation;
+        instruction.type = type;
+        instruction.target = target;
+        return instruction;
+    }
+
+    /**
+     * @param values  the value from each source, which are variables when they are not known yet
+     * @param sources the predecessors of the block the values come from
+     */
+    public static IrInstruction phi(IrOperand dest, List<IrOperand> values, List<BasicBlock> sources) {
+        IrInstruction instruction = new IrInstruction(IrOpcode.PHI, dest, values.toArray(IrOperand[]::new));
+        instruction.sources = new ArrayList<>(sources);
+        return instruction;
+    }
+
+    /**
+     * @param value the returned value, or null in void methods
+     */
+    public static IrInstruction ret(Type returnType, IrOperand value) {
+        IrInstruction instruction = value == null ? new IrInstruction(IrOpcode.RETURN, null)
+                : new IrInstruction(IrOpcode.RETURN, null, value);
+        instruction.type = returnType;
+        return instruction;
+    }
+
+    public IrOpcode getOpcode() {
+        return opcode;
+    }
+
+    public IrOperand getDest() {
+        return dest;
+    }
+
+    public void setDest(IrOperand dest) {
+        this.dest = dest;
+    }
+
+    public IrOperand[] getArgs() {
+        return args;
+    }
+
+    public IrOperand getArg(int index) {
+        return args[index];
+    }
+
+    public void setArg(int index, IrOperand arg) {
+        args[index] = arg;
+    }
+
+    public int getNumArgs() {
+        return args.length;
+    }
+
+    public OperationType getOperation() {
+        return operation;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public CallType getCallType() {
+        return callType;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public BasicBlock getTarget() {
+        return target;
+    }
+
+    /**
+     * @return the block the argument of a {@code PHI} comes from
+     */
+    public BasicBlock getSource(int index) {
+        return sources.get(index);
+    }
+
+    public void setTarget(BasicBlock target) {
+        this.target = target;
+    }
+
+    /**
+     * Changes the operation of a {@code BINARY}, {@code UNARY} or {@code BRANCH}, which becomes a {@code BINARY} or a
+     * {@code UNARY} depending on the number of operands, or a copy of the only operand, or a branch on it, if the
+     * operation is null.
+     */
+    public void setOperation(OperationType operation, Type type, IrOperand... args) {
+        if (operation == null && opcode != IrOpcode.BRANCH) {
+            makeCopy(args[0]);
+            return;
+        }
+
+        if (opcode != IrOpcode.BRANCH) {
+            opcode = args.length == 2 ? IrOpcode.BINARY : IrOpcode.UNARY;
+        }
+        this.operation = operation;
+        this.type = operation == null ? null : type;
+        this.args = args;
+    }
+
+    /**
+     * Turns the instruction into a copy of the given value to its destination.
+     */
+    public void makeCopy(IrOperand value) {
+        opcode = IrOpcode.COPY;
+        args = new IrOperand[]{value};
+        operation = null;
+        type = null;
+        callType = null;
+        methodName = null;
+        sources = null;
+    }
+
+    /**
+     * @return a new instruction equal to this one, which can be changed without changing this one
+     */
+    public IrInstruction duplicate() {
+        IrInstruction instruction = new IrInstruction(opcode, dest, args.clone());
+        instruction.operation = operation;
+        instruction.type = type;
+        instruction.callType = callType;
+        instruction.methodName = methodName;
+        instruction.target = target;
+        instruction.sources = sources == null ? null : new ArrayList<>(sources);
+        return instruction;
+    }
+
+    /**
+     * Negates the condition of a branch, so it jumps when it used to fall through.
+     *
+     * @return whether the condition could be negated, which is not the case for conjunctions
+     */
+    public boolean invertCondition() {
+        if (operation == null) {
+            operation = OperationType.NOTB;
+            type = args[0].getType();
+            return true;
+        }
+
+        if (operation == OperationType.NOTB) {
+            operation = null;
+            type = null;
+            return true;
+        }
+
+        OperationType inverse = switch (operation) {
+            case LTH -> OperationType.GTE;
+            case GTE -> OperationType.LTH;
+            case GTH -> OperationType.LTE;
+            case LTE -> OperationType.GTH;
+            case EQ -> OperationType.NEQ;
+            case NEQ -> OperationType.EQ;
+            default -> null;
+        };
+
+        if (inverse == null) {
+            return false;
+        }
+
+        operation = inverse;
+        return true;
+    }
+
+    /**
+     * @return the variable the instruction assigns, or -1 if it does not assign one
+     */
+    public int getDefinedVar() {
+        return dest != null && dest.isVar() ? dest.getVar() : -1;
+    }
+
+    /**
+     * Gives every variable the instruction reads to the consumer, once for each time it is read. The array and index
+     * of an element destination are read too.
+     */
+    public void forEachUse(IntConsumer consumer) {
+        if (dest != null && dest.isElement()) {
+            forEachUse(dest, consumer);
+        }
+
+        for (IrOperand arg : args) {
+            forEachUse(arg, consumer);
+        }
+    }
+
+    private static void forEachUse(IrOperand operand, IntConsumer consumer) {
+        switch (operand.getKind()) {
+            case VAR -> consumer.accept(operand.getVar());
+            case ELEMENT -> {
+                consumer.accept(operand.getVar());
+                forEachUse(operand.getIndex(), consumer);
+            }
+            default -> {
+            }
+        }
+    }
+
+    public boolean reads(int var) {
+        if (dest != null && dest.isElement() && dest.reads(var)) {
+            return true;
+        }
+
+        return Arrays.stream(args).anyMatch(arg -> arg.reads(var));
+    }
+
+    /**
+     * Replaces every read of the variable with the given operand.
+     */
+    public void replaceUses(int var, IrOperand replacement) {
+        if (dest != null && dest.isElement()) {
+            dest = dest.replace(var, replacement);
+        }
+
+        for (int i = 0; i < args.length; i++) {
+            args[i] = args[i].replace(var, replacement);
+        }
+    }
+
+    /**
+     * Replaces each variable the instruction reads by the one the renaming gives for it.
+     */
+    public void renameUses(IntUnaryOperator renaming) {
+        if (dest != null && dest.isElement()) {
+            dest = dest.rename(renaming);
+        }
+
+        for (int i = 0; i < args.length; i++) {
+            args[i] = args[i].rename(renaming);
+        }
+    }
+
+    @Override
+    public String toString() {
+        String assigned = dest == null ? "" : dest + " := ";
+        String target = this.target == null ? "" : " -> " + this.target;
+        if (sources != null) {
+            target = " <- " + sources.stream().map(BasicBlock::toString).toList();
+        }
+        String name = switch (opcode) {
+            case BINARY, UNARY, BRANCH -> operation == null ? opcode.name() : opcode + " " + operation;
+            case CALL -> callType + (methodName == null ? "" : " " + methodName);
+            default -> opcode.name();
+        };
+
+        return assigned + name + " " + Arrays.toString(args) + target;
+    }
+}
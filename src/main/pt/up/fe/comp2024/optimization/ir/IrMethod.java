@@ -0,0 +1,217 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.specs.comp.ollir.AccessModifier;
+import org.specs.comp.ollir.Type;
+
+import java.util.*;
+
+/**
+ * A method in the IR: its header, its variables, numbered from 0, and its basic blocks, in the order their code is
+ * laid out.
+ * <p>
+ * The first block is the entry of the method. Blocks are only reached by jumps and fall-throughs, so a block that is
+ * neither targeted nor preceded by a block that falls through is unreachable.
+ */
+public class IrMethod {
+
+    private final String name;
+    private final AccessModifier accessModifier;
+    private final boolean isStatic;
+    private final boolean isFinal;
+    private final boolean isConstructor;
+    private final boolean isVarargs;
+    private final Type returnType;
+    private final List<IrOperand> params = new ArrayList<>();
+
+    private final List<String> varNames = new ArrayList<>();
+    private final List<Type> varTypes = new ArrayList<>();
+    private final Map<String, Integer> varIds = new HashMap<>();
+
+    private final List<BasicBlock> blocks = new ArrayList<>();
+    private int nextBlockId;
+
+    public IrMethod(String name, AccessModifier accessModifier, boolean isStatic, boolean isFinal,
+                    boolean isConstructor, boolean isVarargs, Type returnType) {
+        this.name = name;
+        this.accessModifier = accessModifier;
+        this.isStatic = isStatic;
+        this.isFinal = isFinal;
+        this.isConstructor = isConstructor;
+        this.isVarargs = isVarargs;
+        this.returnType = returnType;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public AccessModifier getAccessModifier() {
+        return accessModifier;
+    }
+
+    public boolean isStatic() {
+        return isStatic;
+    }
+
+    public boolean isFinal() {
+        return isFinal;
+    }
+
+    public boolean isConstructor() {
+        return isConstructor;
+    }
+
+    public boolean isVarargs() {
+        return isVarargs;
+    }
+
+    public Type getReturnType() {
+        return returnType;
+    }
+
+    public List<IrOperand> getParams() {
+        return params;
+    }
+
+    public void addParam(IrOperand param) {
+        params.add(param);
+    }
+
+    public int getNumVars() {
+        return varNames.size();
+    }
+
+    public String getVarName(int var) {
+        return varNames.get(var);
+    }
+
+    /**
+     * @return the type of the variable where it was first found
+     */
+    public Type getVarType(int var) {
+        return varTypes.get(var);
+    }
+
+    /**
+     * @return the id of the variable with the given name, added with the given type if it is new
+     */
+    public int getVar(String varName, Type type) {
+        Integer id = varIds.get(varName);
+        if (id != null) {
+            return id;
+        }
+
+        varIds.put(varName, varNames.size());
+        varNames.add(varName);
+        varTypes.add(type);
+
+        return varNames.size() - 1;
+    }
+
+    /**
+     * @return the id of the variable with the given name, or -1 if there is none
+     */
+    public int findVar(String varName) {
+        return varIds.getOrDefault(varName, -1);
+    }
+
+    /**
+     * @return the id of a new variable, named after the prefix without taking the name of another one
+     */
+    public int newVar(String prefix, Type type) {
+        String varName = prefix;
+        for (int i = 0; varIds.containsKey(varName); i++) {
+            varName = prefix + i;
+        }
+
+        return getVar(varName, type);
+    }
+
+    /**
+     * Removes the variables whose ids are not smaller than the given number, which must no longer be used.
+     */
+    public void removeVarsFrom(int numVars) {
+        for (int var = varNames.size() - 1; var >= numVars; var--) {
+            varIds.remove(varNames.remove(var));
+            varTypes.remove(var);
+        }
+    }
+
+    public List<BasicBlock> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * @return a new block, added at the end of the method
+     */
+    public BasicBlock addBlock(String label) {
+        BasicBlock block = new BasicBlock(nextBlockId++, label);
+        blocks.add(block);
+
+        return block;
+    }
+
+    /**
+     * @return a new block, not yet in the method, to be inserted in its list of blocks
+     */
+    public BasicBlock newBlock(String label) {
+        return new BasicBlock(nextBlockId++, label);
+    }
+
+    /**
+     * @return the number of ids given to blocks, which are all smaller than it
+     */
+    public int getNumBlockIds() {
+        return nextBlockId;
+    }
+
+    /**
+     * Recomputes the successors and predecessors of every block from its last instruction and the block layout.
+     */
+    public void updateCfg() {
+        for (BasicBlock block : blocks) {
+            block.getSuccessors().clear();
+            block.getPredecessors().clear();
+        }
+
+        for (int i = 0; i < blocks.size(); i++) {
+            BasicBlock block = blocks.get(i);
+            IrInstruction terminator = block.getTerminator();
+
+            if (terminator != null && terminator.getTarget() != null) {
+                link(block, terminator.getTarget());
+            }
+            if (block.fallsThrough() && i + 1 < blocks.size()) {
+                link(block, blocks.get(i + 1));
+            }
+        }
+    }
+
+    private static void link(BasicBlock from, BasicBlock to) {
+        if (!from.getSuccessors().contains(to)) {
+            from.getSuccessors().add(to);
+            to.getPredecessors().add(from);
+        }
+    }
+
+    /**
+     * @return every instruction of the method, in layout order
+     */
+    public List<IrInstruction> getInstructions() {
+        List<IrInstruction> instructions = new ArrayList<>();
+        blocks.forEach(block -> instructions.addAll(block.getInstructions()));
+
+        return instructions;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder code = new StringBuilder(name).append(":\n");
+        for (BasicBlock block : blocks) {
+            code.append(block).append(":\n");
+            block.getInstructions().forEach(instruction -> code.append("    ").append(instruction).append("\n"));
+        }
+
+        return code.toString();
+    }
+}
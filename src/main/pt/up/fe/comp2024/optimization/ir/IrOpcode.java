@@ -0,0 +1,57 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+/**
+ * The operations of {@link IrInstruction}s.
+ */
+public enum IrOpcode {
+    /**
+     * {@code dest := args[0]}
+     */
+    COPY,
+    /**
+     * {@code dest := args[0] operation args[1]}
+     */
+    BINARY,
+    /**
+     * {@code dest := operation args[0]}
+     */
+    UNARY,
+    /**
+     * {@code [dest :=] callType(args[0], methodName, args[1..])}, which also covers {@code new} and
+     * {@code arraylength}, whose caller is the only argument before the others
+     */
+    CALL,
+    /**
+     * {@code dest := getfield(args[0], args[1])}
+     */
+    GETFIELD,
+    /**
+     * {@code putfield(args[0], args[1], args[2])}
+     */
+    PUTFIELD,
+    /**
+     * {@code dest := phi(args[0] from sources[0], args[1] from sources[1], ...)}, which takes the argument of the
+     * predecessor the block was entered from, and is only found at the start of blocks of methods in SSA form
+     */
+    PHI,
+    /**
+     * {@code goto target}
+     */
+    GOTO,
+    /**
+     * {@code if (args[0]) goto target}, {@code if (operation args[0]) goto target} or
+     * {@code if (args[0] operation args[1]) goto target}, falling through to the next block otherwise
+     */
+    BRANCH,
+    /**
+     * {@code ret [args[0]]}
+     */
+    RETURN;
+
+    /**
+     * @return whether instructions with this opcode end their block
+     */
+    public boolean isTerminator() {
+        return this == GOTO || this == BRANCH || this == RETURN;
+    }
+}
@@ -0,0 +1,172 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.specs.comp.ollir.ElementType;
+import org.specs.comp.ollir.Type;
+
+import java.util.Objects;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A value read or written by an {@link IrInstruction}. Operands are immutable, so instructions can share them.
+ * <ul>
+ *     <li>{@link Kind#VAR}: a variable of the method, by its id</li>
+ *     <li>{@link Kind#CONST}: an integer or boolean literal</li>
+ *     <li>{@link Kind#ELEMENT}: a position of the array in a variable, at a variable or constant index</li>
+ *     <li>{@link Kind#NAME}: something named that is not a value, such as the class of a static call or a field</li>
+ * </ul>
+ * The OLLIR type of the operand is kept as it was written, so it is printed back the same way.
+ */
+public final class IrOperand {
+
+    public enum Kind {
+        VAR, CONST, ELEMENT, NAME
+    }
+
+    private final Kind kind;
+    private final int var;
+    private final int value;
+    private final String name;
+    private final IrOperand index;
+    private final Type type;
+
+    private IrOperand(Kind kind, int var, int value, String name, IrOperand index, Type type) {
+        this.kind = kind;
+        this.var = var;
+        this.value = value;
+        this.name = name;
+        this.index = index;
+        this.type = type;
+    }
+
+    public static IrOperand var(int var, Type type) {
+        return new IrOperand(Kind.VAR, var, 0, null, null, type);
+    }
+
+    public static IrOperand constant(int value, Type type) {
+        return new IrOperand(Kind.CONST, -1, value, null, null, type);
+    }
+
+    /**
+     * @param type the type of the element, not of the array
+     */
+    public static IrOperand element(int array, IrOperand index, Type type) {
+        return new IrOperand(Kind.ELEMENT, array, 0, null, index, type);
+    }
+
+    public static IrOperand name(String name, Type type) {
+        return new IrOperand(Kind.NAME, -1, 0, name, null, type);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public boolean isVar() {
+        return kind == Kind.VAR;
+    }
+
+    public boolean isConstant() {
+        return kind == Kind.CONST;
+    }
+
+    public boolean isElement() {
+        return kind == Kind.ELEMENT;
+    }
+
+    /**
+     * @return the id of the variable, or of the array of an element, or -1 for other operands
+     */
+    public int getVar() {
+        return var;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public IrOperand getIndex() {
+        return index;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return whether the operand reads the variable, directly or as the array or index of an element
+     */
+    public boolean reads(int variable) {
+        return switch (kind) {
+            case VAR -> var == variable;
+            case ELEMENT -> var == variable || index.reads(variable);
+            default -> false;
+        };
+    }
+
+    /**
+     * @return the operand with every read of the variable replaced by the given operand, which must be a variable
+     * when the replaced one is the array or index of an element
+     */
+    public IrOperand replace(int variable, IrOperand replacement) {
+        return switch (kind) {
+            case VAR -> var == variable ? replacement : this;
+            case ELEMENT -> {
+                int array = var == variable ? replacement.getVar() : var;
+                IrOperand newIndex = index.replace(variable, replacement);
+                yield array == var && newIndex == index ? this : element(array, newIndex, type);
+            }
+            default -> this;
+        };
+    }
+
+    /**
+     * @return the operand with each variable it reads replaced by the one the renaming gives for it, keeping its type
+     */
+    public IrOperand rename(IntUnaryOperator renaming) {
+        return switch (kind) {
+            case VAR -> {
+                int renamed = renaming.applyAsInt(var);
+                yield renamed == var ? this : var(renamed, type);
+            }
+            case ELEMENT -> {
+                int array = renaming.applyAsInt(var);
+                IrOperand newIndex = index.rename(renaming);
+                yield array == var && newIndex == index ? this : element(array, newIndex, type);
+            }
+            default -> this;
+        };
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof IrOperand other)) {
+            return false;
+        }
+
+        return kind == other.kind && var == other.var && value == other.value && Objects.equals(name, other.name)
+                && Objects.equals(index, other.index) && getElementType() == other.getElementType();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(kind, var, value, name, index, getElementType());
+    }
+
+    private ElementType getElementType() {
+        return type == null ? null : type.getTypeOfElement();
+    }
+
+    @Override
+    public String toString() {
+        return switch (kind) {
+            case VAR -> "%" + var;
+            case CONST -> String.valueOf(value);
+            case ELEMENT -> "%" + var + "[" + index + "]";
+            case NAME -> name;
+        };
+    }
+}
@@ -0,0 +1,191 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp2024.optimization.OptUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts a class in the IR back to an OLLIR class, ready for the Jasmin generator.
+ * <p>
+ * The labels of empty blocks go to the first instruction after them, and blocks that are targeted without a label
+ * are given one.
+ */
+public class IrToOllir {
+
+    private final IrMethod irMethod;
+    private final Method method;
+    private final List<String> pendingLabels = new ArrayList<>();
+
+    private IrToOllir(IrMethod irMethod, ClassUnit classUnit) {
+        this.irMethod = irMethod;
+        this.method = new Method(classUnit);
+    }
+
+    public static ClassUnit convert(IrClass irClass) {
+        ClassUnit source = irClass.getSource();
+        ClassUnit classUnit = new ClassUnit();
+
+        classUnit.setClassName(source.getClassName());
+        classUnit.setSuperClass(source.getSuperClass());
+        classUnit.setPackage(source.getPackage());
+        classUnit.setClassAccessModifier(source.getClassAccessModifier());
+        if (source.isStaticClass()) {
+            classUnit.setStaticClass();
+        }
+        if (source.isFinalClass()) {
+            classUnit.setFinalClass();
+        }
+
+        source.getImports().forEach(classUnit::addImport);
+        source.getFields().forEach(classUnit::addField);
+
+        for (IrMethod irMethod : irClass.getMethods()) {
+            classUnit.addMethod(new IrToOllir(irMethod, classUnit).convert());
+        }
+
+        classUnit.buildVarTables();
+
+        return classUnit;
+    }
+
+    private Method convert() {
+        method.setMethodName(irMethod.getName());
+        method.setMethodAccessModifier(irMethod.getAccessModifier());
+        method.setReturnType(irMethod.getReturnType());
+        method.setVarargs(irMethod.isVarargs());
+        if (irMethod.isStatic()) {
+            method.setStaticMethod();
+        }
+        if (irMethod.isFinal()) {
+            method.setFinalMethod();
+        }
+        if (irMethod.isConstructor()) {
+            method.setConstructMethod();
+        }
+
+        // Parameters are numbered from 0 in static methods and from 1 in the others, after 'this'
+        int paramId = irMethod.isStatic() ? 0 : 1;
+        for (IrOperand param : irMethod.getParams()) {
+            Operand operand = (Operand) toElement(param);
+            operand.setParamId(paramId++);
+            method.addParam(operand);
+        }
+
+        for (BasicBlock block : irMethod.getBlocks()) {
+            IrInstruction terminator = block.getTerminator();
+            if (terminator != null && terminator.getTarget() != null && terminator.getTarget().getLabel() == null) {
+                BasicBlock target = terminator.getTarget();
+                target.setLabel("block_" + target.getId());
+            }
+        }
+
+        for (BasicBlock block : irMethod.getBlocks()) {
+            if (block.getLabel() != null) {
+                pendingLabels.add(block.getLabel());
+            }
+
+            for (IrInstruction instruction : block.getInstructions()) {
+                add(toOllir(instruction));
+            }
+        }
+
+        if (!pendingLabels.isEmpty()) {
+            throw new RuntimeException("Labels " + pendingLabels + " of method " + irMethod.getName()
+                    + " are not followed by any instruction");
+        }
+
+        return method;
+    }
+
+    private void add(Instruction instruction) {
+        method.addInstr(instruction);
+        pendingLabels.forEach(label -> method.addLabel(label, instruction));
+        pendingLabels.clear();
+    }
+
+    private Instruction toOllir(IrInstruction instruction) {
+        return switch (instruction.getOpcode()) {
+            case COPY, BINARY, UNARY, CALL, GETFIELD -> {
+                Instruction value = toValue(instruction);
+                if (instruction.getDest() == null) {
+                    yield value;
+                }
+
+                IrOperand dest = instruction.getDest();
+                yield new AssignInstruction(toElement(dest), dest.getType(), value);
+            }
+            case PUTFIELD -> new PutFieldInstruction((Operand) toElement(instruction.getArg(0)),
+                    (Operand) toElement(instruction.getArg(1)), toElement(instruction.getArg(2)),
+                    instruction.getType());
+            case GOTO -> new GotoInstruction(instruction.getTarget().getLabel());
+            case BRANCH -> {
+                CondBranchInstruction branch = instruction.getOperation() == null
+                        ? new SingleOpCondInstruction(new SingleOpInstruction(toElement(instruction.getArg(0))))
+                        : new OpCondInstruction((OpInstruction) toOperation(instruction));
+                branch.setLabel(instruction.getTarget().getLabel());
+                yield branch;
+            }
+            case RETURN -> {
+                ReturnInstruction ret = instruction.getNumArgs() == 0 ? new ReturnInstruction()
+                        : new ReturnInstruction(toElement(instruction.getArg(0)));
+                ret.setReturnType(instruction.getType());
+                yield ret;
+            }
+            case PHI -> throw new IllegalArgumentException("Methods must be taken out of SSA form before being "
+                    + "converted: " + instruction);
+        };
+    }
+
+    /**
+     * Converts an instruction that computes a value to the instruction that computes it, without the assignment.
+     */
+    private Instruction toValue(IrInstruction instruction) {
+        return switch (instruction.getOpcode()) {
+            case COPY -> new SingleOpInstruction(toElement(instruction.getArg(0)));
+            case BINARY, UNARY -> toOperation(instruction);
+            case CALL -> toCall(instruction);
+            case GETFIELD -> new GetFieldInstruction((Operand) toElement(instruction.getArg(0)),
+                    (Operand) toElement(instruction.getArg(1)), instruction.getType());
+            default -> throw new IllegalArgumentException("Instruction does not compute a value: " + instruction);
+        };
+    }
+
+    private Instruction toOperation(IrInstruction instruction) {
+        Operation operation = new Operation(instruction.getOperation(), instruction.getType());
+
+        if (instruction.getNumArgs() == 1) {
+            return new UnaryOpInstruction(operation, toElement(instruction.getArg(0)));
+        }
+
+        return new BinaryOpInstruction(toElement(instruction.getArg(0)), operation, toElement(instruction.getArg(1)));
+    }
+
+    private CallInstruction toCall(IrInstruction instruction) {
+        Element caller = toElement(instruction.getArg(0));
+        List<Element> arguments = new ArrayList<>();
+        for (int i = 1; i < instruction.getNumArgs(); i++) {
+            arguments.add(toElement(instruction.getArg(i)));
+        }
+
+        boolean isIsolated = instruction.getDest() == null;
+
+        if (instruction.getMethodName() == null) {
+            return new CallInstruction(instruction.getCallType(), caller, arguments, instruction.getType(), isIsolated);
+        }
+
+        return new CallInstruction(instruction.getCallType(), caller, OptUtils.toMethodName(instruction.getMethodName()),
+                arguments, instruction.getType(), isIsolated);
+    }
+
+    private Element toElement(IrOperand operand) {
+        return switch (operand.getKind()) {
+            case VAR -> new Operand(irMethod.getVarName(operand.getVar()), operand.getType());
+            case CONST -> new LiteralElement(String.valueOf(operand.getValue()), operand.getType());
+            case ELEMENT -> new ArrayOperand(irMethod.getVarName(operand.getVar()), operand.getType(),
+                    List.of(toElement(operand.getIndex())));
+            case NAME -> new Operand(operand.getName(), operand.getType());
+        };
+    }
+}
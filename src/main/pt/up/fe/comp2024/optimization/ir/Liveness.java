@@ -0,0 +1,51 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+/**
+ * The variables live at the start and at the end of each block of a method, whose CFG must be up to date.
+ * <p>
+ * A variable is live at a point if some path from it reads the variable before assigning it. Storing to an array
+ * element reads the array and the index.
+ */
+public class Liveness extends DataflowAnalysis {
+
+    private Liveness(IrMethod method) {
+        super(method, Direction.BACKWARD, Meet.UNION, method.getNumVars());
+    }
+
+    public static Liveness of(IrMethod method) {
+        Liveness liveness = new Liveness(method);
+        liveness.solve();
+
+        return liveness;
+    }
+
+    @Override
+    protected void transfer(BasicBlock block, BitVector gen, BitVector kill) {
+        for (IrInstruction instruction : block.getInstructions()) {
+            instruction.forEachUse(var -> {
+                if (!kill.get(var)) {
+                    gen.set(var);
+                }
+            });
+
+            int defined = instruction.getDefinedVar();
+            if (defined >= 0) {
+                kill.set(defined);
+            }
+        }
+    }
+
+    /**
+     * @return the variables live at the start of the block, which must not be changed
+     */
+    public BitVector getLiveIn(BasicBlock block) {
+        return getIn(block);
+    }
+
+    /**
+     * @return the variables live at the end of the block, which must not be changed
+     */
+    public BitVector getLiveOut(BasicBlock block) {
+        return getOut(block);
+    }
+}
@@ -0,0 +1,118 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.*;
+
+/**
+ * The loops of a method, found from the back edges of a depth-first search of its CFG, which must be up to date.
+ * <p>
+ * The code of Java-- methods only has structured loops, so every back edge goes to the header of a natural loop,
+ * whose body is every block that reaches the source of the edge without going through the header.
+ */
+public class LoopInfo {
+
+    private final List<BasicBlock> reversePostorder = new ArrayList<>();
+    private final Set<BasicBlock> visited = new HashSet<>();
+    private final Set<BasicBlock> onStack = new HashSet<>();
+    private final Map<BasicBlock, Set<BasicBlock>> backEdges = new HashMap<>();
+    private final Map<BasicBlock, Set<BasicBlock>> loops = new HashMap<>();
+    private final Map<BasicBlock, Integer> depths = new HashMap<>();
+
+    private LoopInfo() {
+    }
+
+    public static LoopInfo of(IrMethod method) {
+        LoopInfo loopInfo = new LoopInfo();
+        loopInfo.search(method.getBlocks().get(0));
+        Collections.reverse(loopInfo.reversePostorder);
+
+        loopInfo.backEdges.forEach((latch, headers) -> headers.forEach(header -> loopInfo.addLoop(header, latch)));
+        loopInfo.loops.values().forEach(body -> body.forEach(block -> loopInfo.depths.merge(block, 1, Integer::sum)));
+
+        return loopInfo;
+    }
+
+    private void search(BasicBlock entry) {
+        // Iterative, so long methods do not overflow the stack
+        Deque<Iterator<BasicBlock>> successors = new ArrayDeque<>();
+        Deque<BasicBlock> path = new ArrayDeque<>();
+
+        visited.add(entry);
+        onStack.add(entry);
+        path.push(entry);
+        successors.push(entry.getSuccessors().iterator());
+
+        while (!path.isEmpty()) {
+            BasicBlock block = path.peek();
+            Iterator<BasicBlock> iterator = successors.peek();
+
+            if (!iterator.hasNext()) {
+                path.pop();
+                successors.pop();
+                onStack.remove(block);
+                reversePostorder.add(block);
+                continue;
+            }
+
+            BasicBlock successor = iterator.next();
+            if (onStack.contains(successor)) {
+                backEdges.computeIfAbsent(block, key -> new HashSet<>()).add(successor);
+            } else if (visited.add(successor)) {
+                onStack.add(successor);
+                path.push(successor);
+                successors.push(successor.getSuccessors().iterator());
+            }
+        }
+    }
+
+    /**
+     * Adds the blocks of the loop closed by the back edge to the loop of its header, which may have several.
+     */
+    private void addLoop(BasicBlock header, BasicBlock latch) {
+        Set<BasicBlock> body = loops.computeIfAbsent(header, key -> new HashSet<>(Set.of(key)));
+
+        Deque<BasicBlock> worklist = new ArrayDeque<>();
+        if (body.add(latch)) {
+            worklist.push(latch);
+        }
+
+        while (!worklist.isEmpty()) {
+            for (BasicBlock predecessor : worklist.pop().getPredecessors()) {
+                if (visited.contains(predecessor) && body.add(predecessor)) {
+                    worklist.push(predecessor);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the blocks reachable from the entry, each one before its successors except along back edges
+     */
+    public List<BasicBlock> getReversePostorder() {
+        return reversePostorder;
+    }
+
+    public boolean isReachable(BasicBlock block) {
+        return visited.contains(block);
+    }
+
+    /**
+     * @return whether the edge goes from the end of a loop back to its header
+     */
+    public boolean isBackEdge(BasicBlock from, BasicBlock to) {
+        return backEdges.getOrDefault(from, Set.of()).contains(to);
+    }
+
+    /**
+     * @return the headers of the loops, each with the blocks of its loop, header included
+     */
+    public Map<BasicBlock, Set<BasicBlock>> getLoops() {
+        return loops;
+    }
+
+    /**
+     * @return the number of loops the block is in
+     */
+    public int getDepth(BasicBlock block) {
+        return depths.getOrDefault(block, 0);
+    }
+}
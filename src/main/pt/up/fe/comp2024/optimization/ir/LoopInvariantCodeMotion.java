@@ -0,0 +1,253 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.specs.comp.ollir.CallType;
+import org.specs.comp.ollir.OperationType;
+import org.specs.comp.ollir.Type;
+
+import java.util.*;
+
+/**
+ * Moves the computations that give the same value in every iteration of a loop to a preheader, a block that runs
+ * once each time the loop is entered, found from the back edges of the CFG. The block that enters the loop is the
+ * preheader when it only goes to the loop, and else a new block is added before the header.
+ * <p>
+ * An operand is invariant if it is a constant, or a variable that is not assigned in the loop, or whose only
+ * assignment in the loop was moved and runs before it in every iteration. Arithmetic, field reads and array lengths
+ * and loads with invariant operands are moved, the last two only when the loop stores to no array or field and calls
+ * no method. Since the temporary variables of the generated code are assigned many times in each loop, a moved
+ * computation keeps its value in a new variable, and the instruction it came from becomes a copy of it.
+ * <p>
+ * The preheader runs even when the loop is not entered, and before the instructions that come first in the loop, so
+ * instructions that may throw, array accesses and divisions by something that is not a constant other than 0, are only
+ * moved from the start of the header of the loop, which always runs after the preheader.
+ * <p>
+ * Inner loops are processed first, so the computations moved out of them may then be moved out of the loops around
+ * them.
+ */
+public class LoopInvariantCodeMotion {
+
+    private final IrMethod method;
+    private LoopInfo loopInfo;
+    private Dominators dominators;
+    private int numHoisted = 0;
+    private int numPreheaders = 0;
+
+    private LoopInvariantCodeMotion(IrMethod method) {
+        this.method = method;
+    }
+
+    /**
+     * Moves the invariant code of the loops of the method, whose CFG must be up to date, and updates it.
+     */
+    public static LoopInvariantCodeMotion run(IrMethod method) {
+        LoopInvariantCodeMotion motion = new LoopInvariantCodeMotion(method);
+        motion.analyze();
+
+        // The bodies of inner loops are smaller than the ones of the loops around them
+        List<BasicBlock> headers = new ArrayList<>(motion.loopInfo.getLoops().keySet());
+        headers.sort(Comparator.comparingInt(header -> motion.loopInfo.getLoops().get(header).size()));
+        headers.forEach(motion::hoist);
+
+        return motion;
+    }
+
+    private void analyze() {
+        loopInfo = LoopInfo.of(method);
+        dominators = Dominators.of(method);
+    }
+
+    private void hoist(BasicBlock header) {
+        Set<BasicBlock> body = loopInfo.getLoops().get(header);
+        if (header == method.getBlocks().get(0)) {
+            return;
+        }
+
+        int[] numDefs = new int[method.getNumVars()];
+        Map<Integer, IrInstruction> defs = new HashMap<>();
+        boolean storesToMemory = false;
+        for (BasicBlock block : body) {
+            for (IrInstruction instruction : block.getInstructions()) {
+                int defined = instruction.getDefinedVar();
+                if (defined >= 0) {
+                    numDefs[defined]++;
+                    defs.put(defined, instruction);
+                }
+                storesToMemory |= AvailableExpressions.storesToMemory(instruction);
+            }
+        }
+
+        // The new variable of each moved instruction, and the block each one came from
+        Map<IrInstruction, IrOperand> hoisted = new IdentityHashMap<>();
+        Map<IrInstruction, BasicBlock> hoistedBlocks = new IdentityHashMap<>();
+        BasicBlock preheader = null;
+
+        for (BasicBlock block : loopInfo.getReversePostorder()) {
+            if (!body.contains(block)) {
+                continue;
+            }
+
+            // The variables assigned before each point of the block, with the new variable of the ones moved
+            Map<Integer, IrOperand> blockValues = new HashMap<>();
+            boolean isStart = block == header;
+
+            for (IrInstruction instruction : block.getInstructions()) {
+                Map<Integer, IrOperand> replacements = getInvariantReplacements(instruction, block, numDefs, defs,
+                        hoisted, hoistedBlocks, blockValues);
+                boolean mayThrow = mayThrow(instruction);
+                boolean isHoistable = replacements != null && isMovable(instruction, storesToMemory)
+                        && (!mayThrow || isStart);
+
+                int defined = instruction.getDefinedVar();
+                if (!isHoistable) {
+                    isStart = false;
+                    if (defined >= 0) {
+                        blockValues.put(defined, null);
+                    }
+                    continue;
+                }
+
+                if (preheader == null) {
+                    preheader = addPreheader(header, body);
+                }
+
+                Type type = instruction.getDest().getType();
+                IrOperand value = IrOperand.var(method.newVar("licm", type), type);
+                IrInstruction computation = instruction.duplicate();
+                replacements.forEach(computation::replaceUses);
+                computation.setDest(value);
+                insertBeforeTerminator(preheader, computation);
+
+                instruction.makeCopy(value);
+                hoisted.put(instruction, value);
+                hoistedBlocks.put(instruction, block);
+                blockValues.put(defined, value);
+                numHoisted++;
+            }
+        }
+    }
+
+    /**
+     * @return the replacement of each variable the instruction reads by the new variable of the moved instruction that
+     * assigns it, or null if an operand is not invariant
+     */
+    private Map<Integer, IrOperand> getInvariantReplacements(IrInstruction instruction, BasicBlock block,
+                                                             int[] numDefs, Map<Integer, IrInstruction> defs,
+                                                             Map<IrInstruction, IrOperand> hoisted,
+                                                             Map<IrInstruction, BasicBlock> hoistedBlocks,
+                                                             Map<Integer, IrOperand> blockValues) {
+        Map<Integer, IrOperand> replacements = new HashMap<>();
+        boolean[] isInvariant = {true};
+
+        instruction.forEachUse(var -> {
+            if (blockValues.containsKey(var)) {
+                IrOperand value = blockValues.get(var);
+                if (value == null) {
+                    isInvariant[0] = false;
+                } else {
+                    replacements.put(var, value);
+                }
+            } else if (numDefs[var] == 1 && hoisted.containsKey(defs.get(var))
+                    && dominators.dominates(hoistedBlocks.get(defs.get(var)), block)) {
+                replacements.put(var, hoisted.get(defs.get(var)));
+            } else if (numDefs[var] > 0) {
+                isInvariant[0] = false;
+            }
+        });
+
+        return isInvariant[0] ? replacements : null;
+    }
+
+    /**
+     * @return whether moving the instruction does not change what other instructions see
+     */
+    private static boolean isMovable(IrInstruction instruction, boolean storesToMemory) {
+        if (instruction.getDefinedVar() < 0) {
+            return false;
+        }
+
+        boolean readsMemory = Arrays.stream(instruction.getArgs()).anyMatch(IrOperand::isElement);
+        return switch (instruction.getOpcode()) {
+            // Copies of variables and constants cost as much as the copy that would be left
+            case COPY -> readsMemory && !storesToMemory;
+            case BINARY, UNARY -> !readsMemory || !storesToMemory;
+            case GETFIELD -> !storesToMemory;
+            case CALL -> instruction.getCallType() == CallType.arraylength;
+            default -> false;
+        };
+    }
+
+    private static boolean mayThrow(IrInstruction instruction) {
+        if (Arrays.stream(instruction.getArgs()).anyMatch(IrOperand::isElement)) {
+            return true;
+        }
+
+        return switch (instruction.getOpcode()) {
+            case BINARY -> instruction.getOperation() == OperationType.DIV
+                    && !(instruction.getArg(1).isConstant() && instruction.getArg(1).getValue() != 0);
+            case CALL -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * @return the only block that enters the loop, if it only goes to its header, or else a new block that the edges
+     * that enter the loop go to instead of its header, and that goes to the header
+     */
+    private BasicBlock addPreheader(BasicBlock header, Set<BasicBlock> body) {
+        List<BasicBlock> outside = header.getPredecessors().stream()
+                .filter(predecessor -> !body.contains(predecessor))
+                .toList();
+        if (outside.size() == 1 && outside.get(0).getSuccessors().size() == 1) {
+            return outside.get(0);
+        }
+
+        List<BasicBlock> blocks = method.getBlocks();
+        BasicBlock preheader = method.newBlock(null);
+        int index = blocks.indexOf(header);
+        BasicBlock previous = blocks.get(index - 1);
+
+        // The block before the header only falls through to the preheader if it is not in the loop
+        if (body.contains(previous) && previous.fallsThrough()) {
+            preheader.add(IrInstruction.jump(header));
+            blocks.add(preheader);
+        } else {
+            blocks.add(index, preheader);
+        }
+
+        for (BasicBlock predecessor : outside) {
+            IrInstruction terminator = predecessor.getTerminator();
+            if (terminator != null && terminator.getTarget() == header) {
+                terminator.setTarget(preheader);
+            }
+        }
+
+        method.updateCfg();
+        numPreheaders++;
+
+        // The preheader is in the loops around this one
+        analyze();
+
+        return preheader;
+    }
+
+    private static void insertBeforeTerminator(BasicBlock block, IrInstruction instruction) {
+        List<IrInstruction> instructions = block.getInstructions();
+        int index = block.getTerminator() == null ? instructions.size() : instructions.size() - 1;
+        instructions.add(index, instruction);
+    }
+
+    /**
+     * @return the number of instructions moved out of a loop, which are counted again for each loop they leave
+     */
+    public int getNumHoisted() {
+        return numHoisted;
+    }
+
+    /**
+     * @return the number of blocks added to be preheaders, which are not needed when the only block that enters a loop
+     * only goes to it
+     */
+    public int getNumPreheaders() {
+        return numPreheaders;
+    }
+}
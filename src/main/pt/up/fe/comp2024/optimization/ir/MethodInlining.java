@@ -0,0 +1,305 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.specs.comp.ollir.CallType;
+
+import java.util.*;
+
+/**
+ * Replaces the calls to small methods of the class by a copy of their code, with new variables for their parameters
+ * and locals, so the passes that run after this one see through them.
+ * <p>
+ * Only calls that always run the method of this class are inlined: static calls, and virtual calls on a variable that
+ * only ever holds objects the method created with {@code new} of this class, since a subclass may override the method
+ * called on any other object, {@code this} included. Recursive methods, constructors, methods with variable arguments
+ * and methods that access fields, which the backend only reads from {@code this}, are never inlined.
+ * <p>
+ * A method is inlined when it has at most {@value #MAX_INLINED_SIZE} instructions, and {@value #LOOP_SIZE_BONUS} more
+ * for each loop the call is in, up to {@value #MAX_LOOP_DEPTH}, since calls in loops run more often, and while the
+ * method it is inlined in has at most {@value #MAX_METHOD_SIZE} instructions. The calls in the code that was inlined
+ * are inlined too, for up to {@value #MAX_ROUNDS} levels.
+ */
+public class MethodInlining {
+
+    private static final int MAX_INLINED_SIZE = 12;
+    private static final int LOOP_SIZE_BONUS = 12;
+    private static final int MAX_LOOP_DEPTH = 3;
+    private static final int MAX_METHOD_SIZE = 2000;
+    private static final int MAX_ROUNDS = 3;
+    private static final int LOOP_SCALE = 10;
+
+    private final String className;
+    private final Map<String, IrMethod> methods = new HashMap<>();
+    private final Set<IrMethod> recursive = new HashSet<>();
+
+    private int numInlined = 0;
+    private int codeGrowth = 0;
+    private long estimatedSavings = 0;
+
+    private MethodInlining(IrClass irClass) {
+        this.className = irClass.getSource().getClassName();
+
+        // Overloaded methods cannot be told apart by name, so they are not inlined
+        Set<String> overloaded = new HashSet<>();
+        for (IrMethod method : irClass.getMethods()) {
+            if (methods.put(method.getName(), method) != null) {
+                overloaded.add(method.getName());
+            }
+        }
+        overloaded.forEach(methods::remove);
+    }
+
+    /**
+     * Inlines the calls of every method of the class, whose CFGs must be up to date, and updates them.
+     */
+    public static MethodInlining run(IrClass irClass) {
+        MethodInlining inlining = new MethodInlining(irClass);
+        inlining.findRecursive(irClass.getMethods());
+
+        for (IrMethod method : irClass.getMethods()) {
+            for (int round = 0; round < MAX_ROUNDS && inlining.inlineCalls(method); round++) {
+                // Until the code that was inlined has no calls to inline
+            }
+        }
+
+        return inlining;
+    }
+
+    /**
+     * Finds the methods that may call themselves, through any number of calls to methods of the class with their name.
+     */
+    private void findRecursive(List<IrMethod> classMethods) {
+        Map<IrMethod, Set<IrMethod>> callees = new HashMap<>();
+        for (IrMethod method : classMethods) {
+            Set<IrMethod> methodCallees = new HashSet<>();
+            for (IrInstruction instruction : method.getInstructions()) {
+                IrMethod callee = instruction.getOpcode() == IrOpcode.CALL && instruction.getMethodName() != null
+                        ? methods.get(instruction.getMethodName()) : null;
+                if (callee != null) {
+                    methodCallees.add(callee);
+                }
+            }
+            callees.put(method, methodCallees);
+        }
+
+        for (IrMethod method : classMethods) {
+            Set<IrMethod> reached = new HashSet<>();
+            Deque<IrMethod> worklist = new ArrayDeque<>(callees.get(method));
+            while (!worklist.isEmpty()) {
+                IrMethod callee = worklist.pop();
+                if (reached.add(callee)) {
+                    worklist.addAll(callees.getOrDefault(callee, Set.of()));
+                }
+            }
+
+            if (reached.contains(method)) {
+                recursive.add(method);
+            }
+        }
+    }
+
+    /**
+     * Inlines the calls the method makes, with the loops and variables it has before any of them is inlined.
+     *
+     * @return whether a call was inlined
+     */
+    private boolean inlineCalls(IrMethod method) {
+        LoopInfo loopInfo = LoopInfo.of(method);
+        Set<Integer> exactVars = getExactVars(method);
+
+        // The calls to inline, with the number of loops each one is in
+        Map<IrInstruction, Integer> calls = new LinkedHashMap<>();
+        for (BasicBlock block : method.getBlocks()) {
+            for (IrInstruction instruction : block.getInstructions()) {
+                if (getCallee(instruction, exactVars) != null) {
+                    calls.put(instruction, Math.min(loopInfo.getDepth(block), MAX_LOOP_DEPTH));
+                }
+            }
+        }
+
+        int size = method.getInstructions().size();
+        boolean inlined = false;
+        for (Map.Entry<IrInstruction, Integer> entry : calls.entrySet()) {
+            IrInstruction call = entry.getKey();
+            int depth = entry.getValue();
+            IrMethod callee = getCallee(call, exactVars);
+            int calleeSize = callee.getInstructions().size();
+
+            if (calleeSize > MAX_INLINED_SIZE + LOOP_SIZE_BONUS * depth || size + calleeSize > MAX_METHOD_SIZE) {
+                continue;
+            }
+
+            int growth = inline(method, call, callee);
+            size += growth;
+            codeGrowth += growth;
+            numInlined++;
+            inlined = true;
+
+            // The call, return and the loads of the caller and the arguments no longer run
+            estimatedSavings += (call.getNumArgs() + 2) * (long) Math.pow(LOOP_SCALE, depth);
+        }
+
+        if (inlined) {
+            method.updateCfg();
+        }
+
+        return inlined;
+    }
+
+    /**
+     * @return the method of this class the instruction always calls, if it can be inlined, or else null
+     */
+    private IrMethod getCallee(IrInstruction instruction, Set<Integer> exactVars) {
+        if (instruction.getOpcode() != IrOpcode.CALL || instruction.getMethodName() == null) {
+            return null;
+        }
+
+        IrMethod callee = methods.get(instruction.getMethodName());
+        if (callee == null || recursive.contains(callee) || callee.isConstructor() || callee.isVarargs()
+                || callee.getParams().size() != instruction.getNumArgs() - 1) {
+            return null;
+        }
+
+        IrOperand caller = instruction.getArg(0);
+        boolean isDispatched = switch (instruction.getCallType()) {
+            case invokestatic -> callee.isStatic() && caller.getKind() == IrOperand.Kind.NAME
+                    && caller.getName().equals(className);
+            case invokevirtual -> !callee.isStatic() && caller.isVar() && exactVars.contains(caller.getVar());
+            default -> false;
+        };
+
+        boolean accessesFields = callee.getInstructions().stream()
+                .anyMatch(calleeInstruction -> calleeInstruction.getOpcode() == IrOpcode.GETFIELD
+                        || calleeInstruction.getOpcode() == IrOpcode.PUTFIELD);
+
+        return isDispatched && !accessesFields ? callee : null;
+    }
+
+    /**
+     * @return the variables that are only assigned objects created with {@code new} of this class, or copies of other
+     * such variables, whose methods cannot be overridden
+     */
+    private Set<Integer> getExactVars(IrMethod method) {
+        Set<Integer> exactVars = new HashSet<>();
+        Set<Integer> otherDefs = new HashSet<>();
+        Map<Integer, List<Integer>> copied = new HashMap<>();
+
+        // Parameters, 'this' included, hold objects of any subclass
+        method.getParams().forEach(param -> otherDefs.add(param.getVar()));
+        otherDefs.add(method.findVar("this"));
+
+        for (IrInstruction instruction : method.getInstructions()) {
+            int defined = instruction.getDefinedVar();
+            if (defined < 0) {
+                continue;
+            }
+
+            IrOpcode opcode = instruction.getOpcode();
+            if (opcode == IrOpcode.CALL && instruction.getCallType() == CallType.NEW
+                    && instruction.getArg(0).getName().equals(className)) {
+                exactVars.add(defined);
+            } else if (opcode == IrOpcode.COPY && instruction.getArg(0).isVar()) {
+                exactVars.add(defined);
+                copied.computeIfAbsent(defined, key -> new ArrayList<>()).add(instruction.getArg(0).getVar());
+            } else {
+                otherDefs.add(defined);
+            }
+        }
+
+        exactVars.removeAll(otherDefs);
+        boolean changed = true;
+        while (changed) {
+            changed = exactVars.removeIf(var -> !exactVars.containsAll(copied.getOrDefault(var, List.of())));
+        }
+
+        return exactVars;
+    }
+
+    /**
+     * Replaces the call by the code of the callee: its block ends with copies of the arguments to the parameters and
+     * falls through to the blocks of the callee, whose returns copy the result and go to a new block with the
+     * instructions after the call.
+     *
+     * @return the number of instructions the method grew by
+     */
+    private static int inline(IrMethod method, IrInstruction call, IrMethod callee) {
+        BasicBlock block = method.getBlocks().stream()
+                .filter(candidate -> candidate.getInstructions().contains(call))
+                .findFirst()
+                .orElseThrow();
+        int size = method.getInstructions().size();
+
+        // The new variable of each variable of the callee, where 'this' is the object the method was called on
+        int[] renaming = new int[callee.getNumVars()];
+        for (int var = 0; var < callee.getNumVars(); var++) {
+            renaming[var] = callee.getVarName(var).equals("this") ? call.getArg(0).getVar()
+                    : method.newVar(callee.getName() + "_" + callee.getVarName(var), callee.getVarType(var));
+        }
+
+        List<IrInstruction> instructions = block.getInstructions();
+        int index = instructions.indexOf(call);
+        BasicBlock after = method.newBlock(null);
+        after.getInstructions().addAll(instructions.subList(index + 1, instructions.size()));
+        instructions.subList(index, instructions.size()).clear();
+
+        for (int i = 0; i < callee.getParams().size(); i++) {
+            IrOperand param = callee.getParams().get(i);
+            instructions.add(IrInstruction.copy(param.rename(var -> renaming[var]), call.getArg(i + 1)));
+        }
+
+        Map<BasicBlock, BasicBlock> copies = new HashMap<>();
+        callee.getBlocks().forEach(calleeBlock -> copies.put(calleeBlock, method.newBlock(null)));
+
+        for (BasicBlock calleeBlock : callee.getBlocks()) {
+            BasicBlock copy = copies.get(calleeBlock);
+            for (IrInstruction calleeInstruction : calleeBlock.getInstructions()) {
+                IrInstruction instruction = calleeInstruction.duplicate();
+                instruction.renameUses(var -> renaming[var]);
+                if (instruction.getDest() != null && instruction.getDest().isVar()) {
+                    instruction.setDest(instruction.getDest().rename(var -> renaming[var]));
+                }
+                if (instruction.getTarget() != null) {
+                    instruction.setTarget(copies.get(instruction.getTarget()));
+                }
+
+                if (instruction.getOpcode() != IrOpcode.RETURN) {
+                    copy.add(instruction);
+                    continue;
+                }
+
+                if (call.getDest() != null && instruction.getNumArgs() > 0) {
+                    copy.add(IrInstruction.copy(call.getDest(), instruction.getArg(0)));
+                }
+                copy.add(IrInstruction.jump(after));
+            }
+        }
+
+        List<BasicBlock> inlined = new ArrayList<>(callee.getBlocks().stream().map(copies::get).toList());
+        inlined.add(after);
+        method.getBlocks().addAll(method.getBlocks().indexOf(block) + 1, inlined);
+
+        return method.getInstructions().size() - size;
+    }
+
+    /**
+     * @return the number of calls inlined
+     */
+    public int getNumInlined() {
+        return numInlined;
+    }
+
+    /**
+     * @return the number of instructions added to the methods the calls were inlined in, minus the calls
+     */
+    public int getCodeGrowth() {
+        return codeGrowth;
+    }
+
+    /**
+     * @return an estimate of the number of instructions no longer run by each run of the methods: the call, the return
+     * and the loads of the caller and the arguments of each call inlined, for each of the {@value #LOOP_SCALE}
+     * iterations estimated for each loop around it
+     */
+    public long getEstimatedSavings() {
+        return estimatedSavings;
+    }
+}
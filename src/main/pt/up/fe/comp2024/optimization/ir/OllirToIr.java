@@ -0,0 +1,201 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.specs.util.exceptions.NotImplementedException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts the methods of an OLLIR class to the IR.
+ * <p>
+ * A new block starts at every label and after every jump or return. An instruction with several labels gets an empty
+ * block for each label but the last, so every label keeps its own block.
+ */
+public class OllirToIr {
+
+    private final Method method;
+    private final IrMethod irMethod;
+    private final Map<String, BasicBlock> labelledBlocks = new HashMap<>();
+    private final Map<IrInstruction, String> jumps = new HashMap<>();
+
+    private OllirToIr(Method method) {
+        this.method = method;
+        this.irMethod = new IrMethod(method.getMethodName(), method.getMethodAccessModifier(), method.isStaticMethod(),
+                method.isFinalMethod(), method.isConstructMethod(), method.isVarargs(), method.getReturnType());
+    }
+
+    public static IrClass convert(ClassUnit classUnit) {
+        List<IrMethod> methods = new ArrayList<>();
+        for (Method method : classUnit.getMethods()) {
+            methods.add(convert(method));
+        }
+
+        return new IrClass(classUnit, methods);
+    }
+
+    public static IrMethod convert(Method method) {
+        return new OllirToIr(method).convert();
+    }
+
+    private IrMethod convert() {
+        for (Element param : method.getParams()) {
+            irMethod.addParam(toOperand(param));
+        }
+
+        BasicBlock current = irMethod.addBlock(null);
+        for (Instruction instruction : method.getInstructions()) {
+            for (String label : method.getLabels(instruction)) {
+                if (!current.getInstructions().isEmpty() || current.getLabel() != null) {
+                    current = irMethod.addBlock(label);
+                } else {
+                    current.setLabel(label);
+                }
+                labelledBlocks.put(label, current);
+            }
+
+            IrInstruction irInstruction = toIr(instruction);
+            current.add(irInstruction);
+
+            if (irInstruction.getOpcode().isTerminator()) {
+                current = irMethod.addBlock(null);
+            }
+        }
+
+        List<BasicBlock> blocks = irMethod.getBlocks();
+        BasicBlock last = blocks.get(blocks.size() - 1);
+        if (blocks.size() > 1 && last.getInstructions().isEmpty() && last.getLabel() == null) {
+            blocks.remove(blocks.size() - 1);
+        }
+
+        jumps.forEach((jump, label) -> jump.setTarget(labelledBlocks.get(label)));
+        irMethod.updateCfg();
+
+        return irMethod;
+    }
+
+    private IrInstruction toIr(Instruction instruction) {
+        return switch (instruction.getInstType()) {
+            case ASSIGN -> {
+                AssignInstruction assign = (AssignInstruction) instruction;
+                yield toIr(assign.getRhs(), toOperand(assign.getDest()));
+            }
+            case GOTO -> {
+                IrInstruction jump = IrInstruction.jump(null);
+                jumps.put(jump, ((GotoInstruction) instruction).getLabel());
+                yield jump;
+            }
+            case BRANCH -> {
+                CondBranchInstruction branch = (CondBranchInstruction) instruction;
+                IrInstruction irBranch = toBranch(branch.getCondition());
+                jumps.put(irBranch, branch.getLabel());
+                yield irBranch;
+            }
+            case RETURN -> {
+                ReturnInstruction ret = (ReturnInstruction) instruction;
+                yield IrInstruction.ret(ret.getReturnType(), ret.hasReturnValue() ? toOperand(ret.getOperand()) : null);
+            }
+            case PUTFIELD -> {
+                PutFieldInstruction putField = (PutFieldInstruction) instruction;
+                yield IrInstruction.putField(toOperand(putField.getObject()), toName(putField.getField()),
+                        toOperand(putField.getValue()), putField.getFieldType());
+            }
+            default -> toIr(instruction, null);
+        };
+    }
+
+    /**
+     * Converts an instruction that computes a value, which is assigned to the destination if there is one.
+     */
+    private IrInstruction toIr(Instruction instruction, IrOperand dest) {
+        return switch (instruction.getInstType()) {
+            case NOPER -> IrInstruction.copy(dest, toOperand(((SingleOpInstruction) instruction).getSingleOperand()));
+            case BINARYOPER -> {
+                BinaryOpInstruction binaryOp = (BinaryOpInstruction) instruction;
+                Operation operation = binaryOp.getOperation();
+                yield IrInstruction.binary(dest, operation.getOpType(), operation.getTypeInfo(),
+                        toOperand(binaryOp.getLeftOperand()), toOperand(binaryOp.getRightOperand()));
+            }
+            case UNARYOPER -> {
+                UnaryOpInstruction unaryOp = (UnaryOpInstruction) instruction;
+                Operation operation = unaryOp.getOperation();
+                yield IrInstruction.unary(dest, operation.getOpType(), operation.getTypeInfo(),
+                        toOperand(unaryOp.getOperand()));
+            }
+            case CALL -> toCall((CallInstruction) instruction, dest);
+            case GETFIELD -> {
+                GetFieldInstruction getField = (GetFieldInstruction) instruction;
+                yield IrInstruction.getField(dest, toOperand(getField.getObject()), toName(getField.getField()),
+                        getField.getFieldType());
+            }
+            default -> throw new NotImplementedException(instruction.getInstType());
+        };
+    }
+
+    private IrInstruction toCall(CallInstruction call, IrOperand dest) {
+        List<IrOperand> args = new ArrayList<>();
+
+        // The caller of 'new' names the class or 'array'
+        Operand caller = (Operand) call.getCaller();
+        args.add(call.getInvocationType() == CallType.NEW ? toName(caller) : toOperand(caller));
+        call.getArguments().forEach(argument -> args.add(toOperand(argument)));
+
+        String methodName = call.getMethodNameTry()
+                .map(name -> ((LiteralElement) name).getLiteral().replace("\"", ""))
+                .orElse(null);
+
+        return IrInstruction.call(dest, call.getInvocationType(), methodName, call.getReturnType(),
+                args.toArray(IrOperand[]::new));
+    }
+
+    private IrInstruction toBranch(Instruction condition) {
+        return switch (condition.getInstType()) {
+            case NOPER -> IrInstruction.branch(null, null, null,
+                    toOperand(((SingleOpInstruction) condition).getSingleOperand()));
+            case UNARYOPER -> {
+                UnaryOpInstruction unaryOp = (UnaryOpInstruction) condition;
+                Operation operation = unaryOp.getOperation();
+                yield IrInstruction.branch(null, operation.getOpType(), operation.getTypeInfo(),
+                        toOperand(unaryOp.getOperand()));
+            }
+            case BINARYOPER -> {
+                BinaryOpInstruction binaryOp = (BinaryOpInstruction) condition;
+                Operation operation = binaryOp.getOperation();
+                yield IrInstruction.branch(null, operation.getOpType(), operation.getTypeInfo(),
+                        toOperand(binaryOp.getLeftOperand()), toOperand(binaryOp.getRightOperand()));
+            }
+            default -> throw new NotImplementedException(condition.getInstType());
+        };
+    }
+
+    private IrOperand toOperand(Element element) {
+        if (element instanceof LiteralElement literal) {
+            return IrOperand.constant(Integer.parseInt(literal.getLiteral()), literal.getType());
+        }
+
+        Operand operand = (Operand) element;
+
+        // Classes in static calls are not variables
+        if (operand.getType().getTypeOfElement() == ElementType.CLASS) {
+            return toName(operand);
+        }
+
+        if (operand instanceof ArrayOperand arrayOperand) {
+            if (arrayOperand.getIndexOperands().size() != 1) {
+                throw new NotImplementedException("arrays with " + arrayOperand.getIndexOperands().size() + " indexes");
+            }
+
+            ArrayType arrayType = new ArrayType(1, operand.getType().getTypeOfElement());
+            int array = irMethod.getVar(operand.getName(), arrayType);
+            return IrOperand.element(array, toOperand(arrayOperand.getIndexOperands().get(0)), operand.getType());
+        }
+
+        return IrOperand.var(irMethod.getVar(operand.getName(), operand.getType()), operand.getType());
+    }
+
+    private static IrOperand toName(Operand operand) {
+        return IrOperand.name(operand.getName(), operand.getType());
+    }
+}
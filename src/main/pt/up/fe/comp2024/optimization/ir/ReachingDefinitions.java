@@ -0,0 +1,117 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The definitions that reach the start and the end of each block of a method, whose CFG must be up to date.
+ * <p>
+ * Each instruction that assigns a variable is a definition, and so are 'this' and the parameters, which are assigned on
+ * entry. A definition reaches a point if some path from it to the point does not assign its variable again.
+ */
+public class ReachingDefinitions extends DataflowAnalysis {
+
+    private final List<IrInstruction> definitions;
+    private final int[] definedVars;
+    private final Map<IrInstruction, Integer> ids;
+    private final BitVector[] definitionsOf;
+
+    private ReachingDefinitions(IrMethod method, List<IrInstruction> definitions, int[] definedVars) {
+        super(method, Direction.FORWARD, Meet.UNION, definitions.size());
+        this.definitions = definitions;
+        this.definedVars = definedVars;
+        this.ids = new HashMap<>();
+        this.definitionsOf = new BitVector[method.getNumVars()];
+
+        for (int var = 0; var < definitionsOf.length; var++) {
+            definitionsOf[var] = new BitVector(definitions.size());
+        }
+        for (int id = 0; id < definitions.size(); id++) {
+            definitionsOf[definedVars[id]].set(id);
+            if (definitions.get(id) != null) {
+                ids.put(definitions.get(id), id);
+            }
+        }
+    }
+
+    public static ReachingDefinitions of(IrMethod method) {
+        List<IrInstruction> definitions = new ArrayList<>();
+        List<Integer> definedVars = new ArrayList<>();
+
+        int thisVar = method.isStatic() ? -1 : method.findVar("this");
+        if (thisVar >= 0) {
+            definitions.add(null);
+            definedVars.add(thisVar);
+        }
+        for (IrOperand param : method.getParams()) {
+            definitions.add(null);
+            definedVars.add(param.getVar());
+        }
+
+        for (IrInstruction instruction : method.getInstructions()) {
+            if (instruction.getDefinedVar() >= 0) {
+                definitions.add(instruction);
+                definedVars.add(instruction.getDefinedVar());
+            }
+        }
+
+        ReachingDefinitions reachingDefinitions = new ReachingDefinitions(method, definitions,
+                definedVars.stream().mapToInt(Integer::intValue).toArray());
+        reachingDefinitions.solve();
+
+        return reachingDefinitions;
+    }
+
+    @Override
+    protected BitVector getBoundary() {
+        BitVector entryDefinitions = new BitVector(getSize());
+        for (int id = 0; id < definitions.size() && definitions.get(id) == null; id++) {
+            entryDefinitions.set(id);
+        }
+
+        return entryDefinitions;
+    }
+
+    @Override
+    protected void transfer(BasicBlock block, BitVector gen, BitVector kill) {
+        for (IrInstruction instruction : block.getInstructions()) {
+            int defined = instruction.getDefinedVar();
+            if (defined >= 0) {
+                gen.andNot(definitionsOf[defined]);
+                kill.or(definitionsOf[defined]);
+                gen.set(ids.get(instruction));
+            }
+        }
+    }
+
+    public int getNumDefinitions() {
+        return definitions.size();
+    }
+
+    /**
+     * @return the instruction of the definition, or null if it is the one of 'this' or a parameter on entry
+     */
+    public IrInstruction getDefinition(int id) {
+        return definitions.get(id);
+    }
+
+    /**
+     * @return the id of the definition of the instruction, or -1 if it does not assign a variable
+     */
+    public int getId(IrInstruction instruction) {
+        return ids.getOrDefault(instruction, -1);
+    }
+
+    public int getDefinedVar(int id) {
+        return definedVars[id];
+    }
+
+    /**
+     * @return the definitions of the variable, which must not be changed
+     */
+    public BitVector getDefinitionsOf(int var) {
+        return definitionsOf[var];
+    }
+}
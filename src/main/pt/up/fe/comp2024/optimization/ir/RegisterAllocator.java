@@ -0,0 +1,188 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.specs.comp.ollir.Descriptor;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.VarScope;
+
+import java.util.*;
+
+/**
+ * Assigns the variables of a method to JVM local variables by coloring their interference graph.
+ * <p>
+ * Two variables interfere when one is assigned while the other is live, except that a copy does not make its
+ * destination interfere with its source, so both can share a register. 'this' and the parameters keep the registers
+ * the JVM passes them in, and the other variables can take them once they are no longer live.
+ * <p>
+ * Variables are colored in smallest-last order: the variable with the fewest neighbors is removed from the graph
+ * until it is empty, and the variables then take the lowest register free among their neighbors, in reverse order.
+ */
+public class RegisterAllocator {
+
+    private final IrMethod method;
+    private final List<BitSet> interferences = new ArrayList<>();
+    private final int[] registers;
+
+    private RegisterAllocator(IrMethod method) {
+        this.method = method;
+        this.registers = new int[method.getNumVars()];
+
+        for (int var = 0; var < method.getNumVars(); var++) {
+            interferences.add(new BitSet());
+        }
+    }
+
+    public static RegisterAllocator of(IrMethod method) {
+        RegisterAllocator allocator = new RegisterAllocator(method);
+        allocator.buildInterferences();
+        allocator.color();
+
+        return allocator;
+    }
+
+    private void buildInterferences() {
+        method.updateCfg();
+        Liveness liveness = Liveness.of(method);
+
+        for (BasicBlock block : method.getBlocks()) {
+            BitVector live = liveness.getLiveOut(block).copy();
+            List<IrInstruction> instructions = block.getInstructions();
+
+            for (int i = instructions.size() - 1; i >= 0; i--) {
+                IrInstruction instruction = instructions.get(i);
+                int defined = instruction.getDefinedVar();
+
+                if (defined >= 0) {
+                    IrOperand value = instruction.getArg(0);
+                    boolean isCopy = instruction.getOpcode() == IrOpcode.COPY && value.isVar();
+                    boolean sourceLive = isCopy && live.get(value.getVar());
+
+                    if (isCopy) {
+                        live.clear(value.getVar());
+                    }
+                    addInterferences(defined, live);
+                    if (sourceLive) {
+                        live.set(value.getVar());
+                    }
+
+                    live.clear(defined);
+                }
+
+                instruction.forEachUse(live::set);
+            }
+        }
+
+        // 'this' and the parameters are assigned together on entry
+        BitVector entryDefs = getEntryDefs();
+        BitVector liveOnEntry = liveness.getLiveIn(method.getBlocks().get(0)).copy();
+        liveOnEntry.or(entryDefs);
+        entryDefs.forEach(var -> addInterferences(var, liveOnEntry));
+    }
+
+    private void addInterferences(int var, BitVector live) {
+        live.forEach(other -> {
+            if (other != var) {
+                interferences.get(var).set(other);
+                interferences.get(other).set(var);
+            }
+        });
+    }
+
+    private BitVector getEntryDefs() {
+        BitVector entryDefs = new BitVector(method.getNumVars());
+        getPrecolored().keySet().forEach(entryDefs::set);
+
+        return entryDefs;
+    }
+
+    /**
+     * @return the variables whose register is fixed by the JVM: 'this' and the parameters
+     */
+    private Map<Integer, Integer> getPrecolored() {
+        Map<Integer, Integer> precolored = new HashMap<>();
+
+        int register = 0;
+        if (!method.isStatic()) {
+            int thisVar = method.findVar("this");
+            if (thisVar >= 0) {
+                precolored.put(thisVar, register);
+            }
+            register++;
+        }
+
+        for (IrOperand param : method.getParams()) {
+            precolored.put(param.getVar(), register++);
+        }
+
+        return precolored;
+    }
+
+    private void color() {
+        Map<Integer, Integer> precolored = getPrecolored();
+        Arrays.fill(registers, -1);
+        precolored.forEach((var, register) -> registers[var] = register);
+
+        // Smallest-last order of the other variables
+        int[] degrees = new int[registers.length];
+        BitSet removed = new BitSet();
+        for (int var = 0; var < registers.length; var++) {
+            degrees[var] = interferences.get(var).cardinality();
+            if (precolored.containsKey(var)) {
+                removed.set(var);
+            }
+        }
+
+        Deque<Integer> order = new ArrayDeque<>();
+        for (int left = registers.length - precolored.size(); left > 0; left--) {
+            int next = -1;
+            for (int var = removed.nextClearBit(0); var < registers.length; var = removed.nextClearBit(var + 1)) {
+                if (next < 0 || degrees[var] < degrees[next]) {
+                    next = var;
+                }
+            }
+
+            removed.set(next);
+            order.push(next);
+            interferences.get(next).stream().forEach(neighbor -> degrees[neighbor]--);
+        }
+
+        for (int var : order) {
+            BitSet taken = new BitSet();
+            interferences.get(var).stream()
+                    .filter(neighbor -> registers[neighbor] >= 0)
+                    .forEach(neighbor -> taken.set(registers[neighbor]));
+            registers[var] = taken.nextClearBit(0);
+        }
+    }
+
+    public int getRegister(int var) {
+        return registers[var];
+    }
+
+    /**
+     * @return the number of JVM local variables the method needs, which includes the ones of 'this' and the
+     * parameters, even if they are not used
+     */
+    public int getNumRegisters() {
+        int numRegisters = method.getParams().size() + (method.isStatic() ? 0 : 1);
+        for (int register : registers) {
+            numRegisters = Math.max(numRegisters, register + 1);
+        }
+
+        return numRegisters;
+    }
+
+    /**
+     * Gives the registers to the variables of the OLLIR method the IR method was converted to. The names in its table
+     * that are not variables, such as the classes of static calls, get register 0, which they never use.
+     */
+    public void assignTo(Method ollirMethod) {
+        for (Map.Entry<String, Descriptor> entry : ollirMethod.getVarTable().entrySet()) {
+            if (entry.getValue().getScope() == VarScope.FIELD) {
+                continue;
+            }
+
+            int var = method.findVar(entry.getKey());
+            entry.getValue().setVirtualReg(var >= 0 ? registers[var] : 0);
+        }
+    }
+}
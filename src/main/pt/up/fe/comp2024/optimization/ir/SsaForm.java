@@ -0,0 +1,231 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.*;
+
+/**
+ * Puts a method in SSA form, where each variable is assigned by a single instruction, and takes it back out.
+ * <p>
+ * Phi instructions are placed in the iterated dominance frontiers of the blocks that assign each variable, but only
+ * where the variable is live, and the variables are then renamed in a walk of the dominator tree. Each new variable
+ * remembers the one it was renamed from, and the first version of every variable is the variable itself, which is
+ * what 'this', the parameters and the variables read before being assigned keep.
+ * <p>
+ * Passes that run in SSA form must keep it conventional: the versions of a variable must never be live at the same
+ * time. Replacing reads by constants and removing instructions does, so the method is taken out of SSA form by
+ * renaming every version back to its variable and removing the phi instructions.
+ */
+public class SsaForm {
+
+    private final IrMethod method;
+    private final List<Integer> originalVars = new ArrayList<>();
+    private final int numOriginalVars;
+    private Dominators dominators;
+
+    private SsaForm(IrMethod method) {
+        this.method = method;
+        this.numOriginalVars = method.getNumVars();
+
+        for (int var = 0; var < numOriginalVars; var++) {
+            originalVars.add(var);
+        }
+    }
+
+    /**
+     * Puts the method, whose CFG must be up to date, in SSA form.
+     */
+    public static SsaForm construct(IrMethod method) {
+        SsaForm ssaForm = new SsaForm(method);
+
+        // Phi instructions are not placed in the entry, where 'this' and the parameters are assigned
+        List<BasicBlock> blocks = method.getBlocks();
+        if (!blocks.get(0).getPredecessors().isEmpty()) {
+            blocks.add(0, method.newBlock(null));
+            method.updateCfg();
+        }
+
+        ssaForm.dominators = Dominators.of(method);
+        ssaForm.placePhis();
+        ssaForm.rename();
+
+        return ssaForm;
+    }
+
+    private void placePhis() {
+        Liveness liveness = Liveness.of(method);
+        List<List<BasicBlock>> defBlocks = new ArrayList<>();
+        for (int var = 0; var < numOriginalVars; var++) {
+            defBlocks.add(new ArrayList<>());
+        }
+
+        for (BasicBlock block : dominators.getReversePostorder()) {
+            for (IrInstruction instruction : block.getInstructions()) {
+                int defined = instruction.getDefinedVar();
+                if (defined < 0) {
+                    continue;
+                }
+
+                List<BasicBlock> varDefBlocks = defBlocks.get(defined);
+                if (varDefBlocks.isEmpty() || varDefBlocks.get(varDefBlocks.size() - 1) != block) {
+                    varDefBlocks.add(block);
+                }
+            }
+        }
+
+        // The last var given a phi in each block, so each block is only queued once for each variable
+        int[] hasPhi = new int[method.getNumBlockIds()];
+        int[] queued = new int[method.getNumBlockIds()];
+        Arrays.fill(hasPhi, -1);
+        Arrays.fill(queued, -1);
+
+        for (int var = 0; var < numOriginalVars; var++) {
+            Deque<BasicBlock> worklist = new ArrayDeque<>(defBlocks.get(var));
+            for (BasicBlock block : worklist) {
+                queued[block.getId()] = var;
+            }
+
+            while (!worklist.isEmpty()) {
+                for (BasicBlock frontier : dominators.getFrontier(worklist.poll())) {
+                    if (hasPhi[frontier.getId()] == var || !liveness.getLiveIn(frontier).get(var)) {
+                        continue;
+                    }
+
+                    hasPhi[frontier.getId()] = var;
+                    addPhi(frontier, var);
+                    if (queued[frontier.getId()] != var) {
+                        queued[frontier.getId()] = var;
+                        worklist.add(frontier);
+                    }
+                }
+            }
+        }
+    }
+
+    private void addPhi(BasicBlock block, int var) {
+        IrOperand value = IrOperand.var(var, method.getVarType(var));
+        List<IrOperand> values = Collections.nCopies(block.getPredecessors().size(), value);
+        block.getInstructions().add(0, IrInstruction.phi(value, values, block.getPredecessors()));
+    }
+
+    /**
+     * Gives each assignment a new variable and makes each read use the version that reaches it, walking the dominator
+     * tree without recursion, so long methods do not overflow the stack.
+     */
+    private void rename() {
+        int[] versions = new int[numOriginalVars];
+        for (int var = 0; var < numOriginalVars; var++) {
+            versions[var] = var;
+        }
+
+        Deque<BasicBlock> path = new ArrayDeque<>();
+        Deque<Iterator<BasicBlock>> children = new ArrayDeque<>();
+        Deque<int[]> replacedVersions = new ArrayDeque<>();
+
+        BasicBlock entry = method.getBlocks().get(0);
+        path.push(entry);
+        children.push(dominators.getChildren(entry).iterator());
+        replacedVersions.push(renameBlock(entry, versions));
+
+        while (!path.isEmpty()) {
+            Iterator<BasicBlock> iterator = children.peek();
+            if (iterator.hasNext()) {
+                BasicBlock child = iterator.next();
+                path.push(child);
+                children.push(dominators.getChildren(child).iterator());
+                replacedVersions.push(renameBlock(child, versions));
+                continue;
+            }
+
+            path.pop();
+            children.pop();
+
+            // Restores the versions before the block, in reverse order
+            int[] replaced = replacedVersions.pop();
+            for (int i = replaced.length - 2; i >= 0; i -= 2) {
+                versions[replaced[i]] = replaced[i + 1];
+            }
+        }
+    }
+
+    /**
+     * Renames the variables of the block and the arguments of the phi instructions of its successors that come from
+     * it.
+     *
+     * @return pairs of each variable assigned in the block and the version it had before it
+     */
+    private int[] renameBlock(BasicBlock block, int[] versions) {
+        List<Integer> replaced = new ArrayList<>();
+
+        for (IrInstruction instruction : block.getInstructions()) {
+            if (instruction.getOpcode() != IrOpcode.PHI) {
+                instruction.renameUses(var -> versions[var]);
+            }
+
+            int defined = instruction.getDefinedVar();
+            if (defined >= 0) {
+                int version = method.getVar(method.getVarName(defined) + "#" + originalVars.size(),
+                        method.getVarType(defined));
+                originalVars.add(defined);
+
+                replaced.add(defined);
+                replaced.add(versions[defined]);
+                versions[defined] = version;
+                instruction.setDest(IrOperand.var(version, instruction.getDest().getType()));
+            }
+        }
+
+        for (BasicBlock successor : block.getSuccessors()) {
+            for (IrInstruction phi : successor.getInstructions()) {
+                if (phi.getOpcode() != IrOpcode.PHI) {
+                    break;
+                }
+
+                for (int i = 0; i < phi.getNumArgs(); i++) {
+                    if (phi.getSource(i) == block) {
+                        phi.setArg(i, phi.getArg(i).rename(var -> versions[var]));
+                    }
+                }
+            }
+        }
+
+        return replaced.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Takes the method out of SSA form, renaming each version back to its variable and removing the phi instructions
+     * and the versions.
+     */
+    public void destruct() {
+        for (BasicBlock block : method.getBlocks()) {
+            block.getInstructions().removeIf(instruction -> instruction.getOpcode() == IrOpcode.PHI);
+
+            for (IrInstruction instruction : block.getInstructions()) {
+                instruction.renameUses(this::getOriginalVar);
+
+                int defined = instruction.getDefinedVar();
+                if (defined >= 0) {
+                    instruction.setDest(instruction.getDest().rename(this::getOriginalVar));
+                }
+            }
+        }
+
+        method.removeVarsFrom(numOriginalVars);
+    }
+
+    /**
+     * @return the variable the given one is a version of, which is itself if it was not renamed
+     */
+    public int getOriginalVar(int var) {
+        return originalVars.get(var);
+    }
+
+    /**
+     * @return whether the variable is the first version of one, which is not assigned in the reachable blocks
+     */
+    public boolean isOriginalVar(int var) {
+        return var < numOriginalVars;
+    }
+
+    public Dominators getDominators() {
+        return dominators;
+    }
+}
@@ -0,0 +1,63 @@
+package pt.up.fe.comp2024.symboltable;
+
+import java.util.*;
+
+/**
+ * Names declared more than once, recorded while building the symbol table.
+ */
+public class Duplicates {
+
+    private final Set<String> imports;
+    private final Set<String> fields;
+    private final Set<String> methods;
+    private final Map<String, Set<String>> params;
+    private final Map<String, Set<String>> locals;
+
+    public Duplicates() {
+        this.imports = new HashSet<>();
+        this.fields = new HashSet<>();
+        this.methods = new HashSet<>();
+        this.params = new HashMap<>();
+        this.locals = new HashMap<>();
+    }
+
+    void addImport(String name) {
+        imports.add(name);
+    }
+
+    void addField(String name) {
+        fields.add(name);
+    }
+
+    void addMethod(String name) {
+        methods.add(name);
+    }
+
+    void setParams(String method, Set<String> names) {
+        params.put(method, names);
+    }
+
+    void setLocals(String method, Set<String> names) {
+        locals.put(method, names);
+    }
+
+    public List<String> getImports() {
+        return new ArrayList<>(imports);
+    }
+
+    public List<String> getFields() {
+        return new ArrayList<>(fields);
+    }
+
+    public List<String> getMethods() {
+        return new ArrayList<>(methods);
+    }
+
+    public List<String> getParams(String method) {
+        return new ArrayList<>(params.getOrDefault(method, Collections.emptySet()));
+    }
+
+    public List<String> getLocals(String method) {
+        return new ArrayList<>(locals.getOrDefault(method, Collections.emptySet()));
+    }
+}
@@ -4,9 +4,7 @@ import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 public class JmmSymbolTable implements SymbolTable {
 
@@ -15,26 +13,38 @@ public class JmmSymbolTable implements SymbolTable {
     private final String superclassName;
     private final List<Symbol> fields;
     private final List<String> methods;
+    private final List<String> signatures;
     private final Map<String, Type> returnTypes;
     private final Map<String, List<Symbol>> params;
     private final Map<String, List<Symbol>> locals;
+    private final Duplicates duplicates;
+    private final Map<String, List<String>> overloads;
 
     public JmmSymbolTable(List<String> imports,
                           String className,
                           String superclassName,
                           List<Symbol> fields,
                           List<String> methods,
+                          List<String> signatures,
                           Map<String, Type> returnTypes,
                           Map<String, List<Symbol>> params,
-                          Map<String, List<Symbol>> locals) {
+                          Map<String, List<Symbol>> locals,
+                          Duplicates duplicates) {
         this.imports = imports;
         this.className = className;
         this.superclassName = superclassName;
         this.methods = methods;
+        this.signatures = signatures;
         this.fields = fields;
         this.returnTypes = returnTypes;
         this.params = params;
         this.locals = locals;
+        this.duplicates = duplicates;
+        this.overloads = new HashMap<>();
+
+        for (String signature : signatures) {
+            overloads.computeIfAbsent(MethodSignature.getName(signature), name -> new ArrayList<>()).add(signature);
+        }
     }
 
     @Override
@@ -62,9 +72,104 @@ public class JmmSymbolTable implements SymbolTable {
         return Collections.unmodifiableList(methods);
     }
 
+    /**
+     * @return the signatures of the methods, in the same order as {@link #getMethods()}
+     */
+    public List<String> getMethodSignatures() {
+        return Collections.unmodifiableList(signatures);
+    }
+
+    /**
+     * @return true if this class declares more than one method with the given name
+     */
+    public boolean isOverloaded(String name) {
+        List<String> candidates = overloads.get(name);
+        return candidates != null && candidates.size() > 1;
+    }
+
+    /**
+     * Finds the method of this class that a call with arguments of the given types refers to.
+     * <p>
+     * When the method is not overloaded, the types are not needed. Otherwise, the overload with exactly the given
+     * parameter types is preferred, followed by the first one the arguments can be passed to.
+     *
+     * @param name     the name of the method
+     * @param argTypes the types of the arguments, or null if some are unknown
+     * @return the signature of the method, or the given name if there is no method with that name
+     */
+    public String resolveMethod(String name, List<Type> argTypes) {
+        List<String> candidates = overloads.get(name);
+
+        if (candidates == null) {
+            return name;
+        }
+
+        if (candidates.size() == 1 || argTypes == null) {
+            return candidates.get(0);
+        }
+
+        String exact = MethodSignature.of(name, argTypes);
+        if (params.containsKey(exact)) {
+            return exact;
+        }
+
+        return candidates.stream()
+                .filter(candidate -> isApplicable(params.get(candidate), argTypes))
+                .findFirst()
+                .orElse(candidates.get(0));
+    }
+
+    private static boolean isApplicable(List<Symbol> params, List<Type> argTypes) {
+        int fixed = params.size();
+        Type last = fixed > 0 ? params.get(fixed - 1).getType() : null;
+
+        if (last != null && last.hasAttribute("isEllipsis") && last.getObject("isEllipsis", Boolean.class)) {
+            fixed--;
+            if (argTypes.size() < fixed) {
+                return false;
+            }
+
+            boolean passesArray = argTypes.size() == params.size() && argTypes.get(fixed).isArray();
+            for (int i = fixed; i < argTypes.size() && !passesArray; i++) {
+                if (!argTypes.get(i).getName().equals(last.getName()) || argTypes.get(i).isArray()) {
+                    return false;
+                }
+            }
+        } else if (argTypes.size() != fixed) {
+            return false;
+        }
+
+        for (int i = 0; i < fixed; i++) {
+            if (!argTypes.get(i).equals(params.get(i).getType())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the signature of the given method, which may also be given by its name alone
+     */
+    private String resolve(String methodSignature) {
+        if (params.containsKey(methodSignature)) {
+            return methodSignature;
+        }
+
+        List<String> candidates = overloads.get(methodSignature);
+        return candidates == null ? methodSignature : candidates.get(0);
+    }
+
+    /**
+     * @return the names declared more than once
+     */
+    public Duplicates getDuplicates() {
+        return duplicates;
+    }
+
     @Override
     public Type getReturnType(String methodSignature) {
-        Type returnType = returnTypes.get(methodSignature);
+        Type returnType = returnTypes.get(resolve(methodSignature));
         if (returnType != null)
             return returnType;
         return new Type("void", false);
@@ -72,11 +177,23 @@ public class JmmSymbolTable implements SymbolTable {
 
     @Override
     public List<Symbol> getParameters(String methodSignature) {
-        return Collections.unmodifiableList(params.get(methodSignature));
+        return Collections.unmodifiableList(params.get(resolve(methodSignature)));
     }
 
     @Override
     public List<Symbol> getLocalVariables(String methodSignature) {
-        return Collections.unmodifiableList(locals.get(methodSignature));
+        return Collections.unmodifiableList(locals.get(resolve(methodSignature)));
+    }
+
+    Map<String, Type> getReturnTypes() {
+        return Collections.unmodifiableMap(returnTypes);
+    }
+
+    Map<String, List<Symbol>> getParams() {
+        return Collections.unmodifiableMap(params);
+    }
+
+    Map<String, List<Symbol>> getLocals() {
+        return Collections.unmodifiableMap(locals);
     }
 }
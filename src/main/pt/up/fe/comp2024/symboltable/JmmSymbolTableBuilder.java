@@ -7,13 +7,14 @@ import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.TypeUtils;
 import pt.up.fe.specs.util.SpecsCheck;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 import static pt.up.fe.comp2024.ast.Kind.*;
 
+/**
+ * Builds the symbol table of a program in a single traversal of its declarations, recording the names declared more
+ * than once on the way.
+ */
 public class JmmSymbolTableBuilder {
 
     TypeUtils typeUtils;
@@ -24,9 +25,19 @@ public class JmmSymbolTableBuilder {
 
     public JmmSymbolTable build(JmmNode root) {
         var children = root.getChildren();
-        List<JmmNode> importDecls = children.size() > 1 ? children.subList(0, children.size() - 1) : new ArrayList<>();
+        var duplicates = new Duplicates();
 
-        List<String> imports = buildImports(importDecls);
+        List<String> imports = new ArrayList<>();
+        Set<String> importNames = new HashSet<>();
+
+        for (JmmNode importDecl : children.subList(0, children.size() - 1)) {
+            List<String> tempImport = importDecl.getObjectAsList("name", String.class);
+            String name = tempImport.get(tempImport.size() - 1);
+            imports.add(name);
+            if (!importNames.add(name)) {
+                duplicates.addImport(name);
+            }
+        }
 
         var classDecl = children.get(children.size() - 1);
 
@@ -35,101 +46,89 @@ public class JmmSymbolTableBuilder {
         String className = classDecl.get("name");
         String superclassName = classDecl.getObject("isSubclass", Boolean.class) ? classDecl.get("parentClassName") : "";
 
-        var fields = buildFields(classDecl);
-        var methods = buildMethods(classDecl);
-        var returnTypes = buildReturnTypes(classDecl);
-        var params = buildParams(classDecl);
-        var locals = buildLocals(classDecl);
-
-        return new JmmSymbolTable(imports, className, superclassName, fields, methods, returnTypes, params, locals);
-    }
+        List<Symbol> fields = new ArrayList<>();
+        Set<String> fieldNames = new HashSet<>();
+        List<String> methods = new ArrayList<>();
+        List<String> signatures = new ArrayList<>();
+        Set<String> methodSignatures = new HashSet<>();
+        Map<String, Type> returnTypes = new HashMap<>();
+        Map<String, List<Symbol>> params = new HashMap<>();
+        Map<String, List<Symbol>> locals = new HashMap<>();
+
+        for (JmmNode member : classDecl.getChildren()) {
+            if (VAR_DECL.check(member)) {
+                Symbol field = buildSymbol(member, "name");
+                fields.add(field);
+                if (!fieldNames.add(field.getName())) {
+                    duplicates.addField(field.getName());
+                }
+                continue;
+            }
 
-    private List<String> buildImports(List<JmmNode> importDecls) {
-        List<String> imports = new ArrayList<>();
+            String name = member.get("name");
+            String signature = MethodSignature.of(member);
+            methods.add(name);
+            signatures.add(signature);
+            if (!methodSignatures.add(signature)) {
+                duplicates.addMethod(name);
+            }
 
-        for (JmmNode i : importDecls) {
-            List<String> tempImport = i.getObjectAsList("name", String.class);
-            String name = tempImport.get(tempImport.size() - 1);
-            imports.add(name);
+            buildMethod(member, signature, returnTypes, params, locals, duplicates);
         }
 
-        return imports;
+        return new JmmSymbolTable(imports, className, superclassName, fields, Collections.unmodifiableList(methods),
+                Collections.unmodifiableList(signatures), returnTypes, params, locals, duplicates);
     }
 
-    private Map<String, Type> buildReturnTypes(JmmNode classDecl) {
-        Map<String, Type> map = new HashMap<>();
+    private void buildMethod(JmmNode method, String signature, Map<String, Type> returnTypes,
+                             Map<String, List<Symbol>> params, Map<String, List<Symbol>> locals, Duplicates duplicates) {
+        boolean isVoid = method.getObject("isVoid", Boolean.class);
 
-        for (JmmNode method : classDecl.getChildren(METHOD_DECL)) {
-            if (method.getObject("isVoid", Boolean.class)) {
-                map.put("main", typeUtils.getVoidType());
-            } else {
-                var nodeType = method.getChild(0);
-                Type type = new Type(nodeType.get("name"), nodeType.getObject("isArray", Boolean.class));
-                map.put(method.get("name"), type);
-            }
-        }
+        List<Symbol> methodParams = new ArrayList<>();
+        Set<String> paramNames = new HashSet<>();
+        Set<String> duplicatedParams = new HashSet<>();
+        List<Symbol> methodLocals = new ArrayList<>();
+        Set<String> localNames = new HashSet<>();
+        Set<String> duplicatedLocals = new HashSet<>();
 
-        return map;
-    }
-
-    private Map<String, List<Symbol>> buildParams(JmmNode classDecl) {
-        Map<String, List<Symbol>> map = new HashMap<>();
+        if (isVoid) {
+            returnTypes.put(signature, typeUtils.getVoidType());
+            methodParams.add(new Symbol(typeUtils.getStringArrayType(), method.get("paramName")));
+        }
 
-        for (JmmNode method : classDecl.getChildren(METHOD_DECL)) {
-            if (method.getObject("isVoid", Boolean.class)) {
-                map.put("main", List.of(new Symbol(typeUtils.getStringArrayType(), method.get("paramName"))));
-            } else {
-                List<Symbol> params = new ArrayList<>();
-                for (JmmNode param : method.getChildren(PARAM)) {
-                    var nodeType = param.getChild(0);
-                    Type type = new Type(nodeType.get("name"), nodeType.getObject("isArray", Boolean.class));
-                    type.putObject("isEllipsis", nodeType.getObject("isEllipsis", Boolean.class));
-                    params.add(new Symbol(type, param.get("paramName")));
+        for (JmmNode child : method.getChildren()) {
+            if (TYPE.check(child)) {
+                returnTypes.put(signature, new Type(child.get("name"), child.getObject("isArray", Boolean.class)));
+            } else if (PARAM.check(child)) {
+                Symbol param = buildSymbol(child, "paramName");
+                param.getType().putObject("isEllipsis", child.getChild(0).getObject("isEllipsis", Boolean.class));
+                methodParams.add(param);
+                if (!paramNames.add(param.getName())) {
+                    duplicatedParams.add(param.getName());
                 }
-                map.put(method.get("name"), params);
+            } else if (VAR_DECL.check(child)) {
+                Symbol local = buildSymbol(child, "name");
+                methodLocals.add(local);
+                if (!localNames.add(local.getName())) {
+                    duplicatedLocals.add(local.getName());
+                }
+            } else {
+                // Declarations come before the statements
+                break;
             }
         }
 
-        return map;
-    }
-
-    private Map<String, List<Symbol>> buildLocals(JmmNode classDecl) {
-        Map<String, List<Symbol>> map = new HashMap<>();
-        classDecl.getChildren(METHOD_DECL).forEach(method -> map.put(method.get("name"), getLocalsList(method)));
-        return map;
-    }
-
-    private List<Symbol> buildFields(JmmNode classDecl) {
-        List<Symbol> fields = new ArrayList<>();
-
-        for (JmmNode field : classDecl.getChildren(VAR_DECL)) {
-            var nodeType = field.getChild(0);
-            Type type = new Type(nodeType.get("name"), nodeType.getObject("isArray", Boolean.class));
-            String name = field.get("name");
-            fields.add(new Symbol(type, name));
-        }
-
-        return fields;
-    }
+        params.put(signature, methodParams);
+        locals.put(signature, methodLocals);
 
-    private List<String> buildMethods(JmmNode classDecl) {
-        return classDecl.getChildren(METHOD_DECL).stream()
-                .map(method -> method.get("name"))
-                .toList();
+        duplicates.setParams(signature, duplicatedParams);
+        duplicates.setLocals(signature, duplicatedLocals);
     }
 
-
-    private List<Symbol> getLocalsList(JmmNode methodDecl) {
-        List<Symbol> localsList = new ArrayList<>();
-
-        for (JmmNode local : methodDecl.getChildren(VAR_DECL)) {
-            var nodeType = local.getChild(0);
-            Type type = new Type(nodeType.get("name"), nodeType.getObject("isArray", Boolean.class));
-            String name = local.get("name");
-            localsList.add(new Symbol(type, name));
-        }
-
-        return localsList;
+    private Symbol buildSymbol(JmmNode declaration, String nameAttribute) {
+        var nodeType = declaration.getChild(0);
+        Type type = new Type(nodeType.get("name"), nodeType.getObject("isArray", Boolean.class));
+        return new Symbol(type, declaration.get(nameAttribute));
     }
 
 }
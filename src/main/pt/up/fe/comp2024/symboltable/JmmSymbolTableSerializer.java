@@ -0,0 +1,281 @@
+package pt.up.fe.comp2024.symboltable;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.specs.util.SpecsCheck;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Stores and loads {@link JmmSymbolTable}s in a compact binary format, so that a class can use the table of another
+ * one without parsing its source again.
+ * <p>
+ * The format starts with a magic number and a version, followed by the imports, the class and superclass names, the
+ * fields, the names and signatures of the methods and the return types, parameters and locals of each method. Counts
+ * and indices are written as variable-length integers and every string is written only once: its next occurrences
+ * refer to the first one.
+ */
+public class JmmSymbolTableSerializer {
+
+    private static final int MAGIC = 0x4a4d5354;
+    private static final int VERSION = 2;
+
+    private static final int IS_ARRAY = 1;
+    private static final int HAS_ELLIPSIS = 2;
+    private static final int IS_ELLIPSIS = 4;
+
+    private JmmSymbolTableSerializer() {
+    }
+
+    /**
+     * @return a buffer, ready to be read, with the given table
+     */
+    public static ByteBuffer serialize(JmmSymbolTable table) {
+        Writer writer = new Writer();
+
+        writer.buffer.putInt(MAGIC);
+        writer.buffer.putInt(VERSION);
+
+        writer.putStrings(table.getImports());
+        writer.putString(table.getClassName());
+        writer.putString(table.getSuper());
+        writer.putSymbols(table.getFields());
+        writer.putStrings(table.getMethods());
+        writer.putStrings(table.getMethodSignatures());
+
+        writer.putInt(table.getReturnTypes().size());
+        table.getReturnTypes().forEach((method, type) -> {
+            writer.putString(method);
+            writer.putType(type);
+        });
+
+        writer.putSymbolsMap(table.getParams());
+        writer.putSymbolsMap(table.getLocals());
+
+        return writer.buffer.flip();
+    }
+
+    /**
+     * Reads a table from the current position of the buffer, leaving it right after the table.
+     */
+    public static JmmSymbolTable deserialize(ByteBuffer buffer) {
+        SpecsCheck.checkArgument(buffer.remaining() >= 8 && buffer.getInt() == MAGIC, () -> "Not a symbol table");
+
+        int version = buffer.getInt();
+        SpecsCheck.checkArgument(version == VERSION,
+                () -> "Unsupported symbol table version " + version + ", expected " + VERSION);
+
+        Reader reader = new Reader(buffer);
+
+        List<String> imports = reader.getStrings();
+        String className = reader.getString();
+        String superclassName = reader.getString();
+        List<Symbol> fields = reader.getSymbols();
+        List<String> methods = reader.getStrings();
+        List<String> signatures = reader.getStrings();
+
+        int returnTypesSize = reader.getInt();
+        Map<String, Type> returnTypes = new HashMap<>();
+        for (int i = 0; i < returnTypesSize; i++) {
+            returnTypes.put(reader.getString(), reader.getType());
+        }
+
+        Map<String, List<Symbol>> params = reader.getSymbolsMap();
+        Map<String, List<Symbol>> locals = reader.getSymbolsMap();
+
+        return new JmmSymbolTable(imports, className, superclassName, fields, methods, signatures, returnTypes, params,
+                locals, new Duplicates());
+    }
+
+    public static void store(JmmSymbolTable table, Path path) {
+        ByteBuffer buffer = serialize(table);
+
+        try {
+            Files.write(path, Arrays.copyOfRange(buffer.array(), buffer.position(), buffer.limit()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write symbol table to " + path, e);
+        }
+    }
+
+    public static JmmSymbolTable load(Path path) {
+        try {
+            return deserialize(ByteBuffer.wrap(Files.readAllBytes(path)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read symbol table from " + path, e);
+        }
+    }
+
+    private static class Writer {
+
+        private final Map<String, Integer> strings = new HashMap<>();
+        private ByteBuffer buffer = ByteBuffer.allocate(256);
+
+        private void ensureRemaining(int bytes) {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+
+        void putInt(int value) {
+            ensureRemaining(5);
+
+            while ((value & ~0x7f) != 0) {
+                buffer.put((byte) ((value & 0x7f) | 0x80));
+                value >>>= 7;
+            }
+
+            buffer.put((byte) value);
+        }
+
+        void putString(String value) {
+            Integer index = strings.get(value);
+
+            if (index != null) {
+                putInt(index + 1);
+                return;
+            }
+
+            strings.put(value, strings.size());
+
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(0);
+            putInt(bytes.length);
+            ensureRemaining(bytes.length);
+            buffer.put(bytes);
+        }
+
+        void putStrings(List<String> values) {
+            putInt(values.size());
+            values.forEach(this::putString);
+        }
+
+        void putType(Type type) {
+            int flags = type.isArray() ? IS_ARRAY : 0;
+
+            if (type.hasAttribute("isEllipsis")) {
+                flags |= HAS_ELLIPSIS;
+                if (type.getObject("isEllipsis", Boolean.class)) {
+                    flags |= IS_ELLIPSIS;
+                }
+            }
+
+            putString(type.getName());
+            putInt(flags);
+        }
+
+        void putSymbols(List<Symbol> symbols) {
+            putInt(symbols.size());
+
+            for (Symbol symbol : symbols) {
+                putString(symbol.getName());
+                putType(symbol.getType());
+            }
+        }
+
+        void putSymbolsMap(Map<String, List<Symbol>> map) {
+            putInt(map.size());
+
+            map.forEach((method, symbols) -> {
+                putString(method);
+                putSymbols(symbols);
+            });
+        }
+    }
+
+    private static class Reader {
+
+        private final List<String> strings = new ArrayList<>();
+        private final ByteBuffer buffer;
+
+        Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        int getInt() {
+            int value = 0;
+
+            for (int shift = 0; ; shift += 7) {
+                byte b = buffer.get();
+                value |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        String getString() {
+            int index = getInt();
+
+            if (index > 0) {
+                return strings.get(index - 1);
+            }
+
+            int length = getInt();
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            strings.add(value);
+
+            return value;
+        }
+
+        List<String> getStrings() {
+            int size = getInt();
+            List<String> values = new ArrayList<>(size);
+
+            for (int i = 0; i < size; i++) {
+                values.add(getString());
+            }
+
+            return values;
+        }
+
+        Type getType() {
+            String name = getString();
+            int flags = getInt();
+
+            Type type = new Type(name, (flags & IS_ARRAY) != 0);
+            if ((flags & HAS_ELLIPSIS) != 0) {
+                type.putObject("isEllipsis", (flags & IS_ELLIPSIS) != 0);
+            }
+
+            return type;
+        }
+
+        List<Symbol> getSymbols() {
+            int size = getInt();
+            List<Symbol> symbols = new ArrayList<>(size);
+
+            for (int i = 0; i < size; i++) {
+                String name = getString();
+                symbols.add(new Symbol(getType(), name));
+            }
+
+            return symbols;
+        }
+
+        Map<String, List<Symbol>> getSymbolsMap() {
+            int size = getInt();
+            Map<String, List<Symbol>> map = new HashMap<>();
+
+            for (int i = 0; i < size; i++) {
+                String method = getString();
+                map.put(method, getSymbols());
+            }
+
+            return map;
+        }
+    }
+}
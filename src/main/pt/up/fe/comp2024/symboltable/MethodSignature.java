@@ -0,0 +1,92 @@
+package pt.up.fe.comp2024.symboltable;
+
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+
+import java.util.List;
+
+import static pt.up.fe.comp2024.ast.Kind.PARAM;
+
+/**
+ * Signatures that identify the methods in the symbol table: the name of the method followed by the types of its
+ * parameters, such as {@code foo(int,int[],Foo)}.
+ */
+public class MethodSignature {
+
+    private static final String SIGNATURE = "signature";
+
+    private MethodSignature() {
+    }
+
+    public static String of(String name, List<Type> paramTypes) {
+        StringBuilder signature = new StringBuilder(name).append("(");
+
+        for (int i = 0; i < paramTypes.size(); i++) {
+            if (i > 0) {
+                signature.append(",");
+            }
+            signature.append(describe(paramTypes.get(i)));
+        }
+
+        return signature.append(")").toString();
+    }
+
+    /**
+     * @return the signature of the given method declaration, which is cached in the node
+     */
+    public static String of(JmmNode methodDecl) {
+        Kind.METHOD_DECL.checkOrThrow(methodDecl);
+
+        if (methodDecl.hasAttribute(SIGNATURE)) {
+            return methodDecl.get(SIGNATURE);
+        }
+
+        StringBuilder signature = new StringBuilder(methodDecl.get("name")).append("(");
+
+        if (methodDecl.getObject("isVoid", Boolean.class)) {
+            signature.append("String[]");
+        } else {
+            boolean first = true;
+            for (JmmNode child : methodDecl.getChildren()) {
+                if (!PARAM.check(child)) {
+                    continue;
+                }
+                if (!first) {
+                    signature.append(",");
+                }
+                first = false;
+
+                JmmNode type = child.getChild(0);
+                signature.append(describe(type.get("name"), type.getObject("isArray", Boolean.class),
+                        type.getObject("isEllipsis", Boolean.class)));
+            }
+        }
+
+        String result = signature.append(")").toString();
+        methodDecl.put(SIGNATURE, result);
+
+        return result;
+    }
+
+    /**
+     * @return the name of the method with the given signature
+     */
+    public static String getName(String signature) {
+        int index = signature.indexOf('(');
+        return index < 0 ? signature : signature.substring(0, index);
+    }
+
+    static String describe(Type type) {
+        boolean isEllipsis = type.hasAttribute("isEllipsis") && type.getObject("isEllipsis", Boolean.class);
+        return describe(type.getName(), type.isArray(), isEllipsis);
+    }
+
+    private static String describe(String name, boolean isArray, boolean isEllipsis) {
+        if (isEllipsis) {
+            return name + "...";
+        }
+
+        return isArray ? name + "[]" : name;
+    }
+}
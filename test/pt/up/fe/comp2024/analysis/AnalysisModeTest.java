@@ -0,0 +1,113 @@
+package pt.up.fe.comp2024.analysis;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2024.ast.Kind;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class AnalysisModeTest {
+
+    private static final String CODE = """
+            class Errors {
+                public int first(int a) {
+                    boolean b;
+                    b = a + true;
+                    return undeclared;
+                }
+                public int second(int a) {
+                    if (a) {
+                        a = 1;
+                    } else {
+                        a = false;
+                    }
+                    return a;
+                }
+                public static void main(String[] args) {
+                }
+            }
+            """;
+
+    private static long errors(String mode, String maxErrors) {
+        var result = TestUtils.analyse(CODE, Map.of("analysisMode", mode, "maxErrors", maxErrors));
+        return TestUtils.getNumErrors(result.getReports());
+    }
+
+    @Test
+    public void passModeStopsAfterFirstFailingPass() {
+        // Only the undeclared variable is found, by the first pass
+        assertEquals(1, errors("pass", "100"));
+    }
+
+    @Test
+    public void fullModeReportsEveryStatementOnce() {
+        // 'b = a + true' is both an invalid operation and an invalid assignment, but is reported only once
+        assertEquals(4, errors("full", "100"));
+    }
+
+    @Test
+    public void fullModeRespectsMaxErrors() {
+        assertEquals(2, errors("full", "2"));
+    }
+
+    @Test
+    public void firstModeStopsAtFirstError() {
+        assertEquals(1, errors("first", "100"));
+    }
+
+    @Test
+    public void errorsOfPassesThatFailAreKept() {
+        String code = """
+                class Crash {
+                    public int f() {
+                        int x;
+                        x = true;
+                        return x;
+                    }
+                    public static void main(String[] args) {
+                    }
+                }
+                """;
+        var semantics = TestUtils.analyse(code);
+
+        // Reports the invalid assignment, and then fails on it
+        var pass = new AnalysisVisitor() {
+            @Override
+            public void buildVisitor() {
+                addVisit(Kind.ASSIGN_STMT, (node, table) -> {
+                    reportError("Invalid assignment", node);
+                    throw new IllegalStateException("Unexpected type");
+                });
+            }
+        };
+        var reports = pass.analyze(semantics.getRootNode(), semantics.getSymbolTable(), ErrorBudget.limited(100));
+
+        assertEquals(1, reports.size());
+        assertEquals("Invalid assignment", reports.get(0).getMessage());
+    }
+
+    @Test
+    public void passesThatFailWithoutErrorsAreReported() {
+        var semantics = TestUtils.analyse("class Fail { public static void main(String[] args) { } }");
+
+        var pass = new AnalysisVisitor() {
+            @Override
+            public void buildVisitor() {
+                addVisit(Kind.METHOD_DECL, (node, table) -> {
+                    throw new IllegalStateException("Unexpected method");
+                });
+            }
+        };
+
+        // Nothing explains the failure, so it is left for the analysis to report
+        try {
+            pass.analyze(semantics.getRootNode(), semantics.getSymbolTable(), ErrorBudget.limited(100));
+            fail("Expected the failure to be thrown");
+        } catch (IllegalStateException e) {
+            assertEquals("Unexpected method", e.getMessage());
+        }
+    }
+}
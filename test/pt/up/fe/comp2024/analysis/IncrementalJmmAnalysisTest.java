@@ -0,0 +1,129 @@
+package pt.up.fe.comp2024.analysis;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class IncrementalJmmAnalysisTest {
+
+    private static final String CODE = """
+            import io;
+            class Incremental {
+                int field;
+                public int first(int a) {
+                    return a + 1;
+                }
+                public int second(int a) {
+                    return this.first(a) * 2;
+                }
+                public int third(boolean b) {
+                    int x;
+                    x = 0;
+                    if (b) { x = field; } else { x = 1; }
+                    return x;
+                }
+                public static void main(String[] args) {
+                    io.println(new Incremental().second(1));
+                }
+            }
+            """;
+
+    private static JmmSemanticsResult analyse(IncrementalJmmAnalysis analysis, String code) {
+        return analysis.semanticAnalysis(TestUtils.parse(code));
+    }
+
+    private static void assertSameReports(String code, JmmSemanticsResult result) {
+        var expected = new JmmAnalysisImpl().semanticAnalysis(TestUtils.parse(code));
+        assertEquals(expected.getReports().toString(), result.getReports().toString());
+    }
+
+    @Test
+    public void firstCallAnalysesEveryMethod() {
+        var analysis = new IncrementalJmmAnalysis();
+        var result = analyse(analysis, CODE);
+
+        TestUtils.noErrors(result);
+        assertEquals(Set.of("first", "second", "third", "main"), analysis.getReanalyzedMethods());
+    }
+
+    @Test
+    public void unchangedCodeAnalysesNothing() {
+        var analysis = new IncrementalJmmAnalysis();
+        analyse(analysis, CODE);
+        var result = analyse(analysis, CODE);
+
+        TestUtils.noErrors(result);
+        assertEquals(Set.of(), analysis.getReanalyzedMethods());
+
+        // The annotations of the reused methods must still allow generating code
+        TestUtils.noErrors(TestUtils.backend(TestUtils.optimize(result)));
+    }
+
+    @Test
+    public void bodyChangeAnalysesOnlyThatMethod() {
+        var analysis = new IncrementalJmmAnalysis();
+        analyse(analysis, CODE);
+
+        var code = CODE.replace("x = 1;", "x = true;");
+        var result = analyse(analysis, code);
+
+        TestUtils.mustFail(result);
+        assertEquals(Set.of("third"), analysis.getReanalyzedMethods());
+        assertSameReports(code, result);
+    }
+
+    @Test
+    public void signatureChangeAnalysesCallers() {
+        var analysis = new IncrementalJmmAnalysis();
+        analyse(analysis, CODE);
+
+        var code = CODE.replace("public int first(int a) {\n        return a + 1;",
+                "public boolean first(int a) {\n        return a < 1;");
+        var result = analyse(analysis, code);
+
+        TestUtils.mustFail(result);
+        assertEquals(Set.of("first", "second"), analysis.getReanalyzedMethods());
+        assertSameReports(code, result);
+    }
+
+    @Test
+    public void fieldChangeAnalysesUsers() {
+        var analysis = new IncrementalJmmAnalysis();
+        analyse(analysis, CODE);
+
+        var code = CODE.replace("int field;", "boolean field;");
+        var result = analyse(analysis, code);
+
+        TestUtils.mustFail(result);
+        assertEquals(Set.of("third"), analysis.getReanalyzedMethods());
+        assertSameReports(code, result);
+    }
+
+    @Test
+    public void reusedReportsFollowTheirMethod() {
+        var analysis = new IncrementalJmmAnalysis();
+        var code = CODE.replace("x = 1;", "x = true;");
+        analyse(analysis, code);
+
+        code = code.replace("        return a + 1;", "        a = a + 1;\n        return a;");
+        var result = analyse(analysis, code);
+
+        assertEquals(Set.of("first"), analysis.getReanalyzedMethods());
+        assertSameReports(code, result);
+    }
+
+    @Test
+    public void importChangeAnalysesEveryMethod() {
+        var analysis = new IncrementalJmmAnalysis();
+        analyse(analysis, CODE);
+
+        var result = analyse(analysis, "import other;\n" + CODE);
+
+        TestUtils.noErrors(result);
+        assertEquals(Set.of("first", "second", "third", "main"), analysis.getReanalyzedMethods());
+    }
+}
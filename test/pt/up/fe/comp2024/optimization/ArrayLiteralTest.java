@@ -0,0 +1,50 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.specs.util.SpecsStrings;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ArrayLiteralTest {
+
+    private static final String CODE = """
+            import io;
+            class ArrayLiteral {
+                public static void main(String[] args) {
+                    int[] a;
+                    int x;
+                    int i;
+                    x = 3;
+                    a = [1, x + 1, 0, 0, 5, 5, 5, 5, 5, 5, 5, 5, 5, 1, 3, 5, 7, 9, 11, 13, 15, 17, 0, 2, 0];
+                    a = [a[1], a[4], a[21], a[23]];
+                    i = 0;
+                    while (i < a.length) {
+                        io.println(a[i]);
+                        i = i + 1;
+                    }
+                }
+            }
+            """;
+
+    @Test
+    public void constantRunsAreStoredByLoopsAndZerosAreNotStored() {
+        var result = TestUtils.optimize(CODE);
+        String ollirCode = result.getOllirCode();
+
+        assertTrue(ollirCode.contains("array_fill_1:"));
+        assertFalse(ollirCode.contains("].i32 :=.i32 0.i32;"));
+
+        String expected = "4\n5\n17\n2";
+        assertEquals(expected, SpecsStrings.normalizeFileContents(TestUtils.backend(result).run(), true));
+
+        var parsed = new OllirResult(ollirCode, Collections.emptyMap());
+        assertEquals(expected, SpecsStrings.normalizeFileContents(new JasminBackendImpl().toJasmin(parsed).run(), true));
+    }
+}
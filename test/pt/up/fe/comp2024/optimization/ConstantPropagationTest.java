@@ -0,0 +1,113 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.specs.util.SpecsStrings;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ConstantPropagationTest {
+
+    private static final Map<String, String> OPTIMIZE = Map.of("optimize", "true");
+
+    private static final String CODE = """
+            import io;
+            class Constants {
+                int stored;
+                public int nested() {
+                    int a;
+                    int b;
+                    int c;
+                    a = 2;
+                    b = (a * 3) + 1;
+                    c = (b - 1) / a;
+                    return c;
+                }
+                public int reassigned(int x) {
+                    int a;
+                    a = 1;
+                    a = x;
+                    return a;
+                }
+                public int branches(boolean flag) {
+                    int a;
+                    int b;
+                    a = 1;
+                    b = 2;
+                    if (flag) {
+                        a = 3;
+                    } else {
+                        b = 4;
+                    }
+                    return a + b;
+                }
+                public int loop(int n) {
+                    int i;
+                    int step;
+                    i = 0;
+                    step = 2;
+                    while (i < n) {
+                        i = i + step;
+                    }
+                    return i;
+                }
+                public int fields() {
+                    stored = 1;
+                    this.setField();
+                    return stored;
+                }
+                public int setField() {
+                    stored = 5;
+                    return 0;
+                }
+                public int divide() {
+                    int zero;
+                    zero = 0;
+                    return 10 / zero;
+                }
+                public static void main(String[] args) {
+                    Constants c;
+                    c = new Constants();
+                    io.println(c.nested());
+                    io.println(c.reassigned(7));
+                    io.println(c.branches(true));
+                    io.println(c.branches(false));
+                    io.println(c.loop(5));
+                    io.println(c.fields());
+                }
+            }
+            """;
+
+    @Test
+    public void optimizedCodeKeepsItsResults() {
+        var result = TestUtils.backend(CODE, OPTIMIZE);
+
+        assertEquals("3\n7\n5\n5\n6\n5", SpecsStrings.normalizeFileContents(result.run(), true));
+    }
+
+    @Test
+    public void nestedExpressionsFoldInOneRun() {
+        var semantics = TestUtils.analyse(CODE);
+        var constantPropagation = new ConstantPropagation(semantics.getSymbolTable());
+
+        assertTrue(constantPropagation.run(semantics.getRootNode()));
+        int numVisits = constantPropagation.getNumVisits();
+        assertFalse(constantPropagation.run(semantics.getRootNode()));
+
+        // 'a' twice and 'b' and 'c' once in 'nested', and 'step' and 'zero' once
+        assertEquals(6, constantPropagation.getNumPropagations());
+        assertTrue(numVisits < 2 * semantics.getRootNode().getDescendants().size());
+    }
+
+    @Test
+    public void onlyConstantsThatReachUsesArePropagated() {
+        String ollirCode = TestUtils.optimize(CODE, OPTIMIZE).getOllirCode();
+
+        assertTrue(ollirCode.contains("ret.i32 3.i32;"));
+        assertTrue(ollirCode.contains("ret.i32 x.i32;"));
+        assertTrue(ollirCode.contains("getfield(this, stored.i32)"));
+        assertTrue(ollirCode.contains("/.i32"));
+    }
+}
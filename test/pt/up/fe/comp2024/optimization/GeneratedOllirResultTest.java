@@ -0,0 +1,233 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.specs.util.SpecsStrings;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GeneratedOllirResultTest {
+
+    private static final List<String> RESOURCES = List.of(
+            "pt/up/fe/comp/cpf/3_ollir/arithmetic/Arithmetic_and.jmm",
+            "pt/up/fe/comp/cpf/3_ollir/arrays/VarargsAndArrayInit.jmm",
+            "pt/up/fe/comp/cpf/3_ollir/control_flow/SimpleWhileStat.jmm"
+    );
+
+    private static final String CODE = """
+            import io;
+            class Generated {
+                int field;
+                public int update(int a, boolean b) {
+                    int[] values;
+                    values = new int[a];
+                    values[0] = field;
+                    if (!b && a < values.length) {
+                        field = values[0] + this.update(a - 1, true);
+                    } else {
+                        field = 1;
+                    }
+                    return field;
+                }
+                public static void main(String[] args) {
+                    io.println(new Generated().update(2, false));
+                }
+            }
+            """;
+
+    private static final int DEPTH = 200;
+
+    private static String nestedArithmetic(int depth) {
+        String expr = "a";
+        for (int i = 0; i < depth; i++) {
+            expr = "(a + " + expr + " * 2)";
+        }
+        return "class Nested { public int f(int a) { int r; r = " + expr + "; return r; } "
+                + "public static void main(String[] args) { } }";
+    }
+
+    private static String manyMethods(int methods) {
+        StringBuilder code = new StringBuilder("import io; class Many { int total; ");
+        for (int i = 0; i < methods; i++) {
+            code.append("public int m").append(i).append("(int a, int[] v) { int r; int i; r = 0; i = 0; ")
+                    .append("while (i < v.length && !(a < i)) { r = r + (v[i] * ").append(i).append(" + a) / 2; ")
+                    .append("if (r < total) { total = total + r; } else { v[i] = r - a; } i = i + 1; } ")
+                    .append("return r + this.m").append((i + 1) % methods).append("(a - 1, new int[0]); } ");
+        }
+        return code.append("public static void main(String[] args) { } }").toString();
+    }
+
+    private static String toJasmin(OllirResult ollirResult) {
+        var jasminResult = new JasminBackendImpl().toJasmin(ollirResult);
+        TestUtils.noErrors(jasminResult);
+        return jasminResult.getJasminCode();
+    }
+
+    private static void assertPrintedCodeParsesToTheSameClass(String code) {
+        var result = TestUtils.optimize(code);
+        assertTrue(result instanceof GeneratedOllirResult);
+
+        // Print before generating Jasmin, which adds an import to the class
+        var parsed = new OllirResult(result.getOllirCode(), Collections.emptyMap());
+
+        assertEquals(toJasmin(parsed), toJasmin(result));
+    }
+
+    @Test
+    public void printedCodeParsesToTheSameClass() {
+        for (String resource : RESOURCES) {
+            assertPrintedCodeParsesToTheSameClass(SpecsIo.getResource(resource));
+        }
+
+        assertPrintedCodeParsesToTheSameClass(CODE);
+    }
+
+    @Test
+    public void nestedExpressionsAreWrittenOnce() {
+        var result = TestUtils.optimize(nestedArithmetic(DEPTH));
+        var method = result.getOllirClass().getMethods().stream()
+                .filter(m -> m.getMethodName().equals("f"))
+                .findFirst()
+                .orElseThrow();
+
+        // Two operations per level, the outermost assigned directly to 'r', and the return
+        assertEquals(2 * DEPTH + 1, method.getInstructions().size());
+    }
+
+    @Test
+    public void codeDoesNotDependOnPreviousCompilations() throws Exception {
+        String expected = TestUtils.optimize(CODE).getOllirCode();
+        TestUtils.optimize(nestedArithmetic(10));
+        assertEquals(expected, TestUtils.optimize(CODE).getOllirCode());
+
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(executor.submit(() -> TestUtils.optimize(CODE).getOllirCode()));
+            }
+            for (Future<String> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void tempsDoNotTakeTheNamesOfVariables() {
+        String code = """
+                class Temps {
+                    public int f(int tmp0) {
+                        int tmp1;
+                        tmp1 = tmp0 * 2 + 1;
+                        return tmp1;
+                    }
+                    public static void main(String[] args) {
+                    }
+                }
+                """;
+
+        var ollirCode = TestUtils.optimize(code).getOllirCode();
+
+        assertTrue(ollirCode.contains("tmp2.i32 :=.i32 tmp0.i32 *.i32 2.i32;"));
+        assertPrintedCodeParsesToTheSameClass(code);
+    }
+
+    @Test
+    public void deadTempsAreReused() {
+        String code = """
+                class Reuse {
+                    public int f(int a, int b, int c) {
+                        int r;
+                        r = a * b + b * c + c * a + a * a;
+                        return r;
+                    }
+                    public static void main(String[] args) {
+                    }
+                }
+                """;
+
+        var ollirCode = TestUtils.optimize(code).getOllirCode();
+
+        assertTrue(ollirCode.contains("tmp1"));
+        assertFalse(ollirCode.contains("tmp2"));
+        assertPrintedCodeParsesToTheSameClass(code);
+    }
+
+    @Test
+    public void reusedTempsAddAnyLiteral() {
+        String code = """
+                import io;
+                class Increment {
+                    public int small(int x) {
+                        return x * 2 - (0 - 5);
+                    }
+                    public int large(int x) {
+                        return x * 2 - (3 - 65536);
+                    }
+                    public static void main(String[] args) {
+                        Increment i;
+                        i = new Increment();
+                        io.println(i.small(1));
+                        io.println(i.large(1));
+                    }
+                }
+                """;
+
+        // The folded literals are negative, and the second one does not fit in an iinc
+        var result = TestUtils.backend(code, Map.of("optimize", "true"));
+
+        assertEquals("7\n65535", SpecsStrings.normalizeFileContents(result.run(), true));
+    }
+
+    @Test
+    public void arrayAccessesAreReadBeforeCallsThatChangeTheArray() {
+        String code = """
+                import io;
+                class Keep {
+                    int[] values;
+                    public int set(int value) {
+                        values[0] = value;
+                        return 0;
+                    }
+                    public int run() {
+                        int r;
+                        values = new int[1];
+                        values[0] = 1;
+                        r = values[0] + this.set(10);
+                        return r + values[0];
+                    }
+                    public static void main(String[] args) {
+                        io.println(new Keep().run());
+                    }
+                }
+                """;
+
+        var result = TestUtils.optimize(code);
+
+        assertEquals("11", SpecsStrings.normalizeFileContents(TestUtils.backend(result).run(), true));
+    }
+
+    @Test
+    public void methodsGeneratedInParallelMatchTheSequentialOnes() {
+        String code = manyMethods(300);
+        var sequential = TestUtils.optimize(code);
+        var parallel = TestUtils.optimize(code, Map.of("threads", "4"));
+
+        assertEquals(sequential.getOllirCode(), parallel.getOllirCode());
+        assertEquals(toJasmin(sequential), toJasmin(parallel));
+    }
+}
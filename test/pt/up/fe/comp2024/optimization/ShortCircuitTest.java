@@ -0,0 +1,93 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.specs.util.SpecsStrings;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ShortCircuitTest {
+
+    private static final String CODE = """
+            import io;
+            class ShortCircuit {
+                int calls;
+                public boolean check(int x) {
+                    calls = calls + 1;
+                    return x < 10;
+                }
+                public int run(int[] a, int n) {
+                    int i;
+                    int c;
+                    boolean b;
+                    i = 0;
+                    c = 0;
+                    while (i < a.length && this.check(a[i])) {
+                        if (!(i < n) && this.check(i) && !this.check(0 - 1)) {
+                            c = c + 100;
+                        } else {
+                            c = c + 1;
+                        }
+                        i = i + 1;
+                    }
+                    b = i < a.length && this.check(a[i]) && !(n < 0);
+                    if (b) {
+                        c = c + 1000;
+                    } else {
+                        c = c + 0;
+                    }
+                    return c + calls;
+                }
+                public static void main(String[] args) {
+                    int[] a;
+                    a = [1, 2, 3, 50, 4];
+                    io.println(new ShortCircuit().run(a, 1));
+                }
+            }
+            """;
+
+    @Test
+    public void rightOperandIsOnlyEvaluatedWhenTheLeftOneIsTrue() {
+        var result = TestUtils.optimize(CODE);
+
+        // c ends as 3 and check is called 9 times, as in Java
+        assertEquals("12", SpecsStrings.normalizeFileContents(TestUtils.backend(result).run(), true));
+    }
+
+    @Test
+    public void conjunctionsAreLoweredToJumps() {
+        var result = TestUtils.optimize(CODE);
+
+        assertFalse(result.getOllirCode().contains("&&"));
+    }
+
+    @Test
+    public void conjunctionConditionsJumpOnTheFirstFalseOperand() {
+        String code = """
+                import io;
+                Conjunction extends Object {
+                .method public static main(args.array.String).V {
+                a.bool :=.bool 1.bool;
+                b.bool :=.bool 0.bool;
+                if (a.bool &&.bool b.bool) goto end;
+                invokestatic(io, "println", 1.i32).V;
+                end:
+                ret.V;
+                }
+                .construct Conjunction().V {
+                invokespecial(this, "<init>").V;
+                }
+                }
+                """;
+
+        var jasminResult = new JasminBackendImpl().toJasmin(new OllirResult(code, Collections.emptyMap()));
+
+        assertFalse(jasminResult.getJasminCode().contains("iand"));
+        assertEquals("1", SpecsStrings.normalizeFileContents(jasminResult.run(), true));
+    }
+}
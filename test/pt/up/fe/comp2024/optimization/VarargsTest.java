@@ -0,0 +1,120 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.specs.util.SpecsStrings;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static pt.up.fe.comp2024.ast.Kind.CLASS_DECL;
+import static pt.up.fe.comp2024.ast.Kind.METHOD_DECL;
+
+public class VarargsTest {
+
+    private static final String CODE = """
+            import io;
+            class Varargs {
+                public int sum(int... v) {
+                    int i;
+                    int s;
+                    i = 0;
+                    s = 0;
+                    while (i < v.length) {
+                        s = s + v[i];
+                        i = i + 1;
+                    }
+                    %s
+                    return s;
+                }
+                public int first(int... v) {
+                    return v[0];
+                }
+                public int bump(int a, int... v) {
+                    v[0] = v[0] + a;
+                    return v[0];
+                }
+                public int run(int n) {
+                    int i;
+                    int t;
+                    i = 0;
+                    t = 0;
+                    while (i < n) {
+                        t = t + this.sum(1, 2, 3) + this.bump(1, 10, 20) + this.sum(1, 2, 3) + this.sum(i, 2) + this.first(5);
+                        while (t < 0) {
+                            t = t + this.sum(1, 2, 3);
+                        }
+                        i = i + 1;
+                    }
+                    return t + this.sum(4);
+                }
+                public static void main(String[] args) {
+                    io.println(new Varargs().run(5));
+                }
+            }
+            """.formatted("if (s < 0) { s = s + 0; } else { s = s - 0; }\n".repeat(20));
+
+    private static int count(String code, String text) {
+        return code.split(text, -1).length - 1;
+    }
+
+    /**
+     * @return the analysis of a class whose only varargs method reads its array in the given number of statements
+     */
+    private static JmmSemanticsResult readingMethod(int statements) {
+        return TestUtils.analyse("""
+                class Reads {
+                    public int sum(int... v) {
+                        int s;
+                        s = 0;
+                        %s
+                        return s;
+                    }
+                    public static void main(String[] args) {
+                    }
+                }
+                """.formatted("s = s + v[0];\n".repeat(statements)));
+    }
+
+    private static int countNodes(JmmSemanticsResult semantics) {
+        return semantics.getRootNode().getDescendants(METHOD_DECL.getNodeName()).get(0).getDescendants().size();
+    }
+
+    private static boolean isReadOnly(JmmSemanticsResult semantics) {
+        var classDecl = semantics.getRootNode().getDescendants(CLASS_DECL.getNodeName()).get(0);
+        return !ReadOnlyVarargs.find(classDecl, semantics.getSymbolTable()).isEmpty();
+    }
+
+    @Test
+    public void constantArraysOfLargeReadOnlyVarargsMethodsAreBuiltBeforeLoops() {
+        var result = TestUtils.optimize(CODE);
+        String ollirCode = result.getOllirCode();
+
+        // One hoisted array for the three sum(1, 2, 3), and one per call for bump, sum(i, 2), first, which is small
+        // enough to be inlined, and sum(4), which is not in a loop
+        assertEquals(5, count(ollirCode, "new\\(array"));
+        assertEquals("164", SpecsStrings.normalizeFileContents(TestUtils.backend(result).run(), true));
+
+        var parsed = new OllirResult(ollirCode, Collections.emptyMap());
+        assertEquals("164", SpecsStrings.normalizeFileContents(new JasminBackendImpl().toJasmin(parsed).run(), true));
+    }
+
+    @Test
+    public void onlyMethodsOfAtLeastTheMinimumSizeAreKept() {
+        int statements = 0;
+        while (countNodes(readingMethod(statements + 1)) < ReadOnlyVarargs.MIN_METHOD_NODES) {
+            statements++;
+        }
+
+        // The largest method below the threshold, which the JIT may inline, and the smallest one above it
+        var below = readingMethod(statements);
+        var above = readingMethod(statements + 1);
+        assertTrue(countNodes(below) < ReadOnlyVarargs.MIN_METHOD_NODES);
+        assertTrue(countNodes(above) >= ReadOnlyVarargs.MIN_METHOD_NODES);
+        assertFalse(isReadOnly(below));
+        assertTrue(isReadOnly(above));
+    }
+}
@@ -0,0 +1,192 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.junit.Test;
+import org.specs.comp.ollir.OperationType;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.specs.util.SpecsStrings;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class AlgebraicSimplificationTest {
+
+    static final String CODE = """
+            import io;
+            class Algebra {
+                public int identities(int x, int[] a) {
+                    int y;
+                    y = a[0] * 0;
+                    return ((x + 0) * 1 - 0) / 1 + y;
+                }
+                public int chain(int x) {
+                    return x + 1 + 2 - 5;
+                }
+                public int scale(int x) {
+                    return x * 2 * 4;
+                }
+                public int same(int x) {
+                    return x - x;
+                }
+                public boolean both(boolean c, boolean d) {
+                    boolean b;
+                    b = c && d;
+                    return !!b;
+                }
+                public int pick(boolean b) {
+                    int r;
+                    if (b) {
+                        r = 10;
+                    } else {
+                        r = 20;
+                    }
+                    return r;
+                }
+                public static void main(String[] args) {
+                    Algebra a;
+                    int[] array;
+                    a = new Algebra();
+                    array = new int[1];
+                    io.println(a.identities(7, array));
+                    io.println(a.chain(7));
+                    io.println(a.scale(0 - 3));
+                    io.println(a.same(5));
+                    if (a.both(true, true) && !a.both(true, false)) {
+                        io.println(1);
+                    } else {
+                        io.println(0);
+                    }
+                    io.println(a.pick(true));
+                    io.println(a.pick(false));
+                }
+            }
+            """;
+
+    private static final String PRODUCTS = """
+            import io;
+            class Products {
+                public int scale(int x) {
+                    return 8 * x;
+                }
+                public static void main(String[] args) {
+                    io.println(4 * 2);
+                    io.println(8 * 2);
+                    io.println(new Products().scale(3));
+                }
+            }
+            """;
+
+    /**
+     * @return the Jasmin of the products compiled without -o, so they are neither folded nor reordered, and then
+     * generated with -o, which lowers them to shifts
+     */
+    private static JasminResult shiftUnfoldedProducts() {
+        String ollirCode = TestUtils.optimize(PRODUCTS).getOllirCode();
+        return new JasminBackendImpl().toJasmin(new OllirResult(ollirCode, Map.of("optimize", "true")));
+    }
+
+    private static List<IrInstruction> getOperations(IrMethod method) {
+        return method.getInstructions().stream()
+                .filter(instruction -> instruction.getOpcode() == IrOpcode.BINARY
+                        || instruction.getOpcode() == IrOpcode.UNARY)
+                .toList();
+    }
+
+    @Test
+    public void identitiesAreRemoved() {
+        IrMethod identities = IrTestUtils.getMethod(CODE, "identities");
+        AlgebraicSimplification.run(identities);
+
+        // The load of 'a[0]' may throw, so it is kept, but only the last addition is left
+        List<IrInstruction> operations = getOperations(identities);
+        assertEquals(2, operations.size());
+        assertTrue(operations.get(0).getArg(0).isElement());
+        assertEquals(OperationType.ADD, operations.get(1).getOperation());
+    }
+
+    @Test
+    public void constantsAreReassociated() {
+        IrMethod chain = IrTestUtils.getMethod(CODE, "chain");
+        AlgebraicSimplification.run(chain);
+
+        // 'x + 1 + 2 - 5' is 'x - 2'
+        IrInstruction last = getOperations(chain).get(getOperations(chain).size() - 1);
+        assertEquals(OperationType.SUB, last.getOperation());
+        assertEquals(chain.findVar("x"), last.getArg(0).getVar());
+        assertEquals(2, last.getArg(1).getValue());
+
+        IrMethod scale = IrTestUtils.getMethod(CODE, "scale");
+        AlgebraicSimplification.run(scale);
+        last = getOperations(scale).get(getOperations(scale).size() - 1);
+        assertEquals(OperationType.MUL, last.getOperation());
+        assertEquals(8, last.getArg(1).getValue());
+    }
+
+    @Test
+    public void booleanSelectsAreAssignments() {
+        IrMethod both = IrTestUtils.getMethod(CODE, "both");
+        AlgebraicSimplification simplification = AlgebraicSimplification.run(both);
+
+        assertEquals(1, simplification.getNumSelects());
+        assertTrue(both.getInstructions().stream()
+                .noneMatch(instruction -> instruction.getOpcode() == IrOpcode.BRANCH));
+        assertTrue(getOperations(both).stream()
+                .anyMatch(instruction -> instruction.getOperation() == OperationType.ANDB));
+
+        // '!!b' copies 'b', and the first negation is left to the elimination of dead code
+        assertEquals(1, getOperations(both).stream()
+                .filter(instruction -> instruction.getOperation() == OperationType.NOTB)
+                .count());
+    }
+
+    @Test
+    public void integerSelectsAreKept() {
+        IrMethod pick = IrTestUtils.getMethod(CODE, "pick");
+        AlgebraicSimplification simplification = AlgebraicSimplification.run(pick);
+
+        // 'b ? 10 : 20' is not a boolean operation of 'b'
+        assertEquals(0, simplification.getNumSelects());
+        assertTrue(pick.getInstructions().stream()
+                .anyMatch(instruction -> instruction.getOpcode() == IrOpcode.BRANCH));
+    }
+
+    @Test
+    public void multiplicationsByPowersOfTwoAreShifts() {
+        var result = TestUtils.backend(CODE, Map.of("optimize", "true"));
+
+        String scale = result.getJasminCode().split("scale")[1].split(".end method")[0];
+        assertTrue(scale.contains("ishl"));
+        assertFalse(scale.contains("imul"));
+    }
+
+    @Test
+    public void literalsOnTheLeftShiftTheVariable() {
+        var result = shiftUnfoldedProducts();
+
+        String scale = result.getJasminCode().split("scale")[1].split(".end method")[0];
+        // '8 * x' is 'x' shifted by 3, not 8 shifted by 'x'
+        assertTrue(scale.matches("(?s).*iload_1\\s+iconst_3\\s+ishl.*"));
+        assertEquals("8\n16\n24", SpecsStrings.normalizeFileContents(result.run(), true));
+    }
+
+    @Test
+    public void productsOfTwoLiteralsAreNotShifted() {
+        var result = shiftUnfoldedProducts();
+
+        String main = result.getJasminCode().split("main")[1].split(".end method")[0];
+        assertFalse(main.contains("ishl"));
+        assertEquals("8\n16\n24", SpecsStrings.normalizeFileContents(result.run(), true));
+    }
+
+    @Test
+    public void multiplicationsAreOnlyShiftedWithOptimizations() {
+        var result = TestUtils.backend(PRODUCTS);
+
+        assertFalse(result.getJasminCode().contains("ishl"));
+        assertEquals("8\n16\n24", SpecsStrings.normalizeFileContents(result.run(), true));
+    }
+}
@@ -0,0 +1,117 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.specs.util.SpecsStrings;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BlockLayoutTest {
+
+    private static final Map<String, String> OPTIMIZE = Map.of("optimize", "true");
+
+    private static final String CODE = """
+            import io;
+            class Layout {
+                public int sum(int n) {
+                    int i;
+                    int total;
+                    i = 0;
+                    total = 0;
+                    while (i < n) {
+                        total = total + i;
+                        i = i + 1;
+                    }
+                    return total;
+                }
+                public int partition(int[] l, int hi) {
+                    int i;
+                    int j;
+                    int tmp;
+                    i = 0;
+                    j = 0;
+                    while (j < hi) {
+                        if (l[j] < l[hi]) {
+                            tmp = l[i];
+                            l[i] = l[j];
+                            l[j] = tmp;
+                            i = i + 1;
+                        } else {
+                        }
+                        j = j + 1;
+                    }
+                    return i;
+                }
+                public int max(int a, int b) {
+                    int m;
+                    if (a < b) {
+                        m = b;
+                    } else {
+                        m = a;
+                    }
+                    return m;
+                }
+                public static void main(String[] args) {
+                    int[] l;
+                    Layout layout;
+                    layout = new Layout();
+                    l = [5, 1, 4, 2, 3];
+                    io.println(layout.sum(10));
+                    io.println(layout.sum(0));
+                    io.println(layout.partition(l, 4));
+                    io.println(layout.max(3, 7));
+                    io.println(layout.max(7, 3));
+                }
+            }
+            """;
+
+    private static String getMethod(String ollirCode, String name) {
+        int start = ollirCode.indexOf(" " + name + "(");
+        return ollirCode.substring(start, ollirCode.indexOf("}", start));
+    }
+
+    @Test
+    public void loopConditionIsCheckedBeforeTheLoopInsteadOfJumpingToIt() {
+        String ollirCode = TestUtils.optimize(CODE, OPTIMIZE).getOllirCode();
+        String sum = getMethod(ollirCode, "sum");
+
+        // The loop is left by the check before it or by the one at its end
+        assertFalse(sum.contains("\ngoto "));
+        assertEquals(2, sum.split("if \\(").length - 1);
+    }
+
+    @Test
+    public void jumpsToReturnsAreReplacedByTheReturn() {
+        String max = getMethod(TestUtils.optimize(CODE, OPTIMIZE).getOllirCode(), "max");
+
+        assertEquals(2, max.split("ret\\.i32").length - 1);
+        assertFalse(max.contains("\ngoto "));
+    }
+
+    @Test
+    public void programsRunTheSame() {
+        String expected = TestUtils.backend(CODE).run();
+        String optimized = TestUtils.backend(CODE, OPTIMIZE).run();
+
+        assertEquals("45\n0\n2\n7\n7", SpecsStrings.normalizeFileContents(expected, true));
+        assertEquals(expected, optimized);
+    }
+
+    @Test
+    public void noJumpGoesToTheNextInstruction() {
+        var result = TestUtils.optimize(CODE, OPTIMIZE);
+
+        for (IrMethod method : OllirToIr.convert(result.getOllirClass()).getMethods()) {
+            var blocks = method.getBlocks();
+            for (int i = 0; i + 1 < blocks.size(); i++) {
+                IrInstruction terminator = blocks.get(i).getTerminator();
+                assertTrue(terminator == null || terminator.getTarget() != blocks.get(i + 1)
+                        || terminator.getOpcode() == IrOpcode.BRANCH);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CommonSubexpressionEliminationTest {
+
+    static final String CODE = """
+            import io;
+            class Common {
+                int stored;
+                public int local(int[] a, int i, int x, int y) {
+                    int r;
+                    int s;
+                    r = a[i] + a[i];
+                    s = a.length + a.length;
+                    return r + x * y + s + y * x;
+                }
+                public int global(int x, int y) {
+                    int s;
+                    if (x < y) {
+                        s = x * y;
+                    } else {
+                        s = x * y + 1;
+                    }
+                    return s + x * y;
+                }
+                public int aliased(int[] a, int[] b, int i) {
+                    int r;
+                    r = a[i];
+                    b[i] = 7;
+                    a[i] = 3;
+                    return r + a[i] + a[i];
+                }
+                public static void main(String[] args) {
+                    Common c;
+                    int[] a;
+                    c = new Common();
+                    a = new int[3];
+                    a[1] = 5;
+                    io.println(c.local(a, 1, 3, 4));
+                    io.println(c.global(3, 4));
+                    io.println(c.global(4, 3));
+                    io.println(c.aliased(a, a, 1));
+                }
+            }
+            """;
+
+    private static long count(IrMethod method, IrOpcode opcode) {
+        return method.getInstructions().stream().filter(instruction -> instruction.getOpcode() == opcode).count();
+    }
+
+    private static long countElements(IrMethod method) {
+        return method.getInstructions().stream()
+                .flatMap(instruction -> java.util.Arrays.stream(instruction.getArgs()))
+                .filter(IrOperand::isElement)
+                .count();
+    }
+
+    @Test
+    public void valuesAreReusedInTheSameBlock() {
+        IrMethod local = IrTestUtils.getMethod(CODE, "local");
+        long numBinaries = count(local, IrOpcode.BINARY);
+        CommonSubexpressionElimination elimination = CommonSubexpressionElimination.run(local);
+
+        // 'a[i]' is loaded once, 'a.length' is computed once and 'y * x' reuses 'x * y'
+        assertTrue(elimination.getNumLocal() > 0);
+        assertEquals(1, countElements(local));
+        assertEquals(1, count(local, IrOpcode.CALL));
+        assertEquals(numBinaries - 1, count(local, IrOpcode.BINARY));
+    }
+
+    @Test
+    public void expressionsAvailableOnEveryPathAreReused() {
+        IrMethod global = IrTestUtils.getMethod(CODE, "global");
+        CommonSubexpressionElimination elimination = CommonSubexpressionElimination.run(global);
+
+        // 'x * y' after the 'if' is computed in both branches
+        assertEquals(1, elimination.getNumGlobal());
+        long numProducts = global.getInstructions().stream()
+                .filter(instruction -> instruction.getOpcode() == IrOpcode.BINARY
+                        && instruction.getOperation().name().equals("MUL"))
+                .count();
+        assertEquals(2, numProducts);
+    }
+
+    @Test
+    public void storesKillLoads() {
+        IrMethod aliased = IrTestUtils.getMethod(CODE, "aliased");
+        CommonSubexpressionElimination.run(aliased);
+
+        // 'a[i]' is not reused from before the stores, since 'b' may be 'a', but the stored value is
+        assertEquals(1, countElements(aliased));
+        assertTrue(aliased.getInstructions().stream()
+                .anyMatch(instruction -> instruction.getOpcode() == IrOpcode.BINARY
+                        && instruction.getArg(1).isConstant() && instruction.getArg(1).getValue() == 3));
+    }
+}
@@ -0,0 +1,117 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ConditionalConstantPropagationTest {
+
+    static final String CODE = """
+            import io;
+            class Conditional {
+                public int branch(int n) {
+                    boolean flag;
+                    int x;
+                    flag = true;
+                    if (flag) {
+                        x = 1;
+                    } else {
+                        x = n;
+                    }
+                    return x + n;
+                }
+                public int loop(int n) {
+                    int i;
+                    int a;
+                    int b;
+                    i = 0;
+                    a = 1;
+                    b = 0;
+                    while (i < n) {
+                        b = a * 2;
+                        a = 1;
+                        i = i + 1;
+                    }
+                    return a + b;
+                }
+                public int dead(int n) {
+                    int k;
+                    int r;
+                    k = 3;
+                    r = 0;
+                    while (k < 2) {
+                        r = r + n;
+                        k = k + 1;
+                    }
+                    return r + k;
+                }
+                public static void main(String[] args) {
+                    Conditional c;
+                    c = new Conditional();
+                    io.println(c.branch(4));
+                    io.println(c.loop(3));
+                    io.println(c.loop(0));
+                    io.println(c.dead(5));
+                }
+            }
+            """;
+
+    @Test
+    public void ssaFormAssignsEachVariableOnce() {
+        IrMethod loop = IrTestUtils.getMethod(CODE, "loop");
+        SsaForm ssaForm = SsaForm.construct(loop);
+
+        DefUse defUse = DefUse.of(loop);
+        for (int var = 0; var < loop.getNumVars(); var++) {
+            assertTrue(defUse.getDefs(var).size() <= 1);
+        }
+
+        // 'i', 'a' and 'b' are merged at the start of the loop
+        long numPhis = loop.getInstructions().stream()
+                .filter(instruction -> instruction.getOpcode() == IrOpcode.PHI)
+                .count();
+        assertEquals(3, numPhis);
+
+        ssaForm.destruct();
+        assertTrue(loop.getInstructions().stream().noneMatch(instruction -> instruction.getOpcode() == IrOpcode.PHI));
+        for (IrInstruction instruction : loop.getInstructions()) {
+            assertTrue(instruction.getDefinedVar() < 0 || ssaForm.isOriginalVar(instruction.getDefinedVar()));
+        }
+    }
+
+    @Test
+    public void dominators() {
+        IrMethod dead = IrTestUtils.getMethod(CODE, "dead");
+        Dominators dominators = Dominators.of(dead);
+        BasicBlock entry = dead.getBlocks().get(0);
+
+        for (BasicBlock block : dominators.getReversePostorder()) {
+            assertTrue(dominators.dominates(entry, block));
+            assertTrue(dominators.dominates(dominators.getIdom(block), block));
+        }
+        assertSame(entry, dominators.getIdom(entry));
+    }
+
+    @Test
+    public void constantsAreFoundAcrossBranchesAndLoops() {
+        IrMethod branch = IrTestUtils.getMethod(CODE, "branch");
+        ConditionalConstantPropagation propagation = ConditionalConstantPropagation.run(branch);
+        assertTrue(propagation.getNumRemovedBlocks() > 0);
+        assertTrue(branch.getInstructions().stream().noneMatch(i -> i.getOpcode() == IrOpcode.BRANCH));
+
+        // 'a' is 1 after the loop, whether it runs or not, and 'b' is 2 in it
+        IrMethod loop = IrTestUtils.getMethod(CODE, "loop");
+        ConditionalConstantPropagation.run(loop);
+        int a = loop.findVar("a");
+        assertTrue(loop.getInstructions().stream().noneMatch(instruction -> instruction.reads(a)));
+        assertTrue(loop.getInstructions().stream()
+                .noneMatch(instruction -> instruction.getOpcode() == IrOpcode.BINARY
+                        && instruction.getOperation().name().equals("MUL")));
+
+        // The loop never runs
+        IrMethod dead = IrTestUtils.getMethod(CODE, "dead");
+        assertTrue(ConditionalConstantPropagation.run(dead).getNumRemovedBlocks() > 0);
+        assertTrue(dead.getInstructions().stream().noneMatch(i -> i.getOpcode() == IrOpcode.BINARY));
+        assertEquals("RETURN [3]", dead.getInstructions().get(dead.getInstructions().size() - 1).toString());
+    }
+}
@@ -0,0 +1,94 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CopyPropagationTest {
+
+    static final String CODE = """
+            import io;
+            class Copy {
+                public int square(int x) {
+                    int y;
+                    y = x * x;
+                    return y;
+                }
+                public int alias(int x, boolean flag) {
+                    int a;
+                    int b;
+                    a = x;
+                    if (flag) {
+                        b = a + 1;
+                    } else {
+                        b = a - 1;
+                    }
+                    return b + a;
+                }
+                public int killed(int x, boolean flag) {
+                    int a;
+                    a = x;
+                    if (flag) {
+                        x = 3;
+                    } else {
+                    }
+                    return a + x;
+                }
+                public static void main(String[] args) {
+                    Copy c;
+                    int i;
+                    int s;
+                    c = new Copy();
+                    i = 0;
+                    s = 0;
+                    while (i < 4) {
+                        s = s + c.square(i);
+                        i = i + 1;
+                    }
+                    io.println(s);
+                    io.println(c.alias(5, true));
+                    io.println(c.killed(5, true));
+                }
+            }
+            """;
+
+    private static boolean reads(IrMethod method, String varName) {
+        int var = method.findVar(varName);
+        return method.getInstructions().stream().anyMatch(instruction -> instruction.reads(var));
+    }
+
+    @Test
+    public void inlinedMovesAreRemoved() {
+        IrClass irClass = IrTestUtils.getIrClass(CODE);
+        MethodInlining.run(irClass);
+        IrMethod main = irClass.getMethod("main");
+
+        CopyPropagation propagation = CopyPropagation.run(main);
+        DeadCodeElimination.run(main);
+
+        // The result of 'x * x' is assigned where it is used, and the parameter is read from 'i'
+        assertTrue(propagation.getNumCoalesced() > 0);
+        assertTrue(propagation.getNumPropagated() > 0);
+        assertTrue(main.getInstructions().stream()
+                .noneMatch(instruction -> instruction.getOpcode() == IrOpcode.COPY && instruction.getArg(0).isVar()));
+    }
+
+    @Test
+    public void copiesAvailableOnEveryPathArePropagated() {
+        IrMethod alias = IrTestUtils.getMethod(CODE, "alias");
+        CopyPropagation.run(alias);
+        DeadCodeElimination.run(alias);
+
+        assertFalse(reads(alias, "a"));
+        assertTrue(reads(alias, "x"));
+    }
+
+    @Test
+    public void copiesKilledOnAPathAreKept() {
+        IrMethod killed = IrTestUtils.getMethod(CODE, "killed");
+        CopyPropagation.run(killed);
+
+        // 'x' may be 3 at the return, so 'a' keeps its own value
+        assertTrue(reads(killed, "a"));
+    }
+}
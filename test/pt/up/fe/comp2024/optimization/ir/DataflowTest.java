@@ -0,0 +1,145 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DataflowTest {
+
+    private static final String CODE = """
+            class Flow {
+                public int join(int x, boolean c) {
+                    int a;
+                    int b;
+                    int y;
+                    a = x + 1;
+                    if (c) {
+                        b = 2;
+                        y = b * x;
+                    } else {
+                        b = 3;
+                        y = x + 1;
+                    }
+                    a = a + b;
+                    return a + y;
+                }
+                public int loop(int n) {
+                    int i;
+                    int s;
+                    i = 0;
+                    s = 0;
+                    while (i < n) {
+                        s = s + i;
+                        i = i + 1;
+                    }
+                    return s;
+                }
+                public static void main(String[] args) {
+                }
+            }
+            """;
+
+    private static BasicBlock getLastBlock(IrMethod method) {
+        return method.getBlocks().get(method.getBlocks().size() - 1);
+    }
+
+    @Test
+    public void bitVector() {
+        BitVector vector = BitVector.full(70);
+        assertEquals(70, vector.cardinality());
+        assertTrue(vector.get(69));
+
+        BitVector other = new BitVector(70);
+        other.set(3);
+        other.set(64);
+        vector.andNot(other);
+        assertEquals(68, vector.cardinality());
+        assertFalse(vector.get(64));
+
+        assertTrue(other.assign(vector));
+        assertFalse(other.assign(vector));
+        assertEquals(vector, other);
+    }
+
+    @Test
+    public void liveness() {
+        IrMethod loop = IrTestUtils.getMethod(CODE, "loop");
+        Liveness liveness = Liveness.of(loop);
+
+        int n = loop.findVar("n");
+        int i = loop.findVar("i");
+        int s = loop.findVar("s");
+
+        BitVector liveOnEntry = liveness.getLiveIn(loop.getBlocks().get(0));
+        assertTrue(liveOnEntry.get(n));
+        assertFalse(liveOnEntry.get(i));
+        assertFalse(liveOnEntry.get(s));
+
+        // Every variable is live around the loop, but only the result after it
+        BitVector liveAtReturn = liveness.getLiveIn(getLastBlock(loop));
+        assertEquals(1, liveAtReturn.cardinality());
+        assertTrue(liveAtReturn.get(s));
+        for (BasicBlock block : loop.getBlocks().subList(1, loop.getBlocks().size() - 1)) {
+            assertEquals(3, liveness.getLiveIn(block).cardinality());
+        }
+    }
+
+    @Test
+    public void reachingDefinitions() {
+        IrMethod join = IrTestUtils.getMethod(CODE, "join");
+        ReachingDefinitions reachingDefinitions = ReachingDefinitions.of(join);
+
+        BitVector reaching = reachingDefinitions.getIn(getLastBlock(join));
+        int x = join.findVar("x");
+        int b = join.findVar("b");
+
+        // The parameter is only defined on entry, and 'b' in both branches
+        BitVector reachingX = reaching.copy();
+        reachingX.and(reachingDefinitions.getDefinitionsOf(x));
+        assertEquals(1, reachingX.cardinality());
+        reachingX.forEach(id -> assertNull(reachingDefinitions.getDefinition(id)));
+
+        BitVector reachingB = reaching.copy();
+        reachingB.and(reachingDefinitions.getDefinitionsOf(b));
+        assertEquals(2, reachingB.cardinality());
+
+        // The definition of 'a' in the last block kills the first one
+        int a = join.findVar("a");
+        BitVector reachingA = reachingDefinitions.getOut(getLastBlock(join)).copy();
+        reachingA.and(reachingDefinitions.getDefinitionsOf(a));
+        assertEquals(1, reachingA.cardinality());
+        reachingA.forEach(id -> assertSame(getLastBlock(join).getInstructions().get(0),
+                reachingDefinitions.getDefinition(id)));
+    }
+
+    @Test
+    public void availableExpressions() {
+        IrMethod join = IrTestUtils.getMethod(CODE, "join");
+        AvailableExpressions availableExpressions = AvailableExpressions.of(join);
+
+        IrInstruction first = join.getBlocks().get(0).getInstructions().get(0);
+        int increment = availableExpressions.getId(first);
+        assertTrue(increment >= 0);
+
+        // 'x + 1' is computed before the branches, but 'b * x' only in one of them
+        BitVector available = availableExpressions.getIn(getLastBlock(join));
+        assertTrue(available.get(increment));
+        assertEquals(1, available.cardinality());
+
+        // 'a + b' assigns 'a', which kills it, while 'a + y' is computed after
+        BitVector availableAfter = availableExpressions.getOut(getLastBlock(join));
+        int a = join.findVar("a");
+        availableAfter.forEach(id -> assertTrue(id == increment
+                || availableExpressions.getExpressionsReading(a).get(id)));
+        assertFalse(availableAfter.get(availableExpressions.getId(getLastBlock(join).getInstructions().get(0))));
+        assertEquals(2, availableAfter.cardinality());
+    }
+
+    @Test
+    public void blocksOutsideLoopsAreVisitedOnce() {
+        IrMethod join = IrTestUtils.getMethod(CODE, "join");
+        assertEquals(join.getBlocks().size(), Liveness.of(join).getNumVisits());
+        assertEquals(join.getBlocks().size(), ReachingDefinitions.of(join).getNumVisits());
+        assertEquals(join.getBlocks().size(), AvailableExpressions.of(join).getNumVisits());
+    }
+}
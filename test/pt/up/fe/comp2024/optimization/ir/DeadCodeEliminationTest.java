@@ -0,0 +1,101 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DeadCodeEliminationTest {
+
+    static final String CODE = """
+            import io;
+            class Dead {
+                int stored;
+                public int get() {
+                    stored = stored + 1;
+                    return stored;
+                }
+                public int stores(int n, int[] a) {
+                    int x;
+                    int y;
+                    int unused;
+                    x = n * 2;
+                    y = x + 1;
+                    unused = this.get();
+                    a[0] = y;
+                    x = n + 3;
+                    return n;
+                }
+                public int divides(int n, int d) {
+                    int q;
+                    int h;
+                    q = n / d;
+                    h = n / 2;
+                    return n;
+                }
+                public int loop(int n) {
+                    int i;
+                    int s;
+                    i = 0;
+                    s = 0;
+                    while (i < n) {
+                        s = s + i;
+                        i = i + 1;
+                    }
+                    return i;
+                }
+                public static void main(String[] args) {
+                    Dead d;
+                    int[] a;
+                    d = new Dead();
+                    a = new int[1];
+                    io.println(d.stores(4, a));
+                    io.println(a[0]);
+                    io.println(d.get());
+                    io.println(d.loop(3));
+                    io.println(d.divides(7, 1));
+                }
+            }
+            """;
+
+    private static long count(IrMethod method, IrOpcode opcode) {
+        return method.getInstructions().stream().filter(instruction -> instruction.getOpcode() == opcode).count();
+    }
+
+    @Test
+    public void deadStoresAreRemoved() {
+        IrMethod stores = IrTestUtils.getMethod(CODE, "stores");
+        DeadCodeElimination elimination = DeadCodeElimination.run(stores);
+        assertTrue(elimination.getNumRemovedInstructions() > 0);
+
+        // 'x + 3' is removed, but the call and the store to the array are kept
+        assertEquals(1, count(stores, IrOpcode.CALL));
+        assertEquals(2, count(stores, IrOpcode.BINARY));
+        assertTrue(stores.getInstructions().stream().anyMatch(instruction -> instruction.getDest() != null
+                && instruction.getDest().isElement()));
+        assertTrue(stores.getInstructions().stream()
+                .filter(instruction -> instruction.getOpcode() == IrOpcode.CALL)
+                .allMatch(instruction -> instruction.getDest() == null));
+    }
+
+    @Test
+    public void divisionsThatMayThrowAreKept() {
+        IrMethod divides = IrTestUtils.getMethod(CODE, "divides");
+        DeadCodeElimination.run(divides);
+
+        // 'n / d' throws when 'd' is 0, but 'n / 2' never does
+        int d = divides.findVar("d");
+        assertEquals(1, count(divides, IrOpcode.BINARY));
+        assertTrue(divides.getInstructions().stream().anyMatch(instruction -> instruction.reads(d)));
+    }
+
+    @Test
+    public void unreachableBlocksAreRemoved() {
+        IrMethod loop = IrTestUtils.getMethod(CODE, "loop");
+        BasicBlock unreachable = loop.addBlock("unreachable");
+        unreachable.add(IrInstruction.jump(loop.getBlocks().get(0)));
+
+        DeadCodeElimination elimination = DeadCodeElimination.run(loop);
+        assertEquals(1, elimination.getNumRemovedBlocks());
+        assertFalse(loop.getBlocks().contains(unreachable));
+    }
+}
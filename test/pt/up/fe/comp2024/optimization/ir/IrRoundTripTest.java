@@ -0,0 +1,119 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.junit.Test;
+import org.specs.comp.ollir.ClassUnit;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.optimization.GeneratedOllirResult;
+import pt.up.fe.comp2024.optimization.OllirPrinter;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IrRoundTripTest {
+
+    private static final File CPF = new File("test/pt/up/fe/comp/cpf");
+
+    private static final String CODE = """
+            import io;
+            class Loop {
+                public int sum(int[] values) {
+                    int i;
+                    int total;
+                    i = 0;
+                    total = 0;
+                    while (i < values.length) {
+                        total = total + values[i];
+                        i = i + 1;
+                    }
+                    return total;
+                }
+                public static void main(String[] args) {
+                }
+            }
+            """;
+
+    private static String toJasmin(OllirResult ollirResult) {
+        var jasminResult = new JasminBackendImpl().toJasmin(ollirResult);
+        TestUtils.noErrors(jasminResult);
+        return jasminResult.getJasminCode();
+    }
+
+    private static ClassUnit roundTrip(ClassUnit classUnit) {
+        return IrToOllir.convert(OllirToIr.convert(classUnit));
+    }
+
+    @Test
+    public void generatedClassesAreUnchanged() {
+        int converted = 0;
+
+        for (File file : SpecsIo.getFilesRecursive(CPF, "jmm")) {
+            var semantics = TestUtils.analyse(SpecsIo.read(file));
+            if (TestUtils.getNumErrors(semantics.getReports()) > 0) {
+                continue;
+            }
+
+            var result = TestUtils.optimize(semantics);
+
+            // Print before generating Jasmin, which adds an import to the class
+            String expected = OllirPrinter.print(result.getOllirClass());
+            var roundTrip = new GeneratedOllirResult(semantics, roundTrip(result.getOllirClass()),
+                    Collections.emptyList());
+
+            assertEquals(file.getName(), expected, roundTrip.getOllirCode());
+            assertEquals(file.getName(), toJasmin(result), toJasmin(roundTrip));
+            converted++;
+        }
+
+        assertTrue(converted > 0);
+    }
+
+    @Test
+    public void parsedClassesAreUnchanged() {
+        List<File> files = SpecsIo.getFilesRecursive(CPF, "ollir");
+        assertFalse(files.isEmpty());
+
+        for (File file : files) {
+            ClassUnit classUnit = new OllirResult(SpecsIo.read(file), Collections.emptyMap()).getOllirClass();
+            String expected = OllirPrinter.print(classUnit);
+
+            assertEquals(file.getName(), expected, OllirPrinter.print(roundTrip(classUnit)));
+        }
+    }
+
+    @Test
+    public void loopHasBlocksAndDefUseChains() {
+        IrClass irClass = IrTestUtils.getIrClass(CODE);
+        IrMethod sum = irClass.getMethod("sum");
+
+        List<BasicBlock> blocks = sum.getBlocks();
+        for (BasicBlock block : blocks) {
+            List<IrInstruction> instructions = block.getInstructions();
+            for (int i = 0; i + 1 < instructions.size(); i++) {
+                assertFalse(instructions.get(i).getOpcode().isTerminator());
+            }
+        }
+
+        // The loop jumps back to a block laid out before it
+        assertTrue(blocks.get(0).getPredecessors().isEmpty());
+        assertTrue(blocks.stream().anyMatch(block -> block.getPredecessors().stream()
+                .anyMatch(predecessor -> blocks.indexOf(predecessor) >= blocks.indexOf(block))));
+
+        DefUse defUse = DefUse.of(sum);
+        int total = sum.getVar("total", null);
+        int values = sum.getVar("values", null);
+
+        assertEquals(2, defUse.getDefs(total).size());
+        assertEquals(2, defUse.getUses(total).size());
+        assertTrue(defUse.getDefs(values).isEmpty());
+        assertEquals(sum.getParams().get(0).getVar(), values);
+        assertTrue(defUse.getUses(values).size() >= 2);
+    }
+}
@@ -0,0 +1,23 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import pt.up.fe.comp.TestUtils;
+
+public class IrTestUtils {
+
+    /**
+     * @return the IR of the class the code is compiled to
+     */
+    public static IrClass getIrClass(String code) {
+        return OllirToIr.convert(TestUtils.optimize(code).getOllirClass());
+    }
+
+    /**
+     * @return the IR of the method of the class the code is compiled to, with its CFG up to date
+     */
+    public static IrMethod getMethod(String code, String name) {
+        IrMethod method = getIrClass(code).getMethod(name);
+        method.updateCfg();
+
+        return method;
+    }
+}
@@ -0,0 +1,104 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class LoopInvariantCodeMotionTest {
+
+    static final String CODE = """
+            import io;
+            class Invariant {
+                int scale;
+                public int sum(int[] a, int k) {
+                    int i;
+                    int s;
+                    i = 0;
+                    s = 0;
+                    scale = 3;
+                    while (i < a.length) {
+                        s = s + a[i] * (k * 2 + scale);
+                        i = i + 1;
+                    }
+                    return s;
+                }
+                public int stores(int[] a, int d) {
+                    int i;
+                    int s;
+                    i = 0;
+                    s = 0;
+                    while (i < a.length) {
+                        if (0 < d) {
+                            s = s + 10 / d;
+                        } else {
+                        }
+                        a[i] = scale;
+                        scale = scale + 1;
+                        i = i + 1;
+                    }
+                    return s;
+                }
+                public static void main(String[] args) {
+                    Invariant v;
+                    int[] a;
+                    v = new Invariant();
+                    a = new int[3];
+                    a[0] = 1;
+                    a[1] = 2;
+                    a[2] = 3;
+                    io.println(v.sum(a, 4));
+                    io.println(v.stores(a, 0));
+                    io.println(a[2]);
+                }
+            }
+            """;
+
+    private static boolean isInLoop(IrMethod method, IrOpcode opcode) {
+        LoopInfo loopInfo = LoopInfo.of(method);
+        return loopInfo.getLoops().values().stream()
+                .flatMap(Set::stream)
+                .flatMap(block -> block.getInstructions().stream())
+                .anyMatch(instruction -> instruction.getOpcode() == opcode);
+    }
+
+    private static long countInLoop(IrMethod method, String operation) {
+        LoopInfo loopInfo = LoopInfo.of(method);
+        return loopInfo.getLoops().values().stream()
+                .flatMap(Set::stream)
+                .flatMap(block -> block.getInstructions().stream())
+                .filter(instruction -> instruction.getOpcode() == IrOpcode.BINARY
+                        && instruction.getOperation().name().equals(operation))
+                .count();
+    }
+
+    @Test
+    public void invariantCodeLeavesTheLoop() {
+        IrMethod sum = IrTestUtils.getMethod(CODE, "sum");
+        assertTrue(isInLoop(sum, IrOpcode.CALL));
+        assertTrue(isInLoop(sum, IrOpcode.GETFIELD));
+
+        LoopInvariantCodeMotion motion = LoopInvariantCodeMotion.run(sum);
+
+        // The length, 'k * 2', the field and their sum, but not the product with 'a[i]'
+        assertEquals(4, motion.getNumHoisted());
+        assertEquals(0, motion.getNumPreheaders());
+        assertFalse(isInLoop(sum, IrOpcode.CALL));
+        assertFalse(isInLoop(sum, IrOpcode.GETFIELD));
+        assertEquals(1, countInLoop(sum, "MUL"));
+    }
+
+    @Test
+    public void codeThatMayChangeOrThrowStays() {
+        IrMethod stores = IrTestUtils.getMethod(CODE, "stores");
+        LoopInvariantCodeMotion.run(stores);
+
+        // The loop stores to the field, and 'd' may be 0 when the division is skipped
+        assertTrue(isInLoop(stores, IrOpcode.GETFIELD));
+        assertEquals(1, countInLoop(stores, "DIV"));
+
+        // The length is read at the start of the header
+        assertFalse(isInLoop(stores, IrOpcode.CALL));
+    }
+}
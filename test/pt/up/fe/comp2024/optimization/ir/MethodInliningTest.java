@@ -0,0 +1,90 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MethodInliningTest {
+
+    static final String CODE = """
+            import io;
+            class Inline {
+                int count;
+                public int square(int x) {
+                    return x * x;
+                }
+                public int clamp(int x, int max) {
+                    int r;
+                    if (x < max) {
+                        r = x;
+                    } else {
+                        r = max;
+                    }
+                    return r;
+                }
+                public int fact(int n) {
+                    int r;
+                    if (n < 2) {
+                        r = 1;
+                    } else {
+                        r = n * this.fact(n - 1);
+                    }
+                    return r;
+                }
+                public int next() {
+                    count = count + 1;
+                    return count;
+                }
+                public int onThis(int x) {
+                    return this.square(x);
+                }
+                public static void main(String[] args) {
+                    Inline a;
+                    int i;
+                    int s;
+                    a = new Inline();
+                    i = 0;
+                    s = 0;
+                    while (i < 5) {
+                        s = s + a.clamp(a.square(i), 10);
+                        i = i + 1;
+                    }
+                    io.println(s);
+                    io.println(a.fact(5));
+                    io.println(a.next());
+                    io.println(a.onThis(3));
+                }
+            }
+            """;
+
+    private static boolean calls(IrMethod method, String name) {
+        return method.getInstructions().stream()
+                .anyMatch(instruction -> name.equals(instruction.getMethodName()));
+    }
+
+    @Test
+    public void callsOnNewObjectsAreInlined() {
+        IrClass irClass = IrTestUtils.getIrClass(CODE);
+        MethodInlining inlining = MethodInlining.run(irClass);
+
+        IrMethod main = irClass.getMethod("main");
+        assertFalse(calls(main, "square"));
+        assertFalse(calls(main, "clamp"));
+        assertTrue(inlining.getCodeGrowth() > 0);
+
+        // Both calls are in the loop, so they save more than they would outside it
+        assertTrue(inlining.getEstimatedSavings() > 10L * inlining.getNumInlined());
+    }
+
+    @Test
+    public void overridableRecursiveAndFieldCallsAreKept() {
+        IrClass irClass = IrTestUtils.getIrClass(CODE);
+        MethodInlining.run(irClass);
+
+        // A subclass may override 'square' on 'this', 'fact' calls itself and 'next' reads a field
+        assertTrue(calls(irClass.getMethod("onThis"), "square"));
+        assertTrue(calls(irClass.getMethod("fact"), "fact"));
+        assertTrue(calls(irClass.getMethod("main"), "fact"));
+        assertTrue(calls(irClass.getMethod("main"), "next"));
+    }
+}
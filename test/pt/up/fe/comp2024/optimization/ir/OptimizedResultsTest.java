@@ -0,0 +1,36 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.specs.util.SpecsStrings;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class OptimizedResultsTest {
+
+    // The code of the tests of each pass, with what it prints
+    private static final List<Map.Entry<String, String>> PROGRAMS = List.of(
+            Map.entry(ConditionalConstantPropagationTest.CODE, "5\n3\n1\n3"),
+            Map.entry(AlgebraicSimplificationTest.CODE, "7\n5\n-24\n0\n1\n10\n20"),
+            Map.entry(CommonSubexpressionEliminationTest.CODE, "40\n24\n25\n11"),
+            Map.entry(LoopInvariantCodeMotionTest.CODE, "66\n0\n5"),
+            Map.entry(CopyPropagationTest.CODE, "14\n11\n8"),
+            Map.entry(DeadCodeEliminationTest.CODE, "4\n9\n2\n3\n7"),
+            Map.entry(MethodInliningTest.CODE, "24\n120\n1\n9")
+    );
+
+    private static String run(String code, Map<String, String> config) {
+        return SpecsStrings.normalizeFileContents(TestUtils.backend(code, config).run(), true);
+    }
+
+    @Test
+    public void optimizedCodeKeepsItsResults() {
+        for (var program : PROGRAMS) {
+            assertEquals(program.getValue(), run(program.getKey(), Map.of()));
+            assertEquals(program.getValue(), run(program.getKey(), Map.of("optimize", "true")));
+        }
+    }
+}
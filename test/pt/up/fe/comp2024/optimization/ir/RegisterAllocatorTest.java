@@ -0,0 +1,102 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.specs.util.SpecsStrings;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RegisterAllocatorTest {
+
+    private static final String CODE = """
+            import io;
+            class Registers {
+                public int chain(int arg) {
+                    int a;
+                    int b;
+                    int c;
+                    int d;
+                    a = arg;
+                    b = a + 1;
+                    c = b * 2;
+                    d = c - arg;
+                    return d;
+                }
+                public int loop(int n) {
+                    int i;
+                    int total;
+                    int[] squares;
+                    squares = new int[n];
+                    i = 0;
+                    total = 0;
+                    while (i < n) {
+                        squares[i] = i * i;
+                        total = total + squares[i];
+                        i = i + 1;
+                    }
+                    return total;
+                }
+                public static void main(String[] args) {
+                    Registers r;
+                    r = new Registers();
+                    io.println(r.chain(5));
+                    io.println(r.loop(4));
+                }
+            }
+            """;
+
+    private static int getLocals(String jasminCode, String methodName) {
+        Pattern pattern = Pattern.compile("\\.method[^\\n]* " + methodName + "\\(.*?\\.limit locals (\\d+)",
+                Pattern.DOTALL);
+        Matcher matcher = pattern.matcher(jasminCode);
+        assertTrue(matcher.find());
+
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    private static List<Report> getErrors(List<Report> reports) {
+        return reports.stream().filter(report -> report.getType() == ReportType.ERROR).toList();
+    }
+
+    @Test
+    public void variablesThatAreNotLiveTogetherShareRegisters() {
+        var result = TestUtils.backend(CODE, Map.of("registerAllocation", "0"));
+
+        // 'arg', and the register of 'this', which is not used, for 'a' to 'd'
+        assertEquals(2, getLocals(result.getJasminCode(), "chain"));
+        // 'this', 'n', 'i', 'total', 'squares' and a temporary
+        assertTrue(getLocals(result.getJasminCode(), "loop") <= 6);
+        assertEquals("7\n14", SpecsStrings.normalizeFileContents(result.run(), true));
+    }
+
+    @Test
+    public void methodsOverTheMaximumAreReported() {
+        var ollirResult = TestUtils.optimize(CODE, Map.of("registerAllocation", "4"));
+        List<Report> errors = getErrors(ollirResult.getReports());
+
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).getMessage().contains("'loop'"));
+        assertTrue(getErrors(TestUtils.optimize(CODE, Map.of("registerAllocation", "6")).getReports()).isEmpty());
+    }
+
+    @Test
+    public void framesAreReportedForEachMethod() {
+        var result = TestUtils.backend(CODE, Map.of("registerAllocation", "0"));
+        long logs = result.getReports().stream()
+                .filter(report -> report.getType() == ReportType.LOG)
+                .filter(report -> report.getMessage().contains(".limit locals"))
+                .count();
+
+        // chain, loop and main, but not the default constructor
+        assertEquals(3, logs);
+        assertTrue(TestUtils.backend(CODE).getReports().isEmpty());
+    }
+}
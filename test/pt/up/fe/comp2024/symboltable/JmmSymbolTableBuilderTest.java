@@ -0,0 +1,93 @@
+package pt.up.fe.comp2024.symboltable;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JmmSymbolTableBuilderTest {
+
+    private static final String CODE = """
+            import a.io;
+            import io;
+            class Duplicates {
+                int x;
+                boolean x;
+                public int foo(int a, boolean a) {
+                    int b;
+                    int b;
+                    return 0;
+                }
+                public int foo(int c) {
+                    return c;
+                }
+                public int foo(int d) {
+                    return d;
+                }
+                public static void main(String[] args) {
+                }
+            }
+            """;
+
+    @Test
+    public void recordsDuplicates() {
+        var table = new JmmSymbolTableBuilder().build(TestUtils.parse(CODE).getRootNode());
+        var duplicates = table.getDuplicates();
+
+        assertEquals(List.of("io"), duplicates.getImports());
+        assertEquals(List.of("x"), duplicates.getFields());
+        assertEquals(List.of("foo"), duplicates.getMethods());
+        assertEquals(List.of("a"), duplicates.getParams("foo(int,boolean)"));
+        assertEquals(List.of("b"), duplicates.getLocals("foo(int,boolean)"));
+        assertEquals(List.of(), duplicates.getLocals("main(String[])"));
+        assertEquals(List.of("x", "x"), table.getFields().stream().map(field -> field.getName()).toList());
+    }
+
+    @Test
+    public void duplicatedPassReportsThem() {
+        var result = TestUtils.analyse(CODE, Map.of("analysisMode", "full"));
+
+        assertTrue(result.getReports().stream().anyMatch(report -> report.getMessage().equals("Duplicated fields: x")));
+    }
+
+    @Test
+    public void resolvesOverloads() {
+        var code = """
+                import io;
+                class Overloads {
+                    public int foo(int a) {
+                        return a;
+                    }
+                    public int foo(boolean b) {
+                        return 2;
+                    }
+                    public int foo(int a, int... rest) {
+                        return rest.length;
+                    }
+                    public static void main(String[] args) {
+                        Overloads o;
+                        o = new Overloads();
+                        io.println(o.foo(7));
+                        io.println(o.foo(true));
+                        io.println(o.foo(1, 2, 3));
+                    }
+                }
+                """;
+
+        var result = TestUtils.analyse(code);
+        TestUtils.noErrors(result);
+
+        var table = (JmmSymbolTable) result.getSymbolTable();
+        assertEquals(List.of("foo(int)", "foo(boolean)", "foo(int,int...)", "main(String[])"), table.getMethodSignatures());
+        assertEquals("foo(boolean)", table.resolveMethod("foo", List.of(new Type("boolean", false))));
+        assertEquals("foo(int,int...)", table.resolveMethod("foo", List.of(new Type("int", false), new Type("int", false))));
+
+        var output = TestUtils.backend(code).run();
+        assertEquals("7\n2\n2", output.strip().replace("\r\n", "\n"));
+    }
+}
@@ -0,0 +1,105 @@
+package pt.up.fe.comp2024.symboltable;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class JmmSymbolTableSerializerTest {
+
+    private static final List<String> RESOURCES = List.of(
+            "pt/up/fe/comp/cp1/symboltable/Imports.jmm",
+            "pt/up/fe/comp/cp1/symboltable/MethodsAndFields.jmm",
+            "pt/up/fe/comp/cp1/symboltable/Parameters.jmm",
+            "pt/up/fe/comp/cp1/symboltable/Super.jmm",
+            "pt/up/fe/comp/cp2/semanticanalysis/Varargs.jmm",
+            "pt/up/fe/comp/cp2/semanticanalysis/SymbolTable.jmm",
+            "pt/up/fe/comp2024/symboltable/Overloads.jmm"
+    );
+
+    private static JmmSymbolTable build(String resource) {
+        var parserResult = TestUtils.parse(SpecsIo.getResource(resource));
+        return new JmmSymbolTableBuilder().build(parserResult.getRootNode());
+    }
+
+    private static String describe(Type type) {
+        return type.getName() + (type.isArray() ? "[]" : "")
+                + (type.hasAttribute("isEllipsis") ? " ellipsis=" + type.getObject("isEllipsis") : "");
+    }
+
+    private static String describe(List<Symbol> symbols) {
+        return symbols.stream()
+                .map(symbol -> describe(symbol.getType()) + " " + symbol.getName())
+                .collect(Collectors.joining(", "));
+    }
+
+    private static void assertSameTable(JmmSymbolTable expected, JmmSymbolTable actual) {
+        assertEquals(expected.getImports(), actual.getImports());
+        assertEquals(expected.getClassName(), actual.getClassName());
+        assertEquals(expected.getSuper(), actual.getSuper());
+        assertEquals(describe(expected.getFields()), describe(actual.getFields()));
+        assertEquals(expected.getMethods(), actual.getMethods());
+
+        // Overloads are told apart by their signatures, and varargs by the ellipsis of their last parameter
+        assertEquals(expected.getMethodSignatures(), actual.getMethodSignatures());
+        for (String signature : expected.getMethodSignatures()) {
+            assertEquals(describe(expected.getParameters(signature)), describe(actual.getParameters(signature)));
+            assertEquals(expected.isOverloaded(MethodSignature.getName(signature)),
+                    actual.isOverloaded(MethodSignature.getName(signature)));
+        }
+
+        assertEquals(expected.getReturnTypes().keySet(), actual.getReturnTypes().keySet());
+        expected.getReturnTypes().forEach((method, type) ->
+                assertEquals(describe(type), describe(actual.getReturnTypes().get(method))));
+
+        assertEquals(expected.getParams().keySet(), actual.getParams().keySet());
+        expected.getParams().forEach((method, params) ->
+                assertEquals(describe(params), describe(actual.getParams().get(method))));
+
+        assertEquals(expected.getLocals().keySet(), actual.getLocals().keySet());
+        expected.getLocals().forEach((method, locals) ->
+                assertEquals(describe(locals), describe(actual.getLocals().get(method))));
+    }
+
+    @Test
+    public void roundTrip() {
+        for (String resource : RESOURCES) {
+            var table = build(resource);
+            var buffer = JmmSymbolTableSerializer.serialize(table);
+
+            assertSameTable(table, JmmSymbolTableSerializer.deserialize(buffer));
+            assertFalse(buffer.hasRemaining());
+        }
+    }
+
+    @Test
+    public void overloadsAreKept() {
+        var table = build(RESOURCES.get(RESOURCES.size() - 1));
+        var loaded = JmmSymbolTableSerializer.deserialize(JmmSymbolTableSerializer.serialize(table));
+
+        assertEquals(List.of("foo(int)", "foo(boolean)", "foo(int,int...)", "bar(int[])", "main(String[])"),
+                loaded.getMethodSignatures());
+        assertTrue(loaded.isOverloaded("foo"));
+        assertEquals("int[] ellipsis=true rest", describe(loaded.getParameters("foo(int,int...)").subList(1, 2)));
+        assertEquals("int[] ellipsis=false values", describe(loaded.getParameters("bar(int[])")));
+    }
+
+    @Test
+    public void unsupportedVersion() {
+        var buffer = JmmSymbolTableSerializer.serialize(build(RESOURCES.get(0)));
+        buffer.putInt(4, 0);
+
+        try {
+            JmmSymbolTableSerializer.deserialize(buffer);
+            fail("Expected the version to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("version"));
+        }
+    }
+}